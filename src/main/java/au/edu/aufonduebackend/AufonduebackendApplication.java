@@ -6,12 +6,14 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 
 @ComponentScan(basePackages = "au.edu.aufonduebackend")
 @EntityScan(basePackages = "au.edu.aufonduebackend.model.entity")
 @EnableJpaRepositories("au.edu.aufonduebackend.repository")
+@EnableScheduling
 public class AufonduebackendApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(AufonduebackendApplication.class, args);
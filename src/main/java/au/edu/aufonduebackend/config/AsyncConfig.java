@@ -0,0 +1,105 @@
+package au.edu.aufonduebackend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Executors for work that runs off the request thread
+@Configuration
+public class AsyncConfig {
+
+    // Blob uploads for issue and update media. When every thread is busy and the
+    // queue is full the request thread uploads its own file, which slows callers
+    // down instead of growing the pool or dropping work.
+    @Bean(name = "mediaUploadExecutor")
+    public ThreadPoolTaskExecutor mediaUploadExecutor(
+            @Value("${media.upload.pool-size:8}") int poolSize,
+            @Value("${media.upload.queue-capacity:32}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("media-upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Background uploads of spooled media. Work the queue cannot take is rejected
+    // and stays PENDING in the database for the next poll, so nothing is lost.
+    @Bean(name = "mediaIngestionExecutor")
+    public ThreadPoolTaskExecutor mediaIngestionExecutor(
+            @Value("${media.ingest.pool-size:4}") int poolSize,
+            @Value("${media.ingest.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("media-ingest-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Batches of push notifications. FCM calls are network-bound, so a few threads
+    // go a long way; beyond the queue, a batch is sent on the thread that filled it.
+    @Bean(name = "notificationExecutor")
+    public ThreadPoolTaskExecutor notificationExecutor(
+            @Value("${notifications.pool-size:4}") int poolSize,
+            @Value("${notifications.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("notification-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Drains the blob deletion queue. One thread with room for one more task: a
+    // drain already waiting will see any rows due since, so further ones are
+    // rejected and the rows stay queued in the database.
+    @Bean(name = "blobDeletionExecutor")
+    public ThreadPoolTaskExecutor blobDeletionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("blob-delete-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Relays the notification outbox to the batcher. Same shape as the blob
+    // deletion drain: one relay running and one waiting is all that is useful,
+    // further ones are rejected and the rows wait in the database.
+    @Bean(name = "notificationRelayExecutor")
+    public ThreadPoolTaskExecutor notificationRelayExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("notification-relay-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Writes issue exports to the response. Each one holds a thread and a database
+    // cursor for as long as the download takes, so only a few run at once.
+    @Bean(name = "issueExportExecutor")
+    public ThreadPoolTaskExecutor issueExportExecutor(
+            @Value("${issues.export.pool-size:4}") int poolSize,
+            @Value("${issues.export.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("issue-export-");
+        executor.initialize();
+        return executor;
+    }
+}
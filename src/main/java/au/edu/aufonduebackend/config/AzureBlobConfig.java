@@ -6,10 +6,12 @@ import com.azure.storage.blob.BlobServiceClientBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
-// Azure Blob Storage for file uploads
+// Azure Blob Storage for file uploads (not needed with the local-storage profile)
 
 @Configuration
+@Profile("!local-storage")
 public class AzureBlobConfig {
 
     @Value("${azure.blob-storage.connection-string}")
@@ -0,0 +1,41 @@
+package au.edu.aufonduebackend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Adds the PostGIS column and index behind nearby search. Hibernate's schema update
+// cannot express a generated geography column, so it is created here; both
+// statements are no-ops once the column and index exist. A failure stops startup:
+// nearby search queries the column, so the app cannot serve without it.
+@Component
+@Order(3) // Run after AdminDataFixer
+public class SpatialSchemaInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpatialSchemaInitializer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        try {
+            jdbcTemplate.execute("""
+                    ALTER TABLE issues ADD COLUMN IF NOT EXISTS location geography(Point, 4326)
+                    GENERATED ALWAYS AS (
+                        CASE WHEN longitude IS NOT NULL AND latitude IS NOT NULL
+                             THEN ST_SetSRID(ST_MakePoint(longitude, latitude), 4326)::geography
+                        END
+                    ) STORED
+                    """);
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_issues_location ON issues USING GIST (location)");
+            logger.info("Issue location column and GiST index are in place");
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create the issue location column and index", e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package au.edu.aufonduebackend.config;
+
+import au.edu.aufonduebackend.model.dto.response.ApiResponse;
+import au.edu.aufonduebackend.service.UploadAdmissionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+// Admission control for multipart uploads (issue and update media). Runs before
+// the multipart body is parsed, sizing each request by its Content-Length, and
+// turns it away with 503 + Retry-After when the in-flight budget is used up. It
+// sits just after the security chain, so rejections still carry CORS headers.
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadAdmissionFilter.class);
+
+    private final UploadAdmissionService admissionService;
+    private final ObjectMapper objectMapper;
+
+    // chunked requests give no length up front, so they count as the largest allowed
+    @Value("${uploads.admission.unknown-length-bytes:104857600}")
+    private long unknownLengthBytes = 100 * 1024 * 1024L;
+
+    @Value("${uploads.admission.retry-after-seconds:5}")
+    private int retryAfterSeconds = 5;
+
+    // reverse proxies / load balancers whose X-Forwarded-For is believed
+    private List<IpAddressMatcher> trustedProxies = List.of();
+
+    public UploadAdmissionFilter(UploadAdmissionService admissionService, ObjectMapper objectMapper) {
+        this.admissionService = admissionService;
+        this.objectMapper = objectMapper;
+    }
+
+    // Addresses or CIDR ranges, e.g. 10.0.0.0/8
+    @Value("${uploads.admission.trusted-proxies:}")
+    void setTrustedProxies(List<String> proxies) {
+        trustedProxies = proxies.stream()
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long bytes = request.getContentLengthLong();
+        if (bytes < 0) {
+            bytes = unknownLengthBytes;
+        }
+
+        UploadAdmissionService.Permit permit = admissionService.tryAdmit(clientKey(request), bytes);
+        if (permit == null) {
+            logger.warn("Rejected {} byte upload to {}: upload capacity in use", bytes, request.getRequestURI());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            // the body is never read, so do not let the container drain it to reuse the connection
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    ApiResponse.error("Too many uploads in progress, please try again shortly"));
+            return;
+        }
+        try (permit) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    // Keyed on the client address: headers the client sets itself (X-User-Id, or
+    // X-Forwarded-For straight from the client) would let one caller spread its
+    // uploads over as many keys as it likes. X-Forwarded-For is read only when the
+    // connection comes from a trusted proxy, right to left, up to the first hop
+    // that is not one of them.
+    private String clientKey(HttpServletRequest request) {
+        String client = request.getRemoteAddr();
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor != null && isTrustedProxy(client)) {
+            String[] hops = forwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (hop.isEmpty()) {
+                    continue;
+                }
+                client = hop;
+                if (!isTrustedProxy(hop)) {
+                    break;
+                }
+            }
+        }
+        return "ip:" + client;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher proxy : trustedProxies) {
+            try {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // not an IP address, so not one of ours
+                return false;
+            }
+        }
+        return false;
+    }
+}
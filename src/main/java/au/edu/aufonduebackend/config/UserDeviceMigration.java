@@ -0,0 +1,53 @@
+package au.edu.aufonduebackend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Copies the single token users had in users.fcm_token into user_devices. The old
+// column is left as it is: instances on the previous version still read and write
+// it during a rolling deploy, and each startup picks up the tokens they registered
+// since. Copying is idempotent, and UserService clears the column when a token is
+// signed out or registered by someone else, so it is never copied back to a user
+// who no longer holds it. Turn it off once no old instances are left.
+@Component
+@Order(4) // Run after SpatialSchemaInitializer
+public class UserDeviceMigration implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDeviceMigration.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${devices.legacy-token-copy.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(String... args) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Integer copied = transactionTemplate.execute(status -> jdbcTemplate.update("""
+                    INSERT INTO user_devices (user_id, fcm_token, last_seen_at, created_at)
+                    SELECT id, fcm_token, COALESCE(updated_at, now()), now() FROM users
+                    WHERE fcm_token IS NOT NULL
+                    ON CONFLICT (fcm_token) DO NOTHING
+                    """));
+            if (copied != null && copied > 0) {
+                logger.info("Copied {} FCM tokens into user_devices", copied);
+            }
+        } catch (Exception e) {
+            logger.error("Error copying FCM tokens into user_devices: {}", e.getMessage());
+        }
+    }
+}
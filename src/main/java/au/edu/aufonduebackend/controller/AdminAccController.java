@@ -3,8 +3,8 @@ package au.edu.aufonduebackend.controller;
 import au.edu.aufonduebackend.model.dto.response.AdminResponse;
 import au.edu.aufonduebackend.model.entity.Admin;
 import au.edu.aufonduebackend.repository.AdminRepository;
-import au.edu.aufonduebackend.repository.IssueRepository;
 import au.edu.aufonduebackend.service.AdminService;
+import au.edu.aufonduebackend.service.IssueStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -26,7 +26,7 @@ public class AdminAccController {
     private AdminRepository adminRepository;
 
     @Autowired
-    private IssueRepository issueRepository;
+    private IssueStatsService issueStatsService;
 
     @GetMapping("/details")
     public ResponseEntity<?> getAdminDetails(@RequestParam String email) {
@@ -91,19 +91,8 @@ public class AdminAccController {
     // Dashboard stats endpoint
     @GetMapping("/issues/stats")
     public ResponseEntity<Map<String, Long>> getIssueStats() {
-        long totalIssues = issueRepository.count();
-        long pendingIssues = issueRepository.countByStatus("PENDING");
-        long inProgressIssues = issueRepository.countByStatus("IN PROGRESS");
-        long completedIssues = issueRepository.countByStatus("COMPLETED");
-
-        long incompleteIssues = pendingIssues + inProgressIssues;
-
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("totalIssues", totalIssues);
-        stats.put("incompleteIssues", incompleteIssues);
-        stats.put("completedIssues", completedIssues);
-
-        return ResponseEntity.ok(stats);
+        // Served from in-memory counters, no database round trip
+        return ResponseEntity.ok(issueStatsService.getStats());
     }
 
     @DeleteMapping("/{id}")
@@ -3,26 +3,43 @@ package au.edu.aufonduebackend.controller;
 
 import au.edu.aufonduebackend.model.dto.request.UpdateRequest;
 import au.edu.aufonduebackend.model.dto.response.IssueResponse;
+import au.edu.aufonduebackend.model.dto.response.NotificationStatusResponse;
+import au.edu.aufonduebackend.model.dto.response.PageResponse;
 import au.edu.aufonduebackend.model.dto.response.UpdateResponse;
 import au.edu.aufonduebackend.model.entity.Admin;
 import au.edu.aufonduebackend.repository.IssueRepository;
 import au.edu.aufonduebackend.repository.AdminRepository;
 import au.edu.aufonduebackend.security.SecurityUtils;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.IssueExportService;
 import au.edu.aufonduebackend.service.IssueService;
 import au.edu.aufonduebackend.service.IssueRemarkService;
+import au.edu.aufonduebackend.service.IssueStatsService;
+import au.edu.aufonduebackend.service.NotificationBatcher;
 import au.edu.aufonduebackend.service.StaffService;
 import au.edu.aufonduebackend.service.UpdateService;
+import au.edu.aufonduebackend.service.UploadAdmissionService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -52,14 +69,37 @@ public class AdminIssueController {
     @Autowired
     public IssueRepository issueRepository;
 
+    @Autowired
+    public IssueStatsService issueStatsService;
+
+    @Autowired
+    public IssueExportService issueExportService;
+
+    @Autowired
+    public ImageRenditionService imageRenditionService;
+
+    @Autowired
+    public UploadAdmissionService uploadAdmissionService;
+
+    @Autowired
+    public NotificationBatcher notificationBatcher;
+
+    @Autowired
+    @Qualifier("issueExportExecutor")
+    public ThreadPoolTaskExecutor issueExportExecutor;
+
+    // Exports of the whole table can outlast the default async timeout
+    @Value("${issues.export.timeout-ms:3600000}")
+    private long exportTimeoutMs;
+
     @GetMapping("/reports")
-    public ResponseEntity<List<IssueResponse>> getAllReports(
+    public ResponseEntity<PageResponse<IssueResponse>> getAllReports(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String status) {
 
         // Fetch the issues via the service method
-        List<IssueResponse> issues = issueService.getAllIssues(page, size, status);
+        PageResponse<IssueResponse> issues = issueService.getAllIssues(page, size, status);
 
         // Return the fetched issues with HTTP status 200 OK
         return ResponseEntity.ok(issues);
@@ -67,6 +107,35 @@ public class AdminIssueController {
 
 
 
+    // Streams every matching issue instead of paging through /reports;
+    // from is inclusive and to is exclusive, both ISO-8601 instants. Written on
+    // the export pool under its own timeout, leaving the global async settings alone.
+    @GetMapping("/reports/export")
+    @ResponseBody
+    public WebAsyncTask<Void> exportReports(
+            @RequestParam(defaultValue = IssueExportService.FORMAT_NDJSON) String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            HttpServletResponse response) {
+
+        boolean csv = IssueExportService.FORMAT_CSV.equalsIgnoreCase(format);
+        if (!csv && !IssueExportService.FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return null;
+        }
+
+        response.setContentType(csv
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8).toString()
+                : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"issues-export." + (csv ? "csv" : "ndjson") + "\"");
+        return new WebAsyncTask<>(exportTimeoutMs, issueExportExecutor, () -> {
+            issueExportService.exportIssues(format, status, from, to, response.getOutputStream());
+            return null;
+        });
+    }
+
     @DeleteMapping("/reports/{id}")
     public ResponseEntity<?> deleteReport(@PathVariable Long id, 
                                          @RequestHeader(value = "X-User-Type", required = false) String userType) {
@@ -97,24 +166,24 @@ public class AdminIssueController {
 
     // Endpoint to get all unassigned issues
     @GetMapping("/unassigned")
-    public ResponseEntity<List<IssueResponse>> getUnassignedIssues(
+    public ResponseEntity<PageResponse<IssueResponse>> getUnassignedIssues(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size
     ) {
-        List<IssueResponse> unassignedIssues = issueService.getUnassignedIssues(page, size);
+        PageResponse<IssueResponse> unassignedIssues = issueService.getUnassignedIssues(page, size);
         return ResponseEntity.ok(unassignedIssues);
     }
 
 
     // Endpoint to get all assigned issues (filtered by staff if staff is requesting)
     @GetMapping("/assigned")
-    public ResponseEntity<List<IssueResponse>> getAssignedIssues(
+    public ResponseEntity<PageResponse<IssueResponse>> getAssignedIssues(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestHeader(value = "X-User-Type", required = false) String userType,
             @RequestHeader(value = "X-User-Id", required = false) String userId
     ) {
-        List<IssueResponse> assignedIssues = new ArrayList<>();
+        PageResponse<IssueResponse> assignedIssues = PageResponse.empty(page, size);
         
         try {
             logger.info("Fetching assigned issues - UserType: {}, UserId: {}", userType, userId);
@@ -124,20 +193,11 @@ public class AdminIssueController {
                 if (userId != null && !userId.isEmpty()) {
                     try {
                         Long staffId = Long.parseLong(userId);
-                        // Get all assigned issues and filter by staff ID
-                        List<IssueResponse> allAssigned = issueService.getAssignedIssues(page, size);
-                        
-                        // Filter to only show issues assigned to this staff member
-                        for (IssueResponse issue : allAssigned) {
-                            if (issue.getAssignedTo() != null && 
-                                issue.getAssignedTo().getId() != null &&
-                                issue.getAssignedTo().getId().equals(staffId)) {
-                                assignedIssues.add(issue);
-                            }
-                        }
+                        // Filtered by staff in SQL, so the cost follows this staff member's issues only
+                        assignedIssues = issueService.getAssignedIssuesByStaff(staffId, page, size);
                         
-                        logger.info("Staff {} fetching their assigned issues, found {} issues out of {} total", 
-                                   staffId, assignedIssues.size(), allAssigned.size());
+                        logger.info("Staff {} fetching their assigned issues, found {} issues", 
+                                   staffId, assignedIssues.getTotalElements());
                     } catch (NumberFormatException e) {
                         logger.error("Invalid staff ID format: {}", userId);
                         // Return empty list for invalid format
@@ -148,7 +208,7 @@ public class AdminIssueController {
             } else {
                 // Admin or other user type - return all assigned issues
                 assignedIssues = issueService.getAssignedIssues(page, size);
-                logger.info("Admin/other fetching all assigned issues, found {} issues", assignedIssues.size());
+                logger.info("Admin/other fetching all assigned issues, found {} issues", assignedIssues.getTotalElements());
             }
             
         } catch (Exception e) {
@@ -192,6 +252,12 @@ public class AdminIssueController {
 
 
 
+    // Delivery status of an update's push notification, which is sent in the background
+    @GetMapping("/updates/{updateId}/notification")
+    public ResponseEntity<NotificationStatusResponse> getUpdateNotificationStatus(@PathVariable Long updateId) {
+        return ResponseEntity.ok(updateService.getNotificationStatus(updateId));
+    }
+
     @GetMapping("/{issueId}/updates")
     public ResponseEntity<List<UpdateResponse>> getUpdatesByIssue(@PathVariable Long issueId) {
         List<UpdateResponse> updates = updateService.getUpdatesByIssueId(issueId);
@@ -200,29 +266,66 @@ public class AdminIssueController {
 
 
     @GetMapping("/completed")
-    public ResponseEntity<List<IssueResponse>> getCompletedIssues() {
-        return ResponseEntity.ok(issueService.getCompletedIssues());
+    public ResponseEntity<PageResponse<IssueResponse>> getCompletedIssues(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(issueService.getCompletedIssues(page, size));
     }
 
 
     // to get issue stats
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Long>> getIssueStats() {
-        long totalIssues = issueRepository.count();
-        long pendingIssues = issueRepository.countByStatus("PENDING");
-        long inProgressIssues = issueRepository.countByStatus("IN PROGRESS");
-        long completedIssues = issueRepository.countByStatus("COMPLETED");
+        // Served from in-memory counters, no database round trip
+        return ResponseEntity.ok(issueStatsService.getStats());
+    }
+    
+    // Generates thumbnails and previews for a batch of photos uploaded before
+    // renditions existed; call again until processed comes back as 0
+    @PostMapping("/renditions/backfill")
+    public ResponseEntity<Map<String, Object>> backfillRenditions(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader(value = "X-User-Type", required = false) String userType) {
+        Map<String, Object> response = new HashMap<>();
+        if (userType == null || !userType.equalsIgnoreCase("admin")) {
+            response.put("error", "Forbidden");
+            response.put("message", "Only administrators can run the rendition backfill.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
 
-        long incompleteIssues = pendingIssues + inProgressIssues;
+        int processed = imageRenditionService.backfill(Math.max(1, Math.min(limit, 500)));
+        logger.info("Rendition backfill processed {} photos", processed);
+        response.put("processed", processed);
+        return ResponseEntity.ok(response);
+    }
 
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("totalIssues", totalIssues);
-        stats.put("incompleteIssues", incompleteIssues);
-        stats.put("completedIssues", completedIssues);
+    // Upload admission control: bytes in flight and queued, admitted and rejected totals
+    @GetMapping("/uploads/admission")
+    public ResponseEntity<Map<String, Object>> getUploadAdmissionStats(
+            @RequestHeader(value = "X-User-Type", required = false) String userType) {
+        if (userType == null || !userType.equalsIgnoreCase("admin")) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Forbidden");
+            response.put("message", "Only administrators can view upload statistics.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
+        return ResponseEntity.ok(new LinkedHashMap<String, Object>(uploadAdmissionService.getStats()));
+    }
 
-        return ResponseEntity.ok(stats);
+    // Push notification batching: batches and messages sent, failures and queue depth
+    @GetMapping("/notifications/stats")
+    public ResponseEntity<Map<String, Object>> getNotificationStats(
+            @RequestHeader(value = "X-User-Type", required = false) String userType) {
+        if (userType == null || !userType.equalsIgnoreCase("admin")) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Forbidden");
+            response.put("message", "Only administrators can view notification statistics.");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
+        return ResponseEntity.ok(new LinkedHashMap<String, Object>(notificationBatcher.getStats()));
     }
-    
+
     // Mark 'new' remark as viewed when details button is clicked
     @PostMapping("/{issueId}/remark/view")
     public ResponseEntity<String> markRemarkAsViewed(
@@ -0,0 +1,38 @@
+package au.edu.aufonduebackend.controller;
+
+import au.edu.aufonduebackend.model.dto.request.UploadSessionRequest;
+import au.edu.aufonduebackend.model.dto.response.ApiResponse;
+import au.edu.aufonduebackend.model.dto.response.UploadSessionResponse;
+import au.edu.aufonduebackend.service.ResumableUploadService;
+import au.edu.aufonduebackend.service.impl.LocalStorageServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+
+// Direct uploads: POST returns a short-lived uploadUrl; the client PUTs the whole
+// file there (to blob storage, not to this service) with uploadHeaders and then
+// commits through UploadController, or just passes the upload ID with the issue.
+// Local storage has nothing in front of the disk to check a signed URL, so there
+// the endpoint does not exist and clients use chunked uploads.
+
+@RestController
+@RequestMapping("/api/uploads/direct")
+@Profile("!" + LocalStorageServiceImpl.PROFILE)
+@RequiredArgsConstructor
+public class DirectUploadController {
+
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> createDirectSession(@RequestBody UploadSessionRequest request) {
+        try {
+            UploadSessionResponse session = resumableUploadService.createDirectSession(request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(session, "Upload URL created"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -2,12 +2,18 @@ package au.edu.aufonduebackend.controller;
 
 import au.edu.aufonduebackend.model.dto.request.IssueRequest;
 import au.edu.aufonduebackend.model.dto.response.ApiResponse;
+import au.edu.aufonduebackend.model.dto.response.CursorPage;
+import au.edu.aufonduebackend.model.dto.response.IssueClusterResponse;
 import au.edu.aufonduebackend.model.dto.response.IssueResponse;
+import au.edu.aufonduebackend.model.dto.response.MediaAttachmentResponse;
+import au.edu.aufonduebackend.service.IssueMapService;
 import au.edu.aufonduebackend.service.IssueService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.List;
 
@@ -20,16 +26,22 @@ import java.util.List;
 public class IssueController {
 
     private final IssueService issueService;
+    private final IssueMapService issueMapService;
     private final ObjectMapper objectMapper;
 
+    // With async=true the issue is stored at once and its media uploaded in the
+    // background; poll /{id}/media or wait for the push notification
     @PostMapping(consumes = { "multipart/form-data" })
     public ResponseEntity<ApiResponse<IssueResponse>> createIssue(
             @RequestPart("issue") String issueJson,
             @RequestPart(value = "photos", required = false) List<MultipartFile> photos,
-            @RequestPart(value = "videos", required = false) List<MultipartFile> videos) {
+            @RequestPart(value = "videos", required = false) List<MultipartFile> videos,
+            @RequestParam(value = "async", defaultValue = "false") boolean asyncMedia) {
         try {
             IssueRequest request = objectMapper.readValue(issueJson, IssueRequest.class);
-            IssueResponse response = issueService.createIssue(request, photos, videos);
+            IssueResponse response = asyncMedia
+                    ? issueService.createIssueWithPendingMedia(request, photos, videos)
+                    : issueService.createIssue(request, photos, videos);
             return ResponseEntity.ok(ApiResponse.success(response, "Issue created successfully"));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -43,18 +55,67 @@ public class IssueController {
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            WebRequest webRequest) {
+        String etag = issueService.getUserSubmittedIssuesETag(userId, page, size, status);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
         List<IssueResponse> issues = issueService.getUserSubmittedIssues(userId, page, size, status);
-        return ResponseEntity.ok(ApiResponse.success(issues, "User submitted issues retrieved successfully"));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(issues, "User submitted issues retrieved successfully"));
+    }
+
+    // Keyset mode for the mobile feed: send an empty cursor for the first page, then
+    // the nextCursor from each response. Requests without a cursor keep offset paging.
+    @GetMapping(value = "/user/{userId}/submitted", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<IssueResponse>>> getUserSubmittedIssuesByCursor(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String status,
+            WebRequest webRequest) {
+        try {
+            String etag = issueService.getUserSubmittedIssuesETag(userId, cursor, size, status);
+            if (etag != null && webRequest.checkNotModified(etag)) {
+                return notModified(etag);
+            }
+            CursorPage<IssueResponse> issues = issueService.getUserSubmittedIssues(userId, cursor, size, status);
+            return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(issues, "User submitted issues retrieved successfully"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
     }
 
     @GetMapping("/tracking")
     public ResponseEntity<ApiResponse<List<IssueResponse>>> getAllIssuesTracking(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            WebRequest webRequest) {
+        String etag = issueService.getAllIssuesTrackingETag(page, size, status);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return notModified(etag);
+        }
         List<IssueResponse> issues = issueService.getAllIssuesTracking(page, size, status);
-        return ResponseEntity.ok(ApiResponse.success(issues, "All tracked issues retrieved successfully"));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(issues, "All tracked issues retrieved successfully"));
+    }
+
+    @GetMapping(value = "/tracking", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<IssueResponse>>> getAllIssuesTrackingByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String status,
+            WebRequest webRequest) {
+        try {
+            String etag = issueService.getAllIssuesTrackingETag(cursor, size, status);
+            if (etag != null && webRequest.checkNotModified(etag)) {
+                return notModified(etag);
+            }
+            CursorPage<IssueResponse> issues = issueService.getAllIssuesTracking(cursor, size, status);
+            return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(issues, "All tracked issues retrieved successfully"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
     }
 
     @GetMapping
@@ -62,15 +123,29 @@ public class IssueController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String status) {
-        List<IssueResponse> issues = issueService.getAllIssues(page, size, status);
+        List<IssueResponse> issues = issueService.getAllIssues(page, size, status).getContent();
         return ResponseEntity.ok(ApiResponse.success(issues, "Issues retrieved successfully"));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<IssueResponse>> getIssueById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<IssueResponse>> getIssueById(@PathVariable Long id, WebRequest webRequest) {
         try {
+            String etag = issueService.getIssueETag(id);
+            if (etag != null && webRequest.checkNotModified(etag)) {
+                return notModified(etag);
+            }
             IssueResponse issue = issueService.getIssueById(id);
-            return ResponseEntity.ok(ApiResponse.success(issue, "Issue retrieved successfully"));
+            return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(issue, "Issue retrieved successfully"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}/media")
+    public ResponseEntity<ApiResponse<List<MediaAttachmentResponse>>> getIssueMedia(@PathVariable Long id) {
+        try {
+            List<MediaAttachmentResponse> media = issueService.getIssueMedia(id);
+            return ResponseEntity.ok(ApiResponse.success(media, "Issue media retrieved successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
@@ -102,12 +177,50 @@ public class IssueController {
     public ResponseEntity<ApiResponse<List<IssueResponse>>> getNearbyIssues(
             @RequestParam Double latitude,
             @RequestParam Double longitude,
-            @RequestParam Double radiusKm) {
+            @RequestParam Double radiusKm,
+            @RequestParam(defaultValue = "100") int limit) {
         try {
-            List<IssueResponse> issues = issueService.getNearbyIssues(latitude, longitude, radiusKm);
+            List<IssueResponse> issues = issueService.getNearbyIssues(latitude, longitude, radiusKm, limit);
             return ResponseEntity.ok(ApiResponse.success(issues, "Nearby issues retrieved successfully"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    // Pre-clustered issues for a map viewport; the number of clusters is capped
+    // whatever the zoom level, so the payload does not grow with the issue count
+    @GetMapping("/clusters")
+    public ResponseEntity<ApiResponse<IssueClusterResponse>> getIssueClusters(
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam int zoom) {
+        try {
+            IssueClusterResponse clusters = issueMapService.getClusters(minLat, minLon, maxLat, maxLon, zoom);
+            return ResponseEntity.ok(ApiResponse.success(clusters, "Issue clusters retrieved successfully"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // The k closest issues, nearest first
+    @GetMapping("/nearest")
+    public ResponseEntity<ApiResponse<List<IssueResponse>>> getNearestIssues(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(defaultValue = "10") int k) {
+        try {
+            List<IssueResponse> issues = issueService.getNearestIssues(latitude, longitude, k);
+            return ResponseEntity.ok(ApiResponse.success(issues, "Nearest issues retrieved successfully"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // Polling clients send back the ETag they last saw; when nothing changed they
+    // get an empty 304 instead of the full payload
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+}
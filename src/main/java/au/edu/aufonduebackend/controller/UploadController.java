@@ -0,0 +1,85 @@
+package au.edu.aufonduebackend.controller;
+
+import au.edu.aufonduebackend.exception.ResourceNotFoundException;
+import au.edu.aufonduebackend.model.dto.request.UploadSessionRequest;
+import au.edu.aufonduebackend.model.dto.response.ApiResponse;
+import au.edu.aufonduebackend.model.dto.response.UploadSessionResponse;
+import au.edu.aufonduebackend.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+// Resumable uploads for large photos and videos: create a session, PUT each chunk
+// (raw bytes) to /{uploadId}/chunks/{index}, GET the session to see which chunks
+// arrived after a dropped connection, then commit. The upload ID goes in the
+// issue's uploadIds when the issue is created. Direct uploads (DirectUploadController)
+// are committed and used the same way.
+
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> createSession(@RequestBody UploadSessionRequest request) {
+        try {
+            UploadSessionResponse session = resumableUploadService.createSession(request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(session, "Upload session created"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            HttpServletRequest request) {
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).body(ApiResponse.error("Content-Length is required"));
+        }
+        try (InputStream data = request.getInputStream()) {
+            UploadSessionResponse session = resumableUploadService.receiveChunk(uploadId, index, data, length);
+            return ResponseEntity.ok(ApiResponse.success(session, "Chunk received"));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Error reading chunk: " + e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> getSession(@PathVariable String uploadId) {
+        try {
+            UploadSessionResponse session = resumableUploadService.getSession(uploadId);
+            return ResponseEntity.ok(ApiResponse.success(session, "Upload session retrieved"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{uploadId}/commit")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> commit(@PathVariable String uploadId) {
+        try {
+            UploadSessionResponse session = resumableUploadService.commit(uploadId);
+            return ResponseEntity.ok(ApiResponse.success(session, "Upload committed"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
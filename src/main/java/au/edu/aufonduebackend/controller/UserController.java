@@ -11,6 +11,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 // Endpoints for user account management with Microsoft authentication
 
 @RestController
@@ -70,6 +72,7 @@ public class UserController {
     public ResponseEntity<ApiResponse<String>> updateFcmToken(
             @RequestParam String email,
             @RequestParam String fcmToken,
+            @RequestParam(required = false) String deviceId,
             @RequestHeader(value = "Authorization", required = false) String authHeader) {
 
         try {
@@ -89,7 +92,7 @@ public class UserController {
                 }
             }
 
-            userService.updateFcmToken(email, fcmToken);
+            userService.updateFcmToken(email, fcmToken, deviceId);
             return ResponseEntity.ok(new ApiResponse<>(true, "FCM token updated successfully", null));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -97,9 +100,11 @@ public class UserController {
         }
     }
 
+    // Without fcmToken, every device of the user is removed
     @DeleteMapping("/remove-fcm-token")
     public ResponseEntity<ApiResponse<String>> removeFcmToken(
             @RequestParam String email,
+            @RequestParam(required = false) String fcmToken,
             @RequestHeader(value = "Authorization", required = false) String authHeader) {
         try {
             // If Authorization header is present, get email from token
@@ -118,7 +123,7 @@ public class UserController {
                 }
             }
 
-            userService.removeFcmToken(email);
+            userService.removeFcmToken(email, fcmToken);
             return ResponseEntity.ok(new ApiResponse<>(true, "FCM token removed successfully", null));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -139,14 +144,15 @@ public class UserController {
                         .body(new ApiResponse<>(false, "User not found", null));
             }
 
-            if (user.getFcmToken() == null) {
+            List<String> fcmTokens = userService.getFcmTokens(user.getId());
+            if (fcmTokens.isEmpty()) {
                 return ResponseEntity.badRequest()
                         .body(new ApiResponse<>(false, "User doesn't have FCM token registered", null));
             }
 
             // Send test notification
             boolean sent = fcmService.sendTestNotification(
-                    user.getFcmToken(),
+                    fcmTokens,
                     "Test Notification",
                     request.getMessage()
             );
@@ -19,6 +19,8 @@ public class IssueRequest {
     private String category;
     private String customCategory;
     private List<String> photoUrls;
+    // committed resumable uploads (POST /api/uploads) to attach as photos or videos
+    private List<String> uploadIds;
 
     @JsonProperty("isUsingCustomLocation")
     private boolean usingCustomLocation;
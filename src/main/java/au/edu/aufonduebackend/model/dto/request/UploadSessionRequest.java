@@ -0,0 +1,14 @@
+package au.edu.aufonduebackend.model.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// starts a resumable upload of one photo or video
+@Getter
+@Setter
+public class UploadSessionRequest {
+    private String filename;
+    private String contentType;
+    private Long totalSize;
+    private String userEmail;
+}
@@ -0,0 +1,20 @@
+package au.edu.aufonduebackend.model.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+// one grid cell of the issue map; latitude/longitude is the mean position of its issues
+@Getter
+@Setter
+public class IssueCluster {
+    private String cell;
+    private double latitude;
+    private double longitude;
+    private int count;
+    private Map<String, Integer> statusCounts;
+    private Map<String, Integer> categoryCounts;
+    private List<Long> sampleIssueIds;
+}
@@ -0,0 +1,21 @@
+package au.edu.aufonduebackend.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+// clusters for a map viewport; cells are cellSizeDegrees square and aligned to a
+// world grid, so panning keeps the same cell ids
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IssueClusterResponse {
+    private int zoom;
+    private double cellSizeDegrees;
+    private int totalIssues;
+    private List<IssueCluster> clusters;
+}
@@ -20,6 +20,9 @@ public class IssueResponse {
     private String category;
     private String status;
     private List<String> photoUrls;
+    // same order as photoUrls; the original URL where no rendition exists
+    private List<String> photoThumbnailUrls;
+    private List<String> photoPreviewUrls;
     private List<String> videoUrls;
     private Instant createdAt;
     private Instant updatedAt;
@@ -29,4 +32,8 @@ public class IssueResponse {
     private String priority;
     private String remarkType;
     private Boolean remarkViewed;
+    // only set by nearby and nearest searches
+    private Double distanceMeters;
+    // only set when the issue was created with deferred (async) media
+    private List<MediaAttachmentResponse> pendingMedia;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package au.edu.aufonduebackend.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// processing state of one photo or video sent with an issue; url is set once READY
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaAttachmentResponse {
+    private Long id;
+    private String kind;
+    private String status;
+    private String originalFilename;
+    private String url;
+    private Integer attempts;
+    private String error;
+}
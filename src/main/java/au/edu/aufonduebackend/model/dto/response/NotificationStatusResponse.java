@@ -0,0 +1,20 @@
+package au.edu.aufonduebackend.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// delivery state of the push notification for one update
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationStatusResponse {
+    private Long updateId;
+    private Long issueId;
+    // QUEUED, SENT, FAILED or SKIPPED; null for updates from before notifications were tracked
+    private String status;
+    private String error;
+    private Instant notifiedAt;
+}
@@ -0,0 +1,26 @@
+package au.edu.aufonduebackend.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+// one page of an offset-paginated list with the totals the admin tables need
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+    private List<T> content;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+    private boolean last;
+
+    public static <T> PageResponse<T> empty(int page, int size) {
+        return new PageResponse<>(List.of(), page, size, 0, 0, true);
+    }
+}
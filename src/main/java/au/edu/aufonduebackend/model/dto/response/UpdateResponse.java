@@ -17,9 +17,14 @@ public class UpdateResponse {
     private String comment;
     private Instant updateTime;
     private List<String> photoUrls;
+    // same order as photoUrls; the original URL where no rendition exists
+    private List<String> photoThumbnailUrls;
+    private List<String> photoPreviewUrls;
 
-    // ADD THESE NEW FIELDS FOR NOTIFICATION STATUS
-    private Boolean notificationSent;
+    // Push notification to the reporter: QUEUED when the update is created (it is
+    // sent in the background), SKIPPED without a device token; look up the
+    // outcome at /api/issues/updates/{id}/notification
+    private String notificationStatus;
     private String notificationError;
 
     // Constructor without notification fields for backward compatibility
@@ -31,7 +36,7 @@ public class UpdateResponse {
         this.comment = comment;
         this.updateTime = updateTime;
         this.photoUrls = photoUrls;
-        this.notificationSent = null;
+        this.notificationStatus = null;
         this.notificationError = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package au.edu.aufonduebackend.model.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// state of a resumable upload; the client sends the chunks missing from
+// receivedChunks, then commits and passes uploadId in IssueRequest.uploadIds.
+// For a direct upload the client instead PUTs the file to uploadUrl with
+// uploadHeaders before uploadUrlExpiresAt.
+@Getter
+@Setter
+public class UploadSessionResponse {
+    private String uploadId;
+    private String status;
+    private String filename;
+    private String contentType;
+    private Long totalSize;
+    private Integer chunkSize;
+    private Integer chunkCount;
+    private List<Integer> receivedChunks;
+    // set once committed
+    private String url;
+    private Instant expiresAt;
+    // direct uploads only
+    private String uploadUrl;
+    private Map<String, String> uploadHeaders;
+    private Instant uploadUrlExpiresAt;
+}
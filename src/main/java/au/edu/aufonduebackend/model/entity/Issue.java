@@ -2,6 +2,7 @@ package au.edu.aufonduebackend.model.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.time.Instant;
@@ -12,10 +13,25 @@ import java.util.List;
 //Represents maintenance issues with location, description, photos, and status
 
 @Entity
-@Table(name = "issues")
+@NamedEntityGraph(name = Issue.WITH_PEOPLE, attributeNodes = {
+        @NamedAttributeNode("reportedBy"),
+        @NamedAttributeNode("assignedTo")
+})
+@Table(name = "issues", indexes = {
+        // keyset pagination for the tracking and user-submitted feeds
+        @Index(name = "idx_issues_created_at_id", columnList = "created_at DESC, id DESC"),
+        @Index(name = "idx_issues_reporter_created_at_id", columnList = "reported_by_user_id, created_at DESC, id DESC"),
+        // paged admin lists filtered by assignment or status
+        @Index(name = "idx_issues_assigned_created_at_id", columnList = "assigned, created_at DESC, id DESC"),
+        @Index(name = "idx_issues_status_created_at_id", columnList = "status, created_at DESC, id DESC"),
+        // a staff member's own assigned issues
+        @Index(name = "idx_issues_staff_created_at_id", columnList = "assigned_staff_id, created_at DESC, id DESC")
+})
 @Getter
 @Setter
 public class Issue {
+    public static final String WITH_PEOPLE = "Issue.withPeople";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -36,14 +52,26 @@ public class Issue {
     @Column(nullable = false)
     private String status = "PENDING";
 
+    // Media lists are loaded for a whole page of issues at once rather than per row
     @ElementCollection
-    @CollectionTable(name = "issue_photos", joinColumns = @JoinColumn(name = "issue_id"))
+    @CollectionTable(name = "issue_photos", joinColumns = @JoinColumn(name = "issue_id"),
+            indexes = {
+                    @Index(name = "idx_issue_photos_issue_id", columnList = "issue_id"),
+                    // reference counts of shared (content-addressed) blobs
+                    @Index(name = "idx_issue_photos_photo_url", columnList = "photo_url")
+            })
     @Column(name = "photo_url")
+    @BatchSize(size = 100)
     private List<String> photoUrls = new ArrayList<>();
 
     @ElementCollection
-    @CollectionTable(name = "issue_videos", joinColumns = @JoinColumn(name = "issue_id"))
+    @CollectionTable(name = "issue_videos", joinColumns = @JoinColumn(name = "issue_id"),
+            indexes = {
+                    @Index(name = "idx_issue_videos_issue_id", columnList = "issue_id"),
+                    @Index(name = "idx_issue_videos_video_url", columnList = "video_url")
+            })
     @Column(name = "video_url")
+    @BatchSize(size = 100)
     private List<String> videoUrls = new ArrayList<>();
 
     @CreationTimestamp
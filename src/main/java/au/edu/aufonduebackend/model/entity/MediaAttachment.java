@@ -0,0 +1,85 @@
+package au.edu.aufonduebackend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+// A photo or video accepted with an issue but not yet in blob storage. The file
+// waits in the spool directory of the instance that received it (spoolNode) until
+// a worker there uploads it and adds its URL to the issue.
+@Entity
+@Table(name = "media_attachments", indexes = {
+        @Index(name = "idx_media_attachments_issue_id", columnList = "issue_id"),
+        // the retry poller's claim query
+        @Index(name = "idx_media_attachments_node_status_next", columnList = "spool_node, status, next_attempt_at")
+})
+@Getter
+@Setter
+public class MediaAttachment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "issue_id", nullable = false)
+    private Issue issue;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private Kind kind;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.PENDING;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "spool_path", length = 1000)
+    private String spoolPath;
+
+    @Column(name = "spool_node", nullable = false)
+    private String spoolNode;
+
+    @Column(length = 1000)
+    private String url;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public enum Kind {
+        PHOTO,
+        VIDEO
+    }
+
+    public enum Status {
+        PENDING,
+        UPLOADING,
+        READY,
+        FAILED
+    }
+}
@@ -0,0 +1,45 @@
+package au.edu.aufonduebackend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+// Downscaled copies of an uploaded photo. A row with status UNSUPPORTED records
+// that the original could not be decoded, so the backfill does not retry it and
+// clients keep using the original.
+@Entity
+@Table(name = "media_renditions", indexes = {
+        @Index(name = "idx_media_renditions_original_url", columnList = "original_url", unique = true)
+})
+@Getter
+@Setter
+public class MediaRendition {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "original_url", nullable = false, length = 1000)
+    private String originalUrl;
+
+    @Column(name = "small_url", length = 1000)
+    private String smallUrl;
+
+    @Column(name = "medium_url", length = 1000)
+    private String mediumUrl;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    public enum Status {
+        READY,
+        UNSUPPORTED
+    }
+}
@@ -0,0 +1,54 @@
+package au.edu.aufonduebackend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+// A push notification waiting to be sent. The row is written in the transaction
+// that saved its update and removed once FCM has accepted it or it has failed for
+// good, so a crash or an FCM outage delays the notification instead of losing it.
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_next_attempt", columnList = "next_attempt_at"),
+        @Index(name = "idx_notification_outbox_issue", columnList = "issue_id")
+})
+@Getter
+@Setter
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "update_id", nullable = false)
+    private Long updateId;
+
+    @Column(name = "issue_id", nullable = false)
+    private Long issueId;
+
+    @Column(name = "recipient_email", nullable = false)
+    private String recipientEmail;
+
+    @Column(name = "fcm_token", nullable = false, length = 1000)
+    private String fcmToken;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    private String comment;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+}
@@ -0,0 +1,43 @@
+package au.edu.aufonduebackend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+// A blob whose last reference went away. The row is written in the transaction
+// that dropped the reference and removed once the blob (and its renditions) are
+// gone, so a failed or interrupted delete is retried rather than leaked.
+@Entity
+@Table(name = "pending_blob_deletions", indexes = {
+        @Index(name = "idx_pending_blob_deletions_next_attempt", columnList = "next_attempt_at")
+})
+@Getter
+@Setter
+public class PendingBlobDeletion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 1000)
+    private String url;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    // Set while an instance is deleting the blob, until the lease runs out
+    @Column(name = "claimed_until")
+    private Instant claimedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+}
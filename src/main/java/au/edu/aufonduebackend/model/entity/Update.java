@@ -30,13 +30,26 @@ public class Update {
     private String comment;
 
     @ElementCollection
-    @CollectionTable(name = "update_photos", joinColumns = @JoinColumn(name = "update_id"))
+    @CollectionTable(name = "update_photos", joinColumns = @JoinColumn(name = "update_id"),
+            indexes = @Index(name = "idx_update_photos_photo_url", columnList = "photo_url"))
     @Column(name = "photo_url")
     private List<String> photoUrls = new ArrayList<>();
 
     @CreationTimestamp
     private Instant updateTime;
 
+    // The reporter's push notification, sent after the update commits; null on
+    // updates from before notifications were tracked
+    @Column(name = "notification_status", length = 20)
+    @Enumerated(EnumType.STRING)
+    private NotificationStatus notificationStatus;
+
+    @Column(name = "notification_error", length = 1000)
+    private String notificationError;
+
+    @Column(name = "notified_at")
+    private Instant notifiedAt;
+
     // Method to update the issue status when update status changes
     public void setStatus(String status) {
         this.status = status;
@@ -44,5 +57,12 @@ public class Update {
             issue.setStatus(status);
         }
     }
-}
 
+    public enum NotificationStatus {
+        QUEUED,
+        SENT,
+        FAILED,
+        // the reporter has no device to notify
+        SKIPPED
+    }
+}
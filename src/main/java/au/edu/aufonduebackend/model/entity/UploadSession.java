@@ -0,0 +1,81 @@
+package au.edu.aufonduebackend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+// A resumable upload. Each chunk the client sends is staged as a block of blobName
+// in Azure, and its receipt recorded in upload_chunks, so any instance can take
+// any chunk and a restart loses nothing. Commit turns the blocks into the blob.
+// A direct upload is a single chunk the client PUTs to blob storage itself with a
+// signed URL; commit then only checks what arrived.
+@Entity
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+public class UploadSession {
+    // the upload ID handed to the client
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "owner_email", nullable = false)
+    private String ownerEmail;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+
+    @Column(name = "chunk_count", nullable = false)
+    private Integer chunkCount;
+
+    @Column(name = "blob_name", nullable = false)
+    private String blobName;
+
+    // null on sessions from before direct uploads, which were all chunked
+    @Column(name = "upload_mode", length = 10)
+    @Enumerated(EnumType.STRING)
+    private Mode mode = Mode.CHUNKED;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.OPEN;
+
+    // set once committed
+    @Column(length = 1000)
+    private String url;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public boolean isDirect() {
+        return mode == Mode.DIRECT;
+    }
+
+    public enum Mode {
+        CHUNKED,
+        DIRECT
+    }
+
+    public enum Status {
+        OPEN,
+        COMMITTED
+    }
+}
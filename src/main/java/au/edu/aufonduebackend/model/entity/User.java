@@ -23,7 +23,10 @@ public class User {
     @Column(nullable = false, unique = true)
     private String email;
 
-    // NEW FIELD FOR FCM
+    // Push notification tokens live in user_devices, one row per device. This is
+    // the single token the previous version kept: it still holds the latest one
+    // registered, so instances on that version keep notifying during a rolling
+    // deploy. Drop it once none are left.
     @Column(name = "fcm_token")
     private String fcmToken;
 
@@ -0,0 +1,43 @@
+package au.edu.aufonduebackend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+// One app install that can receive push notifications. A token belongs to a single
+// install, so it is unique across users: signing in as someone else on the same
+// phone moves the row over.
+@Entity
+@Table(name = "user_devices", indexes = {
+        @Index(name = "idx_user_devices_fcm_token", columnList = "fcm_token", unique = true),
+        @Index(name = "idx_user_devices_user", columnList = "user_id")
+})
+@Getter
+@Setter
+public class UserDevice {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "fcm_token", nullable = false, length = 1000)
+    private String fcmToken;
+
+    // Optional id the app sends for the install, so a rotated token replaces its
+    // predecessor instead of leaving it behind
+    @Column(name = "device_id")
+    private String deviceId;
+
+    @Column(name = "last_seen_at", nullable = false)
+    private Instant lastSeenAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private Instant createdAt;
+}
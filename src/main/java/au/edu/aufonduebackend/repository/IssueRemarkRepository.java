@@ -25,6 +25,9 @@ public interface IssueRemarkRepository extends JpaRepository<IssueRemark, Long>
     
     @Query("SELECT ir FROM IssueRemark ir WHERE ir.remarkType = 'NEW' AND ir.isViewed = false")
     List<IssueRemark> findNewUnviewedRemarks();
+
+    @Query("SELECT COUNT(ir) FROM IssueRemark ir WHERE ir.remarkType = 'NEW' AND ir.isViewed = false")
+    long countNewUnviewedRemarks();
     
     void deleteByIssue(Issue issue);
 }
\ No newline at end of file
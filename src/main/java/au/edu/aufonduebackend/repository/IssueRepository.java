@@ -2,64 +2,192 @@ package au.edu.aufonduebackend.repository;
 
 import au.edu.aufonduebackend.model.entity.Issue;
 import au.edu.aufonduebackend.model.entity.Staff;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 
 //Handles database operations for maintenance issues (CRUD)
 @Repository
 public interface IssueRepository extends JpaRepository<Issue, Long> {
-    List<Issue> findByStatus(String status);
+    // List endpoints fetch reporter and assignee in the same query (Issue.withPeople);
+    // native feed queries return ids only and are resolved through findAllByIdIn
+
+    @Override
+    @EntityGraph(Issue.WITH_PEOPLE)
+    Page<Issue> findAll(Pageable pageable);
+
+    @EntityGraph(Issue.WITH_PEOPLE)
+    List<Issue> findAllByIdIn(Collection<Long> ids);
+
+    @EntityGraph(Issue.WITH_PEOPLE)
+    Page<Issue> findByStatus(String status, Pageable pageable);
 
     List<Issue> findByReportedByIdOrderByCreatedAtDesc(Long userId);
 
     List<Issue> findAllByOrderByCreatedAtDesc();
 
     @Query(value = """
-            SELECT * FROM issues i
+            SELECT i.id FROM issues i
             WHERE i.reported_by_user_id = :userId 
             AND (:status IS NULL OR i.status = :status)
-            ORDER BY i.created_at DESC
+            ORDER BY i.created_at DESC, i.id DESC
             LIMIT :size OFFSET :offset
             """, nativeQuery = true)
-    List<Issue> findUserIssues(
+    List<Long> findUserIssueIds(
             @Param("userId") Long userId,
             @Param("status") String status,
             @Param("offset") int offset,
             @Param("size") int size
     );
 
+    // Keyset variant of findUserIssueIds: resumes strictly after (createdAt, id)
+    @Query(value = """
+            SELECT i.id FROM issues i
+            WHERE i.reported_by_user_id = :userId
+            AND (:status IS NULL OR i.status = :status)
+            AND (i.created_at, i.id) < (:createdAt, :id)
+            ORDER BY i.created_at DESC, i.id DESC
+            LIMIT :size
+            """, nativeQuery = true)
+    List<Long> findUserIssueIdsBefore(
+            @Param("userId") Long userId,
+            @Param("status") String status,
+            @Param("createdAt") Instant createdAt,
+            @Param("id") Long id,
+            @Param("size") int size
+    );
+
     @Query(value = """
-            SELECT * FROM issues i
+            SELECT i.id FROM issues i
             WHERE (:status IS NULL OR i.status = :status)
-            ORDER BY i.created_at DESC
+            ORDER BY i.created_at DESC, i.id DESC
             LIMIT :size OFFSET :offset
             """, nativeQuery = true)
-    List<Issue> findAllIssues(
+    List<Long> findAllIssueIds(
             @Param("status") String status,
             @Param("offset") int offset,
             @Param("size") int size
     );
 
+    // Keyset variant of findAllIssueIds: resumes strictly after (createdAt, id)
+    @Query(value = """
+            SELECT i.id FROM issues i
+            WHERE (:status IS NULL OR i.status = :status)
+            AND (i.created_at, i.id) < (:createdAt, :id)
+            ORDER BY i.created_at DESC, i.id DESC
+            LIMIT :size
+            """, nativeQuery = true)
+    List<Long> findAllIssueIdsBefore(
+            @Param("status") String status,
+            @Param("createdAt") Instant createdAt,
+            @Param("id") Long id,
+            @Param("size") int size
+    );
+
+    // Nearby search runs against the generated, GiST-indexed location column
+    // (see SpatialSchemaInitializer) so only index candidates are measured
     @Query(value = """
-            SELECT * FROM issues i
+            SELECT i.id AS id,
+                   ST_Distance(i.location, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)::geography) AS "distanceMeters"
+            FROM issues i
             WHERE ST_DWithin(
-                ST_MakePoint(i.longitude, i.latitude)::geography,
-                ST_MakePoint(:longitude, :latitude)::geography,
+                i.location,
+                ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)::geography,
                 :radiusMeters
             )
-            ORDER BY i.created_at DESC
+            ORDER BY i.created_at DESC, i.id DESC
+            LIMIT :limit
             """, nativeQuery = true)
-    List<Issue> findNearbyIssues(
+    List<IssueDistance> findNearbyIssueIds(
             @Param("latitude") Double latitude,
             @Param("longitude") Double longitude,
-            @Param("radiusMeters") Double radiusMeters
+            @Param("radiusMeters") Double radiusMeters,
+            @Param("limit") int limit
     );
 
+    // k-nearest-neighbour search: <-> walks the GiST index in distance order
+    @Query(value = """
+            SELECT i.id AS id,
+                   ST_Distance(i.location, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)::geography) AS "distanceMeters"
+            FROM issues i
+            WHERE i.location IS NOT NULL
+            ORDER BY i.location <-> ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)::geography
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<IssueDistance> findNearestIssueIds(
+            @Param("latitude") Double latitude,
+            @Param("longitude") Double longitude,
+            @Param("limit") int limit
+    );
+
+    // Version stamps behind the ETags of issue responses, read without loading the
+    // entities: the issue's and its remark's last update, the reporter and assignee
+    // fields the response copies, and the count and newest id of the photo renditions
+    @Query("SELECT i.id, i.updatedAt, r.updatedAt, i.assigned, i.priority, " +
+            "u.username, u.email, s.id, s.staffId, s.name, s.email, " +
+            "(SELECT COUNT(m) FROM MediaRendition m WHERE m.originalUrl IN " +
+            "(SELECT p FROM Issue pi JOIN pi.photoUrls p WHERE pi = i)), " +
+            "(SELECT MAX(m.id) FROM MediaRendition m WHERE m.originalUrl IN " +
+            "(SELECT p FROM Issue pi JOIN pi.photoUrls p WHERE pi = i)) " +
+            "FROM Issue i LEFT JOIN IssueRemark r ON r.issue = i " +
+            "LEFT JOIN i.reportedBy u LEFT JOIN i.assignedTo s " +
+            "WHERE i.id IN :ids")
+    List<Object[]> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Appends one URL without loading and rewriting the whole collection, so
+    // workers finishing uploads for the same issue do not overwrite each other
+    @Modifying
+    @Query(value = "INSERT INTO issue_photos (issue_id, photo_url) VALUES (:issueId, :url)", nativeQuery = true)
+    void addPhotoUrl(@Param("issueId") Long issueId, @Param("url") String url);
+
+    @Modifying
+    @Query(value = "INSERT INTO issue_videos (issue_id, video_url) VALUES (:issueId, :url)", nativeQuery = true)
+    void addVideoUrl(@Param("issueId") Long issueId, @Param("url") String url);
+
+    // How many issue photos, issue videos and update photos point at a blob. Blobs are
+    // content-addressed and shared, so one is only deleted once this reaches zero.
+    @Query(value = "SELECT (SELECT COUNT(*) FROM issue_photos WHERE photo_url = :url) " +
+            "+ (SELECT COUNT(*) FROM issue_videos WHERE video_url = :url) " +
+            "+ (SELECT COUNT(*) FROM update_photos WHERE photo_url = :url)", nativeQuery = true)
+    long countMediaReferences(@Param("url") String url);
+
+    // Bumps updatedAt on every issue showing the photo, e.g. once its renditions
+    // exist, so the issue's ETag moves on with its thumbnail and preview URLs
+    @Modifying
+    @Query(value = "UPDATE issues SET updated_at = :now WHERE id IN " +
+            "(SELECT issue_id FROM issue_photos WHERE photo_url = :url)", nativeQuery = true)
+    int touchByPhotoUrl(@Param("url") String url, @Param("now") Instant now);
+
+    // Holds the issue row until the transaction ends, so work that has to see the
+    // issue's other rows as they end up (e.g. its last attachment finishing) runs one
+    // at a time per issue
+    @Query(value = "SELECT id FROM issues WHERE id = :issueId FOR UPDATE", nativeQuery = true)
+    Long lockById(@Param("issueId") Long issueId);
+
+    // Bumps updatedAt after a change made with the native queries above, so ETags move on
+    @Modifying
+    @Query("UPDATE Issue i SET i.updatedAt = :now WHERE i.id = :issueId")
+    void touch(@Param("issueId") Long issueId, @Param("now") Instant now);
+
+    // Used by IssueMapService to build its in-memory index
+    @Query("SELECT i.id, i.latitude, i.longitude, i.status, i.category FROM Issue i " +
+            "WHERE i.latitude IS NOT NULL AND i.longitude IS NOT NULL")
+    List<Object[]> findMapPoints();
+
+    interface IssueDistance {
+        Long getId();
+        Double getDistanceMeters();
+    }
+
 
     // Admin Update
     @Modifying
@@ -69,21 +197,34 @@ public interface IssueRepository extends JpaRepository<Issue, Long> {
 
 
 
+    @EntityGraph(Issue.WITH_PEOPLE)
     @Query("SELECT i FROM Issue i WHERE i.assigned = false AND LOWER(i.status) != 'completed'")
-    List<Issue> findByAssignedFalse();
+    Page<Issue> findByAssignedFalse(Pageable pageable);
 
+    @EntityGraph(Issue.WITH_PEOPLE)
     @Query("SELECT i FROM Issue i WHERE i.assigned = true")
-    List<Issue> findByAssignedTrue();
+    Page<Issue> findByAssignedTrue(Pageable pageable);
 
-    List<Issue> findByAssignedTrueAndAssignedToId(Long staffId);
+    @EntityGraph(Issue.WITH_PEOPLE)
+    Page<Issue> findByAssignedTrueAndAssignedToId(Long staffId, Pageable pageable);
 
     @Query("SELECT i FROM Issue i WHERE i.id = :id AND i.assigned = false AND LOWER(i.status) != 'completed'")
     Issue getUnassignedIssueByID(@Param("id") Long id);
 
-    @Query("SELECT i FROM Issue i WHERE LOWER(i.status) = LOWER(:status)")
-    List<Issue> findCompletedIssues(@Param("status") String status);
+    // Statuses are stored uppercase; comparing the column as is lets the
+    // (status, created_at, id) index serve the page
+    @EntityGraph(Issue.WITH_PEOPLE)
+    @Query("SELECT i FROM Issue i WHERE i.status = :status")
+    Page<Issue> findCompletedIssues(@Param("status") String status, Pageable pageable);
 
     long countByStatus(String status);
+
+    // Used by IssueStatsService to reconcile its in-memory counters
+    @Query("SELECT i.status, COUNT(i) FROM Issue i GROUP BY i.status")
+    List<Object[]> countGroupedByStatus();
+
+    @Query("SELECT COUNT(i) FROM Issue i WHERE i.assigned = false AND LOWER(i.status) != 'completed'")
+    long countUnassigned();
     
     @Modifying
     @Query("UPDATE Issue i SET i.assignedTo = null, i.assigned = false WHERE i.assignedTo.id = :staffId AND LOWER(i.status) != 'completed'")
@@ -0,0 +1,52 @@
+package au.edu.aufonduebackend.repository;
+
+import au.edu.aufonduebackend.model.entity.MediaAttachment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+//Handles media waiting to be uploaded for an issue
+@Repository
+public interface MediaAttachmentRepository extends JpaRepository<MediaAttachment, Long> {
+    List<MediaAttachment> findByIssueIdOrderByIdAsc(Long issueId);
+
+    void deleteByIssueId(Long issueId);
+
+    // Moves an attachment from PENDING to UPLOADING; returns 0 if another worker got it first
+    @Modifying
+    @Query("UPDATE MediaAttachment m SET m.status = 'UPLOADING', m.attempts = m.attempts + 1 " +
+            "WHERE m.id = :id AND m.status = 'PENDING'")
+    int claim(@Param("id") Long id);
+
+    @Query("SELECT m.id FROM MediaAttachment m WHERE m.spoolNode = :node AND m.status = 'PENDING' " +
+            "AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("node") String node, @Param("now") Instant now,
+                          Pageable limit);
+
+    // Uploads cut short by a restart go back in the queue
+    @Modifying
+    @Query("UPDATE MediaAttachment m SET m.status = 'PENDING' WHERE m.spoolNode = :node AND m.status = 'UPLOADING'")
+    int requeueInterrupted(@Param("node") String node);
+
+    // Attachments that have been due for a long time without anyone picking them up:
+    // the node holding the spooled file is gone
+    @Query("SELECT m.id FROM MediaAttachment m WHERE m.status IN ('PENDING', 'UPLOADING') " +
+            "AND m.nextAttemptAt < :cutoff ORDER BY m.nextAttemptAt")
+    List<Long> findAbandonedIds(@Param("cutoff") Instant cutoff, Pageable limit);
+
+    // Gives up on an abandoned attachment; returns 0 if it moved on in the meantime
+    @Modifying
+    @Query("UPDATE MediaAttachment m SET m.status = 'FAILED', m.lastError = :error " +
+            "WHERE m.id = :id AND m.status IN ('PENDING', 'UPLOADING') AND m.nextAttemptAt < :cutoff")
+    int failAbandoned(@Param("id") Long id, @Param("cutoff") Instant cutoff, @Param("error") String error);
+
+    @Query("SELECT COUNT(m) FROM MediaAttachment m WHERE m.issue.id = :issueId " +
+            "AND m.status IN ('PENDING', 'UPLOADING')")
+    long countUnfinished(@Param("issueId") Long issueId);
+}
@@ -0,0 +1,29 @@
+package au.edu.aufonduebackend.repository;
+
+import au.edu.aufonduebackend.model.entity.MediaRendition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+//Handles thumbnail and preview renditions of uploaded photos
+@Repository
+public interface MediaRenditionRepository extends JpaRepository<MediaRendition, Long> {
+    List<MediaRendition> findByOriginalUrlIn(Collection<String> originalUrls);
+
+    Optional<MediaRendition> findByOriginalUrl(String originalUrl);
+
+    boolean existsByOriginalUrl(String originalUrl);
+
+    // Issue and update photos that have no rendition row yet, for the backfill
+    @Query(value = "SELECT p.url FROM (" +
+            "SELECT photo_url AS url FROM issue_photos " +
+            "UNION SELECT photo_url AS url FROM update_photos) p " +
+            "WHERE NOT EXISTS (SELECT 1 FROM media_renditions r WHERE r.original_url = p.url) " +
+            "LIMIT :limit", nativeQuery = true)
+    List<String> findPhotoUrlsWithoutRenditions(@Param("limit") int limit);
+}
@@ -0,0 +1,32 @@
+package au.edu.aufonduebackend.repository;
+
+import au.edu.aufonduebackend.model.entity.NotificationOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+//Handles push notifications waiting to be sent
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+    // Locks a batch of due rows for the current transaction; rows another instance
+    // has locked are skipped rather than waited on
+    @Query(value = "SELECT * FROM notification_outbox WHERE next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<NotificationOutbox> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    // Notifications for an issue's device that have not been tried yet. Rows a relay
+    // has claimed already count an attempt, so they are never pushed back.
+    @Query("SELECT MIN(o.createdAt) FROM NotificationOutbox o " +
+            "WHERE o.issueId = :issueId AND o.fcmToken = :fcmToken AND o.attempts = 0")
+    Instant findEarliestWaiting(@Param("issueId") Long issueId, @Param("fcmToken") String fcmToken);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.nextAttemptAt = :sendAt " +
+            "WHERE o.issueId = :issueId AND o.fcmToken = :fcmToken AND o.attempts = 0")
+    int reschedule(@Param("issueId") Long issueId, @Param("fcmToken") String fcmToken, @Param("sendAt") Instant sendAt);
+}
@@ -0,0 +1,40 @@
+package au.edu.aufonduebackend.repository;
+
+import au.edu.aufonduebackend.model.entity.PendingBlobDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+//Handles blobs queued for deletion
+@Repository
+public interface PendingBlobDeletionRepository extends JpaRepository<PendingBlobDeletion, Long> {
+    // Locks a batch of due rows for the current transaction; rows another instance
+    // has locked are skipped rather than waited on. A claimed row is due again once
+    // its lease is over.
+    @Query(value = "SELECT * FROM pending_blob_deletions WHERE next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PendingBlobDeletion> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    // Removes the blob's entries that no instance has claimed; a claim being taken
+    // at the same moment is waited for and then left alone
+    @Modifying
+    @Query("DELETE FROM PendingBlobDeletion d WHERE d.url = :url " +
+            "AND (d.claimedUntil IS NULL OR d.claimedUntil < :now)")
+    int deleteUnclaimedByUrl(@Param("url") String url, @Param("now") Instant now);
+
+    @Query("SELECT COUNT(d) > 0 FROM PendingBlobDeletion d WHERE d.url = :url AND d.claimedUntil >= :now")
+    boolean isClaimed(@Param("url") String url, @Param("now") Instant now);
+
+    // Releases a claimed entry for another attempt later. An update rather than a
+    // save, so an entry removed in the meantime is not written back.
+    @Modifying
+    @Query("UPDATE PendingBlobDeletion d SET d.claimedUntil = null, d.nextAttemptAt = :nextAttemptAt, " +
+            "d.lastError = :error WHERE d.id = :id")
+    int reschedule(@Param("id") Long id, @Param("nextAttemptAt") Instant nextAttemptAt,
+                   @Param("error") String error);
+}
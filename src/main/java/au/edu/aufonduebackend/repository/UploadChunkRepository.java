@@ -0,0 +1,29 @@
+package au.edu.aufonduebackend.repository;
+
+import au.edu.aufonduebackend.model.entity.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+//Handles the received chunks of resumable uploads
+@Repository
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, Long> {
+    // A chunk sent again (a client retry) just restages the same block
+    @Modifying
+    @Query(value = "INSERT INTO upload_chunks (session_id, chunk_index, size_bytes) " +
+            "VALUES (:sessionId, :chunkIndex, :sizeBytes) " +
+            "ON CONFLICT (session_id, chunk_index) DO NOTHING", nativeQuery = true)
+    void recordChunk(@Param("sessionId") String sessionId, @Param("chunkIndex") int chunkIndex,
+                     @Param("sizeBytes") long sizeBytes);
+
+    @Query("SELECT c.chunkIndex FROM UploadChunk c WHERE c.session.id = :sessionId ORDER BY c.chunkIndex")
+    List<Integer> findChunkIndexes(@Param("sessionId") String sessionId);
+
+    @Modifying
+    @Query("DELETE FROM UploadChunk c WHERE c.session.id = :sessionId")
+    void deleteBySessionId(@Param("sessionId") String sessionId);
+}
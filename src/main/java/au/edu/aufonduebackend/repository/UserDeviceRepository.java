@@ -0,0 +1,49 @@
+package au.edu.aufonduebackend.repository;
+
+import au.edu.aufonduebackend.model.entity.UserDevice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+//Handles the devices users receive push notifications on
+@Repository
+public interface UserDeviceRepository extends JpaRepository<UserDevice, Long> {
+    Optional<UserDevice> findByFcmToken(String fcmToken);
+
+    Optional<UserDevice> findByUserIdAndDeviceId(Long userId, String deviceId);
+
+    @Query("SELECT d.fcmToken FROM UserDevice d WHERE d.user.id = :userId ORDER BY d.lastSeenAt DESC")
+    List<String> findTokensByUserId(@Param("userId") Long userId);
+
+    // Registers the token for the user in one statement, moving it over if another
+    // row holds it, so two first registrations racing on the unique index both land
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_devices (user_id, fcm_token, device_id, last_seen_at, created_at)
+            VALUES (:userId, :fcmToken, :deviceId, :now, :now)
+            ON CONFLICT (fcm_token) DO UPDATE SET user_id = EXCLUDED.user_id,
+                device_id = COALESCE(EXCLUDED.device_id, user_devices.device_id),
+                last_seen_at = EXCLUDED.last_seen_at
+            """, nativeQuery = true)
+    void upsert(@Param("userId") Long userId, @Param("fcmToken") String fcmToken,
+                @Param("deviceId") String deviceId, @Param("now") Instant now);
+
+    // Only last_seen_at, for a device that registered again with nothing changed
+    @Modifying
+    @Query("UPDATE UserDevice d SET d.lastSeenAt = :now WHERE d.id = :id")
+    void touch(@Param("id") Long id, @Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM UserDevice d WHERE d.user.id = :userId AND d.fcmToken = :fcmToken")
+    int deleteByUserIdAndFcmToken(@Param("userId") Long userId, @Param("fcmToken") String fcmToken);
+
+    @Modifying
+    @Query("DELETE FROM UserDevice d WHERE d.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -2,6 +2,9 @@ package au.edu.aufonduebackend.repository;
 
 import au.edu.aufonduebackend.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
@@ -9,4 +12,9 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Takes a push token off the single-token column of everyone but its new owner
+    @Modifying
+    @Query("UPDATE User u SET u.fcmToken = null WHERE u.fcmToken = :fcmToken AND u.id <> :userId")
+    int clearFcmTokenOfOthers(@Param("fcmToken") String fcmToken, @Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package au.edu.aufonduebackend.service;
+
+import java.util.Collection;
+
+// Deletes media blobs in the background, in batches, retrying failures
+public interface BlobDeletionService {
+    // Queues the blobs for deletion once the grace period is over. Inside a
+    // transaction the queue entries commit or roll back with it. Blobs referenced by
+    // an issue or update when their turn comes (identical uploads share a blob) are
+    // kept.
+    void scheduleDeletion(Collection<String> fileUrls);
+
+    // Takes the blob off the queue because it is in use again. A deletion already
+    // under way cannot be stopped, and is reported as IN_PROGRESS instead.
+    Cancellation cancelDeletion(String fileUrl);
+
+    // Deletes up to one batch of due blobs and returns how many queue entries were handled
+    int processBatch();
+
+    enum Cancellation {
+        // nothing was queued for the blob
+        NOT_QUEUED,
+        // it was queued and now will not be deleted
+        CANCELLED,
+        // an instance is deleting it right now: it may be gone at any moment
+        IN_PROGRESS
+    }
+}
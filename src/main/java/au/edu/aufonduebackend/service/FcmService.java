@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -13,23 +14,61 @@ public class FcmService {
 
     private static final Logger logger = LoggerFactory.getLogger(FcmService.class);
 
-    public boolean sendIssueUpdateNotification(String fcmToken, Long issueId, String status, String comment) {
+    // Issue update messages are built per device and sent in batches by the
+    // notification outbox through sendEach
+    public Message buildIssueUpdateMessage(String fcmToken, Long issueId, String status, String comment) {
+        Map<String, String> data = new HashMap<>();
+        data.put("issueId", issueId.toString());
+        data.put("updateType", "status_update");
+        data.put("status", status);
+        if (comment != null) {
+            data.put("comment", comment);
+        }
+
+        String title = getNotificationTitle(status);
+        String body = getNotificationBody(status, comment);
+
+        return Message.builder()
+                .setToken(fcmToken)
+                .setNotification(Notification.builder()
+                        .setTitle(title)
+                        .setBody(body)
+                        .build())
+                .putAllData(data)
+                .setAndroidConfig(AndroidConfig.builder()
+                        .setNotification(AndroidNotification.builder()
+                                .setIcon("ic_notification")
+                                .setChannelId("au_fondue_notifications")
+                                .setPriority(AndroidNotification.Priority.HIGH)
+                                .build())
+                        .build())
+                .build();
+    }
+
+    // Up to 500 messages in one call; the responses are in the same order as the
+    // messages. Throws only if the batch as a whole could not be sent.
+    public BatchResponse sendEach(List<Message> messages) throws FirebaseMessagingException {
+        return FirebaseMessaging.getInstance().sendEach(messages);
+    }
+
+    // Tells the reporter that the photos and videos sent with an issue have finished
+    // processing, on every device they have registered
+    public boolean sendMediaReadyNotification(List<String> fcmTokens, Long issueId, int readyCount, int failedCount) {
         try {
             Map<String, String> data = new HashMap<>();
             data.put("issueId", issueId.toString());
-            data.put("updateType", "status_update");
-            data.put("status", status);
-            if (comment != null) {
-                data.put("comment", comment);
-            }
+            data.put("updateType", "media_ready");
+            data.put("readyCount", String.valueOf(readyCount));
+            data.put("failedCount", String.valueOf(failedCount));
 
-            String title = getNotificationTitle(status);
-            String body = getNotificationBody(status, comment);
+            String body = failedCount == 0
+                    ? "Your photos and videos have been added to your report"
+                    : String.format("%d of %d files could not be added to your report", failedCount, readyCount + failedCount);
 
-            Message message = Message.builder()
-                    .setToken(fcmToken)
+            MulticastMessage message = MulticastMessage.builder()
+                    .addAllTokens(fcmTokens)
                     .setNotification(Notification.builder()
-                            .setTitle(title)
+                            .setTitle("Media Uploaded")
                             .setBody(body)
                             .build())
                     .putAllData(data)
@@ -37,25 +76,22 @@ public class FcmService {
                             .setNotification(AndroidNotification.builder()
                                     .setIcon("ic_notification")
                                     .setChannelId("au_fondue_notifications")
-                                    .setPriority(AndroidNotification.Priority.HIGH)
                                     .build())
                             .build())
                     .build();
 
-            String response = FirebaseMessaging.getInstance().send(message);
-            logger.info("Successfully sent message: {}", response);
-            return true;
+            return sendMulticast(message, fcmTokens.size(), "media ready");
 
         } catch (Exception e) {
-            logger.error("Error sending FCM notification to token: {}", fcmToken, e);
+            logger.error("Error sending media ready notification for issue {}", issueId, e);
             return false;
         }
     }
 
-    public boolean sendTestNotification(String fcmToken, String title, String body) {
+    public boolean sendTestNotification(List<String> fcmTokens, String title, String body) {
         try {
-            Message message = Message.builder()
-                    .setToken(fcmToken)
+            MulticastMessage message = MulticastMessage.builder()
+                    .addAllTokens(fcmTokens)
                     .setNotification(Notification.builder()
                             .setTitle(title)
                             .setBody(body)
@@ -69,9 +105,7 @@ public class FcmService {
                             .build())
                     .build();
 
-            String response = FirebaseMessaging.getInstance().send(message);
-            logger.info("Successfully sent test message: {}", response);
-            return true;
+            return sendMulticast(message, fcmTokens.size(), "test");
 
         } catch (Exception e) {
             logger.error("Error sending test FCM notification", e);
@@ -79,6 +113,16 @@ public class FcmService {
         }
     }
 
+    // One call for all of a user's devices (up to 500); counts as sent if any device got it
+    private boolean sendMulticast(MulticastMessage message, int deviceCount, String kind) throws FirebaseMessagingException {
+        BatchResponse response = FirebaseMessaging.getInstance().sendEachForMulticast(message);
+        if (response.getFailureCount() > 0) {
+            logger.warn("{} of {} devices did not receive the {} message", response.getFailureCount(), deviceCount, kind);
+        }
+        logger.info("Successfully sent {} message to {} devices", kind, response.getSuccessCount());
+        return response.getSuccessCount() > 0;
+    }
+
     private String getNotificationTitle(String status) {
         switch (status.toUpperCase()) {
             case "IN_PROGRESS":
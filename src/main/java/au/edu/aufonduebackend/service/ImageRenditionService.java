@@ -0,0 +1,22 @@
+package au.edu.aufonduebackend.service;
+
+import au.edu.aufonduebackend.model.entity.MediaRendition;
+import org.springframework.core.io.InputStreamSource;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Small (thumbnail) and medium (preview) JPEG copies of uploaded photos, so grids
+// and feeds do not have to download the full-resolution original
+public interface ImageRenditionService {
+    // Writes the renditions of a freshly uploaded photo next to the original. Never
+    // throws: a photo that cannot be decoded just keeps serving the original.
+    void createRenditions(InputStreamSource photo, String originalUrl);
+
+    // Renditions keyed by original URL, in one query; photos without any are absent
+    Map<String, MediaRendition> findByOriginalUrls(Collection<String> originalUrls);
+
+    // Generates renditions for up to limit existing photos that have none yet and
+    // returns how many photos were processed
+    int backfill(int limit);
+}
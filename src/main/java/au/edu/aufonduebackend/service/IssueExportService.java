@@ -0,0 +1,13 @@
+package au.edu.aufonduebackend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+
+// Streams every matching issue to the given output, one row at a time
+public interface IssueExportService {
+    String FORMAT_NDJSON = "ndjson";
+    String FORMAT_CSV = "csv";
+
+    void exportIssues(String format, String status, Instant from, Instant to, OutputStream out) throws IOException;
+}
@@ -0,0 +1,17 @@
+package au.edu.aufonduebackend.service;
+
+import au.edu.aufonduebackend.model.dto.response.IssueClusterResponse;
+import au.edu.aufonduebackend.model.entity.Issue;
+
+// Clustered view of issue locations for the map, served from an in-memory index.
+// Writers report changes as they happen; they reach the index once the surrounding
+// transaction commits.
+public interface IssueMapService {
+    IssueClusterResponse getClusters(double minLat, double minLon, double maxLat, double maxLon, int zoom);
+
+    void issueSaved(Issue issue);
+    void issueDeleted(Long issueId);
+    void statusChanged(Long issueId, String status);
+
+    void reload();
+}
@@ -1,7 +1,10 @@
 package au.edu.aufonduebackend.service;
 
 import au.edu.aufonduebackend.model.dto.request.IssueRequest;
+import au.edu.aufonduebackend.model.dto.response.CursorPage;
 import au.edu.aufonduebackend.model.dto.response.IssueResponse;
+import au.edu.aufonduebackend.model.dto.response.MediaAttachmentResponse;
+import au.edu.aufonduebackend.model.dto.response.PageResponse;
 import au.edu.aufonduebackend.model.entity.Issue;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.List;
@@ -9,26 +12,39 @@ import java.util.List;
 public interface IssueService {
     // Create and modify operations
     IssueResponse createIssue(IssueRequest request, List<MultipartFile> photos, List<MultipartFile> videos);
+    // Stores the issue straight away; its media is uploaded in the background
+    IssueResponse createIssueWithPendingMedia(IssueRequest request, List<MultipartFile> photos, List<MultipartFile> videos);
+    List<MediaAttachmentResponse> getIssueMedia(Long issueId);
     IssueResponse updateIssue(Long id, IssueRequest request);
     void deleteIssue(Long id);
 
     // Query operations
-    List<IssueResponse> getAllIssues(int page, int size, String status);
+    PageResponse<IssueResponse> getAllIssues(int page, int size, String status);
     List<IssueResponse> getUserSubmittedIssues(Long userId, int page, int size, String status);
     List<IssueResponse> getAllIssuesTracking(int page, int size, String status);
+    CursorPage<IssueResponse> getUserSubmittedIssues(Long userId, String cursor, int size, String status);
+    CursorPage<IssueResponse> getAllIssuesTracking(String cursor, int size, String status);
     IssueResponse getIssueById(Long id);
-    List<IssueResponse> getNearbyIssues(Double latitude, Double longitude, Double radiusKm);
+
+    // Weak ETags matching the responses of the methods above; null if none can be computed
+    String getIssueETag(Long id);
+    String getUserSubmittedIssuesETag(Long userId, int page, int size, String status);
+    String getUserSubmittedIssuesETag(Long userId, String cursor, int size, String status);
+    String getAllIssuesTrackingETag(int page, int size, String status);
+    String getAllIssuesTrackingETag(String cursor, int size, String status);
+    List<IssueResponse> getNearbyIssues(Double latitude, Double longitude, Double radiusKm, int limit);
+    List<IssueResponse> getNearestIssues(Double latitude, Double longitude, int limit);
 
 
     // TEST EDIT BY MATT
     void assignIssueToStaff(Long issueId, Long staffId, String priority);
 
-    List<IssueResponse> getUnassignedIssues(int page, int size);
+    PageResponse<IssueResponse> getUnassignedIssues(int page, int size);
 
-    List<IssueResponse> getAssignedIssues(int page, int size);
-    List<IssueResponse> getAssignedIssuesByStaff(Long staffId, int page, int size);
+    PageResponse<IssueResponse> getAssignedIssues(int page, int size);
+    PageResponse<IssueResponse> getAssignedIssuesByStaff(Long staffId, int page, int size);
     IssueResponse getUnassignedIssueByID(Long id);
-    List<IssueResponse>getCompletedIssues();
+    PageResponse<IssueResponse> getCompletedIssues(int page, int size);
 
 
 
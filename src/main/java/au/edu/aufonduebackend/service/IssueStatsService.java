@@ -0,0 +1,19 @@
+package au.edu.aufonduebackend.service;
+
+import java.util.Map;
+
+// Dashboard counters kept in memory. Writers report changes as they happen; the
+// deltas are applied once the surrounding transaction commits.
+public interface IssueStatsService {
+    Map<String, Long> getStats();
+
+    void issueCreated(String status, boolean assigned);
+    void issueDeleted(String status, boolean assigned, boolean hadUnviewedNewRemark);
+    void statusChanged(String oldStatus, String newStatus, boolean assigned);
+    void assignmentChanged(String status, boolean wasAssigned, boolean nowAssigned);
+    void unviewedNewRemarksChanged(long delta);
+
+    // For bulk updates that are not worth tracking row by row
+    void reconcileAfterCommit();
+    void reconcile();
+}
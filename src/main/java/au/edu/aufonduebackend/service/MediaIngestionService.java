@@ -0,0 +1,27 @@
+package au.edu.aufonduebackend.service;
+
+import au.edu.aufonduebackend.model.dto.response.MediaAttachmentResponse;
+import au.edu.aufonduebackend.model.entity.Issue;
+import au.edu.aufonduebackend.model.entity.MediaAttachment;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+// Deferred media for issues created in async mode: files are spooled to local disk
+// with the request and uploaded afterwards by a background worker pool
+public interface MediaIngestionService {
+    // Copies the files to the spool directory and returns unsaved PENDING attachments
+    List<MediaAttachment> spool(List<MultipartFile> photos, List<MultipartFile> videos);
+
+    // Stores the attachments against a newly saved issue; the worker pool gets them
+    // once the surrounding transaction commits
+    List<MediaAttachmentResponse> register(Issue issue, List<MediaAttachment> attachments);
+
+    // Removes spooled files whose issue was never stored
+    void discardSpooled(List<MediaAttachment> attachments);
+
+    // Removes the attachments of an issue being deleted, along with their spooled files
+    void discardForIssue(Long issueId);
+
+    List<MediaAttachmentResponse> getAttachments(Long issueId);
+}
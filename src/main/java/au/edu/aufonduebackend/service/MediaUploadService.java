@@ -0,0 +1,24 @@
+package au.edu.aufonduebackend.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+// Uploads a request's media before its database transaction starts
+public interface MediaUploadService {
+    // Uploads the files in parallel and returns their URLs in the same order. If any
+    // upload fails, the ones that succeeded are deleted before the error is thrown.
+    List<String> uploadAll(List<MultipartFile> files);
+
+    // Uploads one file and returns its URL. An identical file may already be stored
+    // and queued for deletion; the queue entry is cancelled and, if the deletion got
+    // there first, the file is uploaded again.
+    String store(MultipartFile file);
+
+    // Queues blobs that no issue or update may reference any more (an upload whose
+    // database write did not happen, or media of a deleted issue) for background
+    // deletion. Called inside a transaction, the queue entries commit with it.
+    // Blobs are shared between identical files, so ones still referenced when the
+    // deletion runs are kept. Failures are logged, never thrown.
+    void deleteQuietly(List<String> fileUrls);
+}
@@ -0,0 +1,28 @@
+package au.edu.aufonduebackend.service;
+
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Collects outgoing push notifications for a short window (or until a batch is
+// full) and sends each batch in one FCM call
+public interface NotificationBatcher {
+    // Queues a message; the future completes with its own result once its batch has
+    // been sent. Never completes exceptionally.
+    CompletableFuture<Outcome> submit(Message message);
+
+    // Batches, messages sent and failed, queue depth and timings
+    Map<String, Long> getStats();
+
+    record Outcome(boolean sent, String messageId, MessagingErrorCode errorCode, String error) {
+        public static Outcome sent(String messageId) {
+            return new Outcome(true, messageId, null, null);
+        }
+
+        public static Outcome failed(MessagingErrorCode errorCode, String error) {
+            return new Outcome(false, null, errorCode, error);
+        }
+    }
+}
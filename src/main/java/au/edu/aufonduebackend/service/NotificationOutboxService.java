@@ -0,0 +1,14 @@
+package au.edu.aufonduebackend.service;
+
+import au.edu.aufonduebackend.model.entity.Update;
+import au.edu.aufonduebackend.model.entity.User;
+
+public interface NotificationOutboxService {
+    // Queues the update's push notification to each of the recipient's devices and
+    // returns how many there were. Call inside the transaction that saves the
+    // update: nothing is sent before that commits.
+    int enqueue(Update update, User recipient);
+
+    // Sends one batch of due notifications; returns how many rows were claimed
+    int processBatch();
+}
@@ -0,0 +1,33 @@
+package au.edu.aufonduebackend.service;
+
+import au.edu.aufonduebackend.model.dto.request.UploadSessionRequest;
+import au.edu.aufonduebackend.model.dto.response.UploadSessionResponse;
+import au.edu.aufonduebackend.model.entity.UploadSession;
+
+import java.io.InputStream;
+import java.util.List;
+
+// Resumable uploads for large media on unreliable connections: create a session,
+// send numbered chunks (any order, retries allowed), check which arrived, commit.
+// Direct uploads skip this service's bandwidth altogether: the client gets a
+// short-lived URL, sends the file to blob storage, then commits.
+public interface ResumableUploadService {
+    UploadSessionResponse createSession(UploadSessionRequest request);
+
+    // The response carries the upload URL and the headers to send with it
+    UploadSessionResponse createDirectSession(UploadSessionRequest request);
+
+    // length must match the chunk's size: chunkSize, or the remainder for the last one
+    UploadSessionResponse receiveChunk(String uploadId, int chunkIndex, InputStream data, long length);
+
+    UploadSessionResponse getSession(String uploadId);
+
+    // Assembles the chunks into the final blob, or for a direct upload checks that the
+    // blob arrived with the declared size and type; committing again is a no-op
+    UploadSessionResponse commit(String uploadId);
+
+    // The committed uploads an issue refers to, in the given order; fails if any is
+    // unknown, not committed yet, expired or belongs to someone else. Direct uploads
+    // not committed yet are committed here.
+    List<UploadSession> getCommittedUploads(List<String> uploadIds, String ownerEmail);
+}
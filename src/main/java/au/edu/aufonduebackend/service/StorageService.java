@@ -4,7 +4,48 @@ package au.edu.aufonduebackend.service;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
 public interface StorageService {
     String uploadFile(MultipartFile file);
+
+    // Stores the file under the given name instead of its content hash, e.g. when
+    // the shared copy is being deleted
+    String uploadFile(MultipartFile file, String blobName);
     void deleteFile(String fileUrl);
-}
\ No newline at end of file
+
+    // Deletes many files at once and returns the error for each one that could not
+    // be deleted; a file that is already gone counts as deleted
+    Map<String, String> deleteFiles(Collection<String> fileUrls);
+
+    // Stores a file generated from an existing upload (e.g. a thumbnail) under the
+    // original's name plus the given suffix, and returns its URL
+    String uploadDerivedFile(String originalUrl, String suffix, byte[] data, String contentType);
+
+    InputStream openFile(String fileUrl);
+
+    // Resumable uploads: chunks are stored against the blob name as they arrive, in
+    // any order and from any instance, then committed in index order as one file
+    void stageChunk(String blobName, int chunkIndex, InputStream data, long length);
+    String commitChunks(String blobName, int chunkCount, String contentType);
+
+    // Direct uploads: a URL the client can PUT the file to itself, allowed to create
+    // or overwrite just that one blob until it expires, so the bytes never pass
+    // through this service
+    String createUploadUrl(String blobName, Duration validFor);
+
+    // Direct uploads, once sent: moves the file to a name only this service writes
+    // to, so the upload URL (valid for a while yet) cannot replace it after it has
+    // been checked. Empty if nothing was sent.
+    Optional<StoredFile> claimUpload(String blobName, String finalName);
+
+    // What is stored under a name, or empty if nothing is
+    Optional<StoredFile> describeFile(String blobName);
+
+    record StoredFile(String url, long size, String contentType) {
+    }
+}
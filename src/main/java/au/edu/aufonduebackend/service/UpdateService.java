@@ -2,6 +2,7 @@ package au.edu.aufonduebackend.service;
 
 
 import au.edu.aufonduebackend.model.dto.request.UpdateRequest;
+import au.edu.aufonduebackend.model.dto.response.NotificationStatusResponse;
 import au.edu.aufonduebackend.model.dto.response.UpdateResponse;
 import au.edu.aufonduebackend.model.entity.Update;
 import org.springframework.web.multipart.MultipartFile;
@@ -11,4 +12,7 @@ import java.util.List;
 public interface UpdateService {
      UpdateResponse createUpdate(UpdateRequest request, List<MultipartFile> photos);
      List<UpdateResponse> getUpdatesByIssueId(Long issueId);
+
+     // Whether the reporter's push notification for an update has gone out yet
+     NotificationStatusResponse getNotificationStatus(Long updateId);
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package au.edu.aufonduebackend.service;
+
+import java.util.Map;
+
+// Caps the bytes of multipart uploads being received at once, overall and per
+// client, so a burst of video reports cannot exhaust heap, temp disk and threads
+public interface UploadAdmissionService {
+    // Reserves room for a request body, waiting briefly if there is none; returns
+    // null if there still is none, in which case the request should be turned away
+    Permit tryAdmit(String clientKey, long bytes);
+
+    // Current and cumulative figures: in-flight, queued, admitted and rejected
+    // requests and bytes, plus the configured limits
+    Map<String, Long> getStats();
+
+    // Gives the reserved bytes back; closing twice is harmless
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
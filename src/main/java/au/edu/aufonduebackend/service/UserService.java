@@ -2,11 +2,17 @@ package au.edu.aufonduebackend.service;
 
 import au.edu.aufonduebackend.model.entity.User;
 
+import java.util.List;
+
 public interface UserService {
     User createUserAfterAuthentication(String username, String email);
 
     // ADD THESE NEW METHODS FOR FCM
-    User updateFcmToken(String email, String fcmToken);
-    User removeFcmToken(String email);
+    // Registers the token as one of the user's devices; deviceId may be null
+    User updateFcmToken(String email, String fcmToken, String deviceId);
+    // Removes one device, or every device of the user when fcmToken is null
+    User removeFcmToken(String email, String fcmToken);
+    // Tokens of every device the user has registered, most recently seen first
+    List<String> getFcmTokens(Long userId);
     User findByEmail(String email);
 }
\ No newline at end of file
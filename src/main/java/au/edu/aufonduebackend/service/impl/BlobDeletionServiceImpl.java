@@ -0,0 +1,245 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.entity.MediaRendition;
+import au.edu.aufonduebackend.model.entity.PendingBlobDeletion;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.repository.MediaRenditionRepository;
+import au.edu.aufonduebackend.repository.PendingBlobDeletionRepository;
+import au.edu.aufonduebackend.service.BlobDeletionService;
+import au.edu.aufonduebackend.service.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// A queued blob only becomes due after a grace period, long enough for any
+// request that was handed the same (content-addressed) URL at the time to have
+// committed its reference. A batch is then claimed in one short transaction
+// (FOR UPDATE SKIP LOCKED, so instances never take the same rows): rows are
+// rechecked for references and the rest get a lease. The blobs are deleted with no
+// transaction open, and the rows removed or rescheduled in a second short one. An
+// upload that lands on a queued blob cancels the row if it is not claimed yet, and
+// keeps a copy of its own if it is (MediaUploadService#store).
+@Service
+public class BlobDeletionServiceImpl implements BlobDeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobDeletionServiceImpl.class);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(6);
+    // far longer than deleting a batch takes; rows of an instance that dies
+    // mid-batch come round again once it runs out
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final PendingBlobDeletionRepository deletionRepository;
+    private final IssueRepository issueRepository;
+    private final MediaRenditionRepository renditionRepository;
+    private final StorageService storageService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor blobDeletionExecutor;
+
+    @Value("${media.deletion.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${media.deletion.grace-period-seconds:3600}")
+    private long gracePeriodSeconds = 3600;
+
+    @Value("${media.deletion.retry-delay-seconds:30}")
+    private long retryDelaySeconds = 30;
+
+    public BlobDeletionServiceImpl(PendingBlobDeletionRepository deletionRepository,
+                                   IssueRepository issueRepository,
+                                   MediaRenditionRepository renditionRepository,
+                                   StorageService storageService,
+                                   TransactionTemplate transactionTemplate,
+                                   @Qualifier("blobDeletionExecutor") Executor blobDeletionExecutor) {
+        this.deletionRepository = deletionRepository;
+        this.issueRepository = issueRepository;
+        this.renditionRepository = renditionRepository;
+        this.storageService = storageService;
+        this.transactionTemplate = transactionTemplate;
+        this.blobDeletionExecutor = blobDeletionExecutor;
+    }
+
+    @Override
+    public void scheduleDeletion(Collection<String> fileUrls) {
+        if (fileUrls == null || fileUrls.isEmpty()) {
+            return;
+        }
+        // the same blob can appear twice, e.g. a photo attached to an issue and its update
+        List<PendingBlobDeletion> rows = new ArrayList<>();
+        Instant due = Instant.now().plusSeconds(gracePeriodSeconds);
+        for (String fileUrl : new LinkedHashSet<>(fileUrls)) {
+            PendingBlobDeletion row = new PendingBlobDeletion();
+            row.setUrl(fileUrl);
+            row.setNextAttemptAt(due);
+            rows.add(row);
+        }
+        deletionRepository.saveAll(rows);
+    }
+
+    @Override
+    public Cancellation cancelDeletion(String fileUrl) {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            int cancelled = deletionRepository.deleteUnclaimedByUrl(fileUrl, now);
+            if (deletionRepository.isClaimed(fileUrl, now)) {
+                return Cancellation.IN_PROGRESS;
+            }
+            return cancelled > 0 ? Cancellation.CANCELLED : Cancellation.NOT_QUEUED;
+        });
+    }
+
+    // One drain task at a time is enough: it keeps going until nothing is due. If
+    // the executor turns it away, one is already waiting and will see the same rows.
+    private void startDraining() {
+        try {
+            blobDeletionExecutor.execute(this::drain);
+        } catch (TaskRejectedException e) {
+            logger.debug("Blob deletion already queued, leaving the rest to it");
+        }
+    }
+
+    private void drain() {
+        try {
+            while (processBatch() == batchSize) {
+                // a full batch means there may be more waiting
+            }
+        } catch (Exception e) {
+            logger.error("Blob deletion failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int processBatch() {
+        Batch batch = transactionTemplate.execute(status -> claimDue(Instant.now()));
+        if (batch == null || batch.claimed() == 0) {
+            return 0;
+        }
+        if (batch.rowsByUrl().isEmpty()) {
+            return batch.claimed();
+        }
+
+        // No transaction or row lock is held while storage is called
+        List<String> blobUrls = new ArrayList<>(batch.rowsByUrl().keySet());
+        for (MediaRendition rendition : batch.renditions().values()) {
+            if (rendition.getSmallUrl() != null) {
+                blobUrls.add(rendition.getSmallUrl());
+            }
+            if (rendition.getMediumUrl() != null) {
+                blobUrls.add(rendition.getMediumUrl());
+            }
+        }
+        Map<String, String> failures = storageService.deleteFiles(blobUrls);
+
+        transactionTemplate.executeWithoutResult(status -> finish(batch, failures));
+        return batch.claimed();
+    }
+
+    // Locks due rows just long enough to recheck them and take a lease: rows whose
+    // blob is referenced again are dropped, the rest are claimed for this instance
+    private Batch claimDue(Instant now) {
+        List<PendingBlobDeletion> due = deletionRepository.lockDue(now, batchSize);
+        if (due.isEmpty()) {
+            return new Batch(0, Map.of(), Map.of());
+        }
+
+        // A blob shared with a newer upload may have been referenced again since it was queued
+        Map<String, List<PendingBlobDeletion>> rowsByUrl = new LinkedHashMap<>();
+        List<Long> kept = new ArrayList<>();
+        List<PendingBlobDeletion> claimed = new ArrayList<>();
+        for (PendingBlobDeletion row : due) {
+            row.setAttempts(row.getAttempts() + 1);
+            if (!rowsByUrl.containsKey(row.getUrl()) && issueRepository.countMediaReferences(row.getUrl()) > 0) {
+                kept.add(row.getId());
+                continue;
+            }
+            row.setClaimedUntil(now.plus(LEASE));
+            row.setNextAttemptAt(now.plus(LEASE));
+            rowsByUrl.computeIfAbsent(row.getUrl(), url -> new ArrayList<>()).add(row);
+            claimed.add(row);
+        }
+        deletionRepository.saveAll(claimed);
+        deletionRepository.deleteAllByIdInBatch(kept);
+
+        // Renditions go in the same batch as their originals
+        Map<String, MediaRendition> renditions = new LinkedHashMap<>();
+        if (!rowsByUrl.isEmpty()) {
+            for (MediaRendition rendition : renditionRepository.findByOriginalUrlIn(rowsByUrl.keySet())) {
+                renditions.put(rendition.getOriginalUrl(), rendition);
+            }
+        }
+        return new Batch(due.size(), rowsByUrl, renditions);
+    }
+
+    // Removes the rows whose blobs are gone and releases the rest for a retry
+    private void finish(Batch batch, Map<String, String> failures) {
+        List<Long> finished = new ArrayList<>();
+        List<MediaRendition> deletedRenditions = new ArrayList<>();
+        int failed = 0;
+        for (Map.Entry<String, List<PendingBlobDeletion>> entry : batch.rowsByUrl().entrySet()) {
+            MediaRendition rendition = batch.renditions().get(entry.getKey());
+            String error = failures.get(entry.getKey());
+            if (error == null && rendition != null) {
+                error = renditionError(rendition, failures);
+            }
+            if (error == null) {
+                entry.getValue().forEach(row -> finished.add(row.getId()));
+                if (rendition != null) {
+                    deletedRenditions.add(rendition);
+                }
+            } else {
+                String lastError = error.length() > 1000 ? error.substring(0, 1000) : error;
+                for (PendingBlobDeletion row : entry.getValue()) {
+                    deletionRepository.reschedule(row.getId(), Instant.now().plus(backoff(row.getAttempts())), lastError);
+                    failed++;
+                }
+            }
+        }
+
+        deletionRepository.deleteAllByIdInBatch(finished);
+        renditionRepository.deleteAllInBatch(deletedRenditions);
+        if (failed > 0) {
+            logger.warn("{} of {} blob deletions failed and will be retried", failed, batch.claimed());
+        }
+    }
+
+    private static String renditionError(MediaRendition rendition, Map<String, String> failures) {
+        for (String url : new String[]{rendition.getSmallUrl(), rendition.getMediumUrl()}) {
+            if (url != null && failures.containsKey(url)) {
+                return failures.get(url);
+            }
+        }
+        return null;
+    }
+
+    private record Batch(int claimed, Map<String, List<PendingBlobDeletion>> rowsByUrl,
+                         Map<String, MediaRendition> renditions) {
+    }
+
+    // 30s, 1m, 2m, ... capped at 6h: a blob left over a while longer only costs storage
+    private Duration backoff(int attempts) {
+        Duration delay = Duration.ofSeconds(retryDelaySeconds).multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    // Picks up queue entries once their grace period or retry delay is over. The
+    // drain runs on its own thread, so a long batch never holds up the scheduler.
+    @Scheduled(fixedDelayString = "${media.deletion.poll-interval-ms:60000}",
+            initialDelayString = "${media.deletion.poll-interval-ms:60000}")
+    public void pollDue() {
+        startDraining();
+    }
+}
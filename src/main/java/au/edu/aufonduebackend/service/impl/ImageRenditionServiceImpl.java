@@ -0,0 +1,219 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.entity.MediaRendition;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.repository.MediaRenditionRepository;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.StorageService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOException;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class ImageRenditionServiceImpl implements ImageRenditionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageRenditionServiceImpl.class);
+    static final String SMALL_SUFFIX = "_small.jpg";
+    static final String MEDIUM_SUFFIX = "_medium.jpg";
+    private static final String JPEG = "image/jpeg";
+
+    private final MediaRenditionRepository renditionRepository;
+    private final IssueRepository issueRepository;
+    private final StorageService storageService;
+    private final TransactionTemplate transactionTemplate;
+
+    // longest side in pixels
+    @Value("${media.renditions.small-size-px:200}")
+    private int smallSizePx = 200;
+
+    @Value("${media.renditions.medium-size-px:800}")
+    private int mediumSizePx = 800;
+
+    @Value("${media.renditions.jpeg-quality:0.8}")
+    private float jpegQuality = 0.8f;
+
+    @Value("${media.renditions.backfill.enabled:false}")
+    private boolean backfillEnabled;
+
+    @Value("${media.renditions.backfill.batch-size:50}")
+    private int backfillBatchSize = 50;
+
+    @Override
+    public void createRenditions(InputStreamSource photo, String originalUrl) {
+        try {
+            // identical photos share a blob, and with it the renditions made the first time
+            if (renditionRepository.existsByOriginalUrl(originalUrl)) {
+                return;
+            }
+            render(photo, originalUrl);
+        } catch (Exception e) {
+            // the backfill will try again later
+            logger.warn("Could not create renditions for {}: {}", originalUrl, e.getMessage());
+        }
+    }
+
+    // Returns whether the photo got renditions. Only a file ImageIO cannot read is
+    // recorded as unsupported; anything else (reading the photo, storing the
+    // renditions) is thrown and leaves the photo for a later attempt.
+    private boolean render(InputStreamSource photo, String originalUrl) throws IOException {
+        int orientation;
+        BufferedImage decoded;
+        try (InputStream data = photo.getInputStream()) {
+            orientation = ImageResizer.readOrientation(data);
+        }
+        try (InputStream data = photo.getInputStream()) {
+            // subsample no further than twice the medium size, so both renditions stay sharp
+            decoded = decode(data, originalUrl);
+        }
+        if (decoded == null) {
+            saveRendition(originalUrl, null, null, MediaRendition.Status.UNSUPPORTED);
+            return false;
+        }
+
+        BufferedImage medium = ImageResizer.orient(ImageResizer.fit(decoded, mediumSizePx), orientation);
+        BufferedImage small = ImageResizer.fit(medium, smallSizePx);
+        String mediumUrl = storageService.uploadDerivedFile(originalUrl, MEDIUM_SUFFIX,
+                ImageResizer.toJpeg(medium, jpegQuality), JPEG);
+        String smallUrl;
+        try {
+            smallUrl = storageService.uploadDerivedFile(originalUrl, SMALL_SUFFIX,
+                    ImageResizer.toJpeg(small, jpegQuality), JPEG);
+        } catch (IOException | RuntimeException e) {
+            removeOrphan(originalUrl, mediumUrl);
+            throw e;
+        }
+        saveRendition(originalUrl, smallUrl, mediumUrl, MediaRendition.Status.READY);
+        return true;
+    }
+
+    // A format ImageIO does not know gives null; a known format it fails to read
+    // (corrupt or truncated data) throws from inside ImageIO, and is no better
+    private BufferedImage decode(InputStream data, String originalUrl) throws IOException {
+        try {
+            return ImageResizer.decode(data, mediumSizePx * 2);
+        } catch (IIOException | RuntimeException e) {
+            logger.warn("Could not decode {}: {}", originalUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    // Derived names are fixed per original, so a medium rendition whose small one
+    // failed is only removed if no other attempt has recorded it since
+    private void removeOrphan(String originalUrl, String mediumUrl) {
+        try {
+            if (!renditionRepository.existsByOriginalUrl(originalUrl)) {
+                storageService.deleteFile(mediumUrl);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not remove rendition {}: {}", mediumUrl, e.getMessage());
+        }
+    }
+
+    private void saveRendition(String originalUrl, String smallUrl, String mediumUrl, MediaRendition.Status status) {
+        MediaRendition rendition = new MediaRendition();
+        rendition.setOriginalUrl(originalUrl);
+        rendition.setSmallUrl(smallUrl);
+        rendition.setMediumUrl(mediumUrl);
+        rendition.setStatus(status);
+        try {
+            renditionRepository.save(rendition);
+        } catch (DataIntegrityViolationException e) {
+            // another instance's backfill recorded the same photo first; the blobs are identical
+            logger.debug("Renditions for {} already recorded", originalUrl);
+        }
+    }
+
+    @Override
+    public Map<String, MediaRendition> findByOriginalUrls(Collection<String> originalUrls) {
+        Map<String, MediaRendition> renditions = new HashMap<>();
+        if (originalUrls == null || originalUrls.isEmpty()) {
+            return renditions;
+        }
+        for (MediaRendition rendition : renditionRepository.findByOriginalUrlIn(originalUrls)) {
+            renditions.put(rendition.getOriginalUrl(), rendition);
+        }
+        return renditions;
+    }
+
+    @Override
+    public int backfill(int limit) {
+        int processed = 0;
+        for (String originalUrl : renditionRepository.findPhotoUrlsWithoutRenditions(limit)) {
+            Path copy = null;
+            try {
+                // ImageIO needs the photo twice (EXIF header, then pixels), so download it once
+                copy = Files.createTempFile("rendition-", ".tmp");
+                try (InputStream data = storageService.openFile(originalUrl)) {
+                    Files.copy(data, copy, StandardCopyOption.REPLACE_EXISTING);
+                }
+                if (render(new FileSystemResource(copy), originalUrl)) {
+                    // the issues showing it now have thumbnail and preview URLs
+                    transactionTemplate.executeWithoutResult(status ->
+                            issueRepository.touchByPhotoUrl(originalUrl, Instant.now()));
+                }
+            } catch (Exception e) {
+                if (storageService.describeFile(StorageNames.nameOf(originalUrl)).isPresent()) {
+                    // Storage trouble rather than this photo: the rest of the batch would
+                    // most likely fail the same way, so leave it all for the next run
+                    logger.warn("Backfill stopped at {}, will retry: {}", originalUrl, e.getMessage());
+                    break;
+                }
+                // Nothing to render from; recorded so it cannot stall the backfill, and
+                // deleting the row queues the photo again
+                logger.warn("Backfill found no blob for {}", originalUrl);
+                saveRendition(originalUrl, null, null, MediaRendition.Status.UNSUPPORTED);
+            } finally {
+                deleteQuietly(copy);
+            }
+            processed++;
+        }
+        return processed;
+    }
+
+    @Scheduled(fixedDelayString = "${media.renditions.backfill.interval-ms:600000}",
+            initialDelayString = "${media.renditions.backfill.interval-ms:600000}")
+    public void scheduledBackfill() {
+        if (!backfillEnabled) {
+            return;
+        }
+        try {
+            int processed = backfill(backfillBatchSize);
+            if (processed > 0) {
+                logger.info("Rendition backfill processed {} photos", processed);
+            }
+        } catch (Exception e) {
+            logger.error("Rendition backfill failed: {}", e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete temporary file {}: {}", file, e.getMessage());
+        }
+    }
+}
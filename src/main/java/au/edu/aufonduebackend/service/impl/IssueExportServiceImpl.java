@@ -0,0 +1,278 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.service.IssueExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Exports go straight from a forward-only JDBC cursor to the response. PostgreSQL
+// only honours the fetch size inside a transaction, so each export runs in a
+// read-only one; rows are written and dropped as they arrive, which keeps heap use
+// flat however many issues match.
+@Service
+public class IssueExportServiceImpl implements IssueExportService {
+
+    private static final String EXPORT_SQL = """
+            SELECT i.id, i.description, i.category, i.status, i.priority,
+                   i.latitude, i.longitude, i.custom_location, i.assigned,
+                   i.created_at, i.updated_at,
+                   u.id AS reporter_id, u.username AS reporter_username, u.email AS reporter_email,
+                   s.staff_id AS assignee_staff_id, s.name AS assignee_name, s.email AS assignee_email,
+                   r.remark_type, r.is_viewed AS remark_viewed,
+                   ARRAY(SELECT p.photo_url FROM issue_photos p WHERE p.issue_id = i.id) AS photo_urls,
+                   ARRAY(SELECT v.video_url FROM issue_videos v WHERE v.issue_id = i.id) AS video_urls
+            FROM issues i
+            LEFT JOIN users u ON u.id = i.reported_by_user_id
+            LEFT JOIN staff s ON s.id = i.assigned_staff_id
+            LEFT JOIN issue_remarks r ON r.issue_id = i.id
+            """;
+
+    private static final String[] CSV_HEADER = {
+            "id", "description", "category", "status", "priority", "latitude", "longitude",
+            "customLocation", "assigned", "createdAt", "updatedAt",
+            "reporterId", "reporterUsername", "reporterEmail",
+            "assigneeStaffId", "assigneeName", "assigneeEmail",
+            "remarkType", "remarkViewed", "photoUrls", "videoUrls"
+    };
+
+    // flush to the client every so many rows so a long export keeps moving
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public IssueExportServiceImpl(DataSource dataSource,
+                                  PlatformTransactionManager transactionManager,
+                                  ObjectMapper objectMapper,
+                                  @Value("${issues.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void exportIssues(String format, String status, Instant from, Instant to, OutputStream out) throws IOException {
+        boolean csv = FORMAT_CSV.equalsIgnoreCase(format);
+        if (!csv && !FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+
+        StringBuilder sql = new StringBuilder(EXPORT_SQL).append("WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (status != null && !status.isBlank()) {
+            sql.append(" AND UPPER(i.status) = UPPER(?)");
+            params.add(status.trim());
+        }
+        if (from != null) {
+            sql.append(" AND i.created_at >= ?");
+            params.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" AND i.created_at < ?");
+            params.add(Timestamp.from(to));
+        }
+        sql.append(" ORDER BY i.created_at DESC, i.id DESC");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        RowWriter rowWriter = csv ? new CsvRowWriter(writer) : new NdjsonRowWriter(objectMapper, writer);
+        try {
+            rowWriter.begin();
+            readOnlyTransaction.executeWithoutResult(tx ->
+                    jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rowWriter::write, params.toArray()));
+            rowWriter.end();
+        } catch (UncheckedIOException e) {
+            // most likely the client went away mid-download
+            throw e.getCause();
+        }
+    }
+
+    private abstract static class RowWriter {
+        protected final Writer writer;
+        private int rows;
+
+        RowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        void begin() throws IOException {
+        }
+
+        void write(ResultSet rs) throws SQLException {
+            try {
+                writeRow(rs);
+                if (++rows % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void end() throws IOException {
+            writer.flush();
+        }
+
+        abstract void writeRow(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private static class NdjsonRowWriter extends RowWriter {
+        private final JsonGenerator json;
+
+        NdjsonRowWriter(ObjectMapper objectMapper, Writer writer) throws IOException {
+            super(writer);
+            this.json = objectMapper.getFactory().createGenerator(writer);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        void writeRow(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeStringField("description", rs.getString("description"));
+            json.writeStringField("category", rs.getString("category"));
+            json.writeStringField("status", rs.getString("status"));
+            json.writeStringField("priority", rs.getString("priority"));
+            writeNumber("latitude", rs.getObject("latitude", Double.class));
+            writeNumber("longitude", rs.getObject("longitude", Double.class));
+            json.writeStringField("customLocation", rs.getString("custom_location"));
+            json.writeBooleanField("assigned", rs.getBoolean("assigned"));
+            json.writeStringField("createdAt", instant(rs, "created_at"));
+            json.writeStringField("updatedAt", instant(rs, "updated_at"));
+
+            json.writeObjectFieldStart("reportedBy");
+            writeNumber("id", rs.getObject("reporter_id", Long.class));
+            json.writeStringField("username", rs.getString("reporter_username"));
+            json.writeStringField("email", rs.getString("reporter_email"));
+            json.writeEndObject();
+
+            if (rs.getString("assignee_staff_id") != null || rs.getString("assignee_name") != null) {
+                json.writeObjectFieldStart("assignedTo");
+                json.writeStringField("staffId", rs.getString("assignee_staff_id"));
+                json.writeStringField("name", rs.getString("assignee_name"));
+                json.writeStringField("email", rs.getString("assignee_email"));
+                json.writeEndObject();
+            } else {
+                json.writeNullField("assignedTo");
+            }
+
+            json.writeStringField("remarkType", rs.getString("remark_type"));
+            json.writeFieldName("remarkViewed");
+            Boolean viewed = rs.getObject("remark_viewed", Boolean.class);
+            if (viewed == null) {
+                json.writeNull();
+            } else {
+                json.writeBoolean(viewed);
+            }
+
+            writeStrings("photoUrls", strings(rs, "photo_urls"));
+            writeStrings("videoUrls", strings(rs, "video_urls"));
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        }
+
+        private void writeNumber(String field, Number value) throws IOException {
+            json.writeFieldName(field);
+            if (value == null) {
+                json.writeNull();
+            } else if (value instanceof Long) {
+                json.writeNumber(value.longValue());
+            } else {
+                json.writeNumber(value.doubleValue());
+            }
+        }
+
+        private void writeStrings(String field, String[] values) throws IOException {
+            json.writeArrayFieldStart(field);
+            for (String value : values) {
+                json.writeString(value);
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private static class CsvRowWriter extends RowWriter {
+
+        CsvRowWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        void begin() throws IOException {
+            writer.write(String.join(",", CSV_HEADER));
+            writer.write("\r\n");
+        }
+
+        @Override
+        void writeRow(ResultSet rs) throws SQLException, IOException {
+            String[] values = {
+                    rs.getString("id"), rs.getString("description"), rs.getString("category"),
+                    rs.getString("status"), rs.getString("priority"), rs.getString("latitude"),
+                    rs.getString("longitude"), rs.getString("custom_location"), rs.getString("assigned"),
+                    instant(rs, "created_at"), instant(rs, "updated_at"),
+                    rs.getString("reporter_id"), rs.getString("reporter_username"), rs.getString("reporter_email"),
+                    rs.getString("assignee_staff_id"), rs.getString("assignee_name"), rs.getString("assignee_email"),
+                    rs.getString("remark_type"), rs.getString("remark_viewed"),
+                    String.join(" ", strings(rs, "photo_urls")), String.join(" ", strings(rs, "video_urls"))
+            };
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(values[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static String instant(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp == null ? null : timestamp.toInstant().toString();
+    }
+
+    private static String[] strings(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        if (array == null) {
+            return new String[0];
+        }
+        try {
+            return (String[]) array.getArray();
+        } finally {
+            array.free();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.dto.response.IssueCluster;
+import au.edu.aufonduebackend.model.dto.response.IssueClusterResponse;
+import au.edu.aufonduebackend.model.entity.Issue;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.service.IssueMapService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Issue points are kept in fixed 0.01 degree buckets (about 1 km), so a viewport
+// query only touches the buckets it overlaps. Clusters are then built on a grid
+// derived from the zoom level and coarsened until the viewport holds at most
+// MAX_CELLS cells, which keeps the payload bounded however many issues it covers.
+// Each instance keeps its own index; changes made elsewhere arrive with the
+// periodic reload.
+@Service
+@RequiredArgsConstructor
+public class IssueMapServiceImpl implements IssueMapService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IssueMapServiceImpl.class);
+
+    private static final double BUCKET_DEGREES = 0.01;
+    // a 256px map tile split into 4x4 clusters
+    private static final int CELLS_PER_TILE = 4;
+    private static final int MAX_CELLS = 256;
+    private static final int MAX_ZOOM = 22;
+    private static final int MAX_SAMPLE_IDS = 3;
+    private static final int MAX_CATEGORIES = 8;
+    private static final String OTHER_CATEGORIES = "OTHERS";
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+    private final IssueRepository issueRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // bumped on every applied change so reload can tell if it raced with a writer
+    private final AtomicLong mutations = new AtomicLong();
+
+    private Map<Long, IssuePoint> points = new HashMap<>();
+    private Map<Long, Map<Long, IssuePoint>> buckets = new HashMap<>();
+    private volatile boolean loaded;
+
+    @Override
+    public IssueClusterResponse getClusters(double minLat, double minLon, double maxLat, double maxLon, int zoom) {
+        if (minLat > maxLat || minLon > maxLon || minLat < -90 || maxLat > 90 || minLon < -180 || maxLon > 180) {
+            throw new IllegalArgumentException("Invalid bounding box");
+        }
+        if (!loaded) {
+            reload();
+        }
+
+        int z = Math.max(0, Math.min(zoom, MAX_ZOOM));
+        double cellSize = 360.0 / (1L << z) / CELLS_PER_TILE;
+        while (cellsAcross(minLon, maxLon, cellSize) * cellsAcross(minLat, maxLat, cellSize) > MAX_CELLS) {
+            cellSize *= 2;
+        }
+
+        Map<String, ClusterBuilder> cells = new LinkedHashMap<>();
+        int total = 0;
+        lock.readLock().lock();
+        try {
+            for (IssuePoint point : candidates(minLat, minLon, maxLat, maxLon)) {
+                if (point.latitude < minLat || point.latitude > maxLat
+                        || point.longitude < minLon || point.longitude > maxLon) {
+                    continue;
+                }
+                long x = (long) Math.floor(point.longitude / cellSize);
+                long y = (long) Math.floor(point.latitude / cellSize);
+                cells.computeIfAbsent(x + ":" + y, ClusterBuilder::new).add(point);
+                total++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<IssueCluster> clusters = new ArrayList<>(cells.size());
+        for (ClusterBuilder cell : cells.values()) {
+            clusters.add(cell.build());
+        }
+        return new IssueClusterResponse(z, cellSize, total, clusters);
+    }
+
+    @Override
+    public void issueSaved(Issue issue) {
+        if (issue.getId() == null || issue.getLatitude() == null || issue.getLongitude() == null) {
+            return;
+        }
+        IssuePoint point = new IssuePoint(issue.getId(), issue.getLatitude(), issue.getLongitude(),
+                issue.getStatus(), issue.getCategory());
+        afterCommit(() -> put(point));
+    }
+
+    @Override
+    public void issueDeleted(Long issueId) {
+        afterCommit(() -> remove(issueId));
+    }
+
+    @Override
+    public void statusChanged(Long issueId, String status) {
+        afterCommit(() -> {
+            IssuePoint existing = points.get(issueId);
+            if (existing != null) {
+                put(new IssuePoint(existing.id, existing.latitude, existing.longitude, status, existing.category));
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // The first map request will try again
+            logger.error("Failed to load issue map index on startup: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${issues.map.reload-interval-ms:600000}",
+            initialDelayString = "${issues.map.reload-interval-ms:600000}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("Issue map index reload failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void reload() {
+        for (int attempt = 1; attempt <= MAX_RELOAD_ATTEMPTS; attempt++) {
+            long seen = mutations.get();
+
+            Map<Long, IssuePoint> newPoints = new HashMap<>();
+            Map<Long, Map<Long, IssuePoint>> newBuckets = new HashMap<>();
+            for (Object[] row : issueRepository.findMapPoints()) {
+                IssuePoint point = new IssuePoint((Long) row[0], (Double) row[1], (Double) row[2],
+                        (String) row[3], (String) row[4]);
+                newPoints.put(point.id, point);
+                newBuckets.computeIfAbsent(bucketKey(point.latitude, point.longitude), key -> new HashMap<>())
+                        .put(point.id, point);
+            }
+
+            lock.writeLock().lock();
+            try {
+                // A change committed while we were loading may or may not be in the
+                // result, so only swap if nothing moved in between
+                if (loaded && mutations.get() != seen) {
+                    continue;
+                }
+                points = newPoints;
+                buckets = newBuckets;
+                loaded = true;
+                return;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        logger.info("Issue map changed during reload, keeping incremental index");
+    }
+
+    // Walks the buckets the viewport overlaps, or every point when that would be more work
+    private Collection<IssuePoint> candidates(double minLat, double minLon, double maxLat, double maxLon) {
+        long minX = bucketIndex(minLon);
+        long maxX = bucketIndex(maxLon);
+        long minY = bucketIndex(minLat);
+        long maxY = bucketIndex(maxLat);
+        if ((maxX - minX + 1) * (maxY - minY + 1) > buckets.size()) {
+            return points.values();
+        }
+
+        List<IssuePoint> candidates = new ArrayList<>();
+        for (long x = minX; x <= maxX; x++) {
+            for (long y = minY; y <= maxY; y++) {
+                Map<Long, IssuePoint> bucket = buckets.get(bucketKey(x, y));
+                if (bucket != null) {
+                    candidates.addAll(bucket.values());
+                }
+            }
+        }
+        return candidates;
+    }
+
+    // Callers hold the write lock (afterCommit takes it)
+    private void put(IssuePoint point) {
+        remove(point.id);
+        points.put(point.id, point);
+        buckets.computeIfAbsent(bucketKey(point.latitude, point.longitude), key -> new HashMap<>())
+                .put(point.id, point);
+    }
+
+    private void remove(Long issueId) {
+        IssuePoint existing = points.remove(issueId);
+        if (existing == null) {
+            return;
+        }
+        long key = bucketKey(existing.latitude, existing.longitude);
+        Map<Long, IssuePoint> bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(issueId);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    // Applies the change only if the current transaction commits
+    private void afterCommit(Runnable change) {
+        Runnable apply = () -> {
+            lock.writeLock().lock();
+            try {
+                change.run();
+                mutations.incrementAndGet();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private static long cellsAcross(double min, double max, double cellSize) {
+        return (long) Math.floor(max / cellSize) - (long) Math.floor(min / cellSize) + 1;
+    }
+
+    private static long bucketIndex(double degrees) {
+        return (long) Math.floor(degrees / BUCKET_DEGREES);
+    }
+
+    private static long bucketKey(double latitude, double longitude) {
+        return bucketKey(bucketIndex(longitude), bucketIndex(latitude));
+    }
+
+    private static long bucketKey(long x, long y) {
+        return (x << 32) | (y & 0xffffffffL);
+    }
+
+    private record IssuePoint(Long id, double latitude, double longitude, String status, String category) {
+    }
+
+    private static class ClusterBuilder {
+        private final String cell;
+        private int count;
+        private double latitudeSum;
+        private double longitudeSum;
+        private final Map<String, Integer> statusCounts = new HashMap<>();
+        private final Map<String, Integer> categoryCounts = new HashMap<>();
+        // newest issues (highest ids) win a sample slot
+        private final PriorityQueue<Long> sampleIds = new PriorityQueue<>();
+
+        ClusterBuilder(String cell) {
+            this.cell = cell;
+        }
+
+        void add(IssuePoint point) {
+            count++;
+            latitudeSum += point.latitude;
+            longitudeSum += point.longitude;
+            statusCounts.merge(point.status == null ? "UNKNOWN" : point.status, 1, Integer::sum);
+            categoryCounts.merge(point.category == null ? "UNCATEGORIZED" : point.category, 1, Integer::sum);
+            sampleIds.add(point.id);
+            if (sampleIds.size() > MAX_SAMPLE_IDS) {
+                sampleIds.poll();
+            }
+        }
+
+        IssueCluster build() {
+            IssueCluster cluster = new IssueCluster();
+            cluster.setCell(cell);
+            cluster.setCount(count);
+            cluster.setLatitude(latitudeSum / count);
+            cluster.setLongitude(longitudeSum / count);
+            cluster.setStatusCounts(statusCounts);
+            cluster.setCategoryCounts(topCategories());
+            List<Long> samples = new ArrayList<>(sampleIds);
+            samples.sort(Comparator.reverseOrder());
+            cluster.setSampleIssueIds(samples);
+            return cluster;
+        }
+
+        // Custom categories are free text, so only the largest few are listed by name
+        private Map<String, Integer> topCategories() {
+            if (categoryCounts.size() <= MAX_CATEGORIES) {
+                return categoryCounts;
+            }
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>(categoryCounts.entrySet());
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            Map<String, Integer> top = new LinkedHashMap<>();
+            for (int i = 0; i < entries.size(); i++) {
+                Map.Entry<String, Integer> entry = entries.get(i);
+                if (i < MAX_CATEGORIES - 1) {
+                    top.put(entry.getKey(), entry.getValue());
+                } else {
+                    top.merge(OTHER_CATEGORIES, entry.getValue(), Integer::sum);
+                }
+            }
+            return top;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package au.edu.aufonduebackend.service.impl;
 import au.edu.aufonduebackend.model.entity.*;
 import au.edu.aufonduebackend.repository.*;
 import au.edu.aufonduebackend.service.IssueRemarkService;
+import au.edu.aufonduebackend.service.IssueStatsService;
 import au.edu.aufonduebackend.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -23,6 +24,9 @@ public class IssueRemarkServiceImpl implements IssueRemarkService {
     @Autowired
     private IssueRepository issueRepository;
 
+    @Autowired
+    private IssueStatsService issueStatsService;
+
     @Override
     public IssueRemark createRemark(Issue issue, IssueRemark.RemarkType remarkType, Admin createdBy) {
         IssueRemark remark = new IssueRemark();
@@ -32,6 +36,9 @@ public class IssueRemarkServiceImpl implements IssueRemarkService {
         remark.setCreatedBy(createdBy);
         
         IssueRemark savedRemark = remarkRepository.save(remark);
+        if (remarkType == IssueRemark.RemarkType.NEW) {
+            issueStatsService.unviewedNewRemarksChanged(1);
+        }
         
         // Create history entry
         createHistoryEntry(issue, remarkType, issue.getStatus(), createdBy, IssueRemarkHistory.Action.CREATED);
@@ -51,6 +58,10 @@ public class IssueRemarkServiceImpl implements IssueRemarkService {
         
         Optional<IssueRemark> existingRemark = remarkRepository.findByIssueId(issueId);
         
+        boolean wasUnviewedNew = existingRemark
+            .map(r -> r.getRemarkType() == IssueRemark.RemarkType.NEW && !Boolean.TRUE.equals(r.getIsViewed()))
+            .orElse(false);
+        
         IssueRemark remark;
         if (existingRemark.isPresent()) {
             remark = existingRemark.get();
@@ -65,6 +76,8 @@ public class IssueRemarkServiceImpl implements IssueRemarkService {
         }
         
         IssueRemark savedRemark = remarkRepository.save(remark);
+        boolean nowUnviewedNew = remarkType == IssueRemark.RemarkType.NEW;
+        issueStatsService.unviewedNewRemarksChanged((nowUnviewedNew ? 1 : 0) - (wasUnviewedNew ? 1 : 0));
         
         // Create history entry
         createHistoryEntry(issue, remarkType, status, updatedBy, 
@@ -90,6 +103,9 @@ public class IssueRemarkServiceImpl implements IssueRemarkService {
             IssueRemark remark = remarkOpt.get();
             // Only mark as viewed if it's a 'new' remark
             if (remark.getRemarkType() == IssueRemark.RemarkType.NEW) {
+                if (!Boolean.TRUE.equals(remark.getIsViewed())) {
+                    issueStatsService.unviewedNewRemarksChanged(-1);
+                }
                 remark.setIsViewed(true);
                 remarkRepository.save(remark);
                 
@@ -148,6 +164,7 @@ public class IssueRemarkServiceImpl implements IssueRemarkService {
             newRemark.setRemarkType(IssueRemark.RemarkType.NEW);
             newRemark.setIsViewed(false);
             remarkRepository.save(newRemark);
+            issueStatsService.unviewedNewRemarksChanged(1);
             
             // Create history entry
             createHistoryEntry(issue, IssueRemark.RemarkType.NEW, issue.getStatus(), 
@@ -1,32 +1,54 @@
 package au.edu.aufonduebackend.service.impl;
 
+import au.edu.aufonduebackend.model.dto.request.IssueCursor;
 import au.edu.aufonduebackend.model.dto.request.IssueRequest;
+import au.edu.aufonduebackend.model.dto.response.CursorPage;
 import au.edu.aufonduebackend.model.dto.response.IssueResponse;
+import au.edu.aufonduebackend.model.dto.response.MediaAttachmentResponse;
+import au.edu.aufonduebackend.model.dto.response.PageResponse;
 import au.edu.aufonduebackend.model.dto.response.StaffResponse;
 import au.edu.aufonduebackend.model.dto.response.UserResponse;
 import au.edu.aufonduebackend.model.entity.Issue;
 import au.edu.aufonduebackend.model.entity.IssueRemark;
+import au.edu.aufonduebackend.model.entity.MediaAttachment;
+import au.edu.aufonduebackend.model.entity.MediaRendition;
 import au.edu.aufonduebackend.model.entity.Staff;
+import au.edu.aufonduebackend.model.entity.UploadSession;
 import au.edu.aufonduebackend.model.entity.User;
 import au.edu.aufonduebackend.repository.IssueRepository;
 import au.edu.aufonduebackend.repository.StaffRepository;
+import au.edu.aufonduebackend.service.ImageRenditionService;
 import au.edu.aufonduebackend.service.IssueService;
+import au.edu.aufonduebackend.service.IssueMapService;
 import au.edu.aufonduebackend.service.IssueRemarkService;
-import au.edu.aufonduebackend.service.StorageService;
+import au.edu.aufonduebackend.service.IssueStatsService;
+import au.edu.aufonduebackend.service.MediaIngestionService;
+import au.edu.aufonduebackend.service.MediaUploadService;
+import au.edu.aufonduebackend.service.ResumableUploadService;
 import au.edu.aufonduebackend.service.UserService;
 import au.edu.aufonduebackend.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,11 +56,20 @@ import java.util.stream.Collectors;
 public class IssueServiceImpl implements IssueService {
 
     private static final Logger logger = LoggerFactory.getLogger(IssueServiceImpl.class);
+    private static final int MAX_PAGE_SIZE = 100;
+    // Newest first, with the id as a tie-breaker so pages never overlap or skip rows
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
     
     private final IssueRepository issueRepository;
     private final StaffRepository staffRepository;
-    private final StorageService storageService;
     private final UserService userService;
+    private final IssueStatsService issueStatsService;
+    private final IssueMapService issueMapService;
+    private final MediaUploadService mediaUploadService;
+    private final TransactionTemplate transactionTemplate;
+    private final MediaIngestionService mediaIngestionService;
+    private final ImageRenditionService imageRenditionService;
+    private final ResumableUploadService resumableUploadService;
     @Autowired(required = false)
     private IssueRemarkService remarkService;
     @Autowired(required = false)
@@ -48,11 +79,78 @@ public class IssueServiceImpl implements IssueService {
     @Autowired(required = false)
     private au.edu.aufonduebackend.repository.IssueRemarkHistoryRepository issueRemarkHistoryRepository;
 
+    // Not @Transactional: media goes to blob storage first, and only the inserts run
+    // in a (short) transaction, so no pooled connection waits on the uploads
     @Override
-    @Transactional
     public IssueResponse createIssue(IssueRequest request, List<MultipartFile> photos, List<MultipartFile> videos) {
         validateIssueRequest(request, photos, videos);
+        List<UploadSession> resumableUploads = resumableUploadService.getCommittedUploads(request.getUploadIds(), request.getUserEmail());
+        Issue issue = newIssue(request);
+
+        // Upload photos and videos together, in parallel
+        List<MultipartFile> media = new ArrayList<>();
+        if (photos != null) {
+            media.addAll(photos);
+        }
+        int photoCount = media.size();
+        if (videos != null) {
+            media.addAll(videos);
+        }
+        List<String> mediaUrls;
+        try {
+            mediaUrls = mediaUploadService.uploadAll(media);
+        } catch (Exception e) {
+            throw new RuntimeException("Error uploading media: " + e.getMessage());
+        }
+        issue.setPhotoUrls(new ArrayList<>(mediaUrls.subList(0, photoCount)));
+        issue.setVideoUrls(new ArrayList<>(mediaUrls.subList(photoCount, mediaUrls.size())));
+        addResumableUploads(issue, resumableUploads);
+
+        try {
+            return transactionTemplate.execute(status -> convertToResponse(saveNewIssue(issue)));
+        } catch (RuntimeException e) {
+            // The issue was not stored, so nothing will ever reference these blobs
+            mediaUploadService.deleteQuietly(mediaUrls);
+            throw e;
+        }
+    }
+
+    // Async ingestion mode: the files are only spooled to local disk here, so the
+    // response does not wait on upload bandwidth. The issue comes back with its
+    // attachments PENDING; GET /api/issues/{id}/media reports their progress.
+    @Override
+    public IssueResponse createIssueWithPendingMedia(IssueRequest request, List<MultipartFile> photos, List<MultipartFile> videos) {
+        validateIssueRequest(request, photos, videos);
+        List<UploadSession> resumableUploads = resumableUploadService.getCommittedUploads(request.getUploadIds(), request.getUserEmail());
+        Issue issue = newIssue(request);
+        issue.setPhotoUrls(new ArrayList<>());
+        issue.setVideoUrls(new ArrayList<>());
+        // already in blob storage, so attached straight away rather than queued
+        addResumableUploads(issue, resumableUploads);
 
+        List<MediaAttachment> attachments = mediaIngestionService.spool(photos, videos);
+        try {
+            return transactionTemplate.execute(status -> {
+                Issue savedIssue = saveNewIssue(issue);
+                IssueResponse response = convertToResponse(savedIssue);
+                response.setPendingMedia(mediaIngestionService.register(savedIssue, attachments));
+                return response;
+            });
+        } catch (RuntimeException e) {
+            mediaIngestionService.discardSpooled(attachments);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<MediaAttachmentResponse> getIssueMedia(Long issueId) {
+        if (!issueRepository.existsById(issueId)) {
+            throw new ResourceNotFoundException("Issue not found with id: " + issueId);
+        }
+        return mediaIngestionService.getAttachments(issueId);
+    }
+
+    private Issue newIssue(IssueRequest request) {
         // Get or create user from email
         String email = request.getUserEmail();
         String username = email.substring(0, email.indexOf("@")); // Extract username from email
@@ -80,92 +178,196 @@ public class IssueServiceImpl implements IssueService {
         }
 
         issue.setStatus("PENDING");
-        issue.setPhotoUrls(new ArrayList<>());
-        issue.setVideoUrls(new ArrayList<>());
-
-        // Upload photos
-        if (photos != null && !photos.isEmpty()) {
-            try {
-                List<String> photoUrls = photos.stream()
-                        .map(storageService::uploadFile)
-                        .collect(Collectors.toList());
-                issue.setPhotoUrls(photoUrls);
-            } catch (Exception e) {
-                throw new RuntimeException("Error uploading photos: " + e.getMessage());
-            }
-        }
+        return issue;
+    }
 
-        // Upload videos
-        if (videos != null && !videos.isEmpty()) {
-            try {
-                List<String> videoUrls = videos.stream()
-                        .map(storageService::uploadFile)
-                        .collect(Collectors.toList());
-                issue.setVideoUrls(videoUrls);
-            } catch (Exception e) {
-                throw new RuntimeException("Error uploading videos: " + e.getMessage());
+    // Committed resumable uploads go after any files sent with the form
+    private void addResumableUploads(Issue issue, List<UploadSession> uploads) {
+        for (UploadSession upload : uploads) {
+            if (upload.getContentType().startsWith("image/")) {
+                issue.getPhotoUrls().add(upload.getUrl());
+            } else {
+                issue.getVideoUrls().add(upload.getUrl());
             }
         }
+    }
 
+    private Issue saveNewIssue(Issue issue) {
         Issue savedIssue = issueRepository.save(issue);
-        
+
         // Create initial 'new' remark for the issue if service is available
         if (remarkService != null) {
             remarkService.createInitialRemarkForNewIssue(savedIssue);
         }
-        
-        return convertToResponse(savedIssue);
+        issueStatsService.issueCreated(savedIssue.getStatus(), false);
+        issueMapService.issueSaved(savedIssue);
+        return savedIssue;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<IssueResponse> getUserSubmittedIssues(Long userId, int page, int size, String status) {
-        try {
-            return issueRepository.findUserIssues(userId, status, page * size, size)
-                    .stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            return Collections.emptyList();
-        }
+        return convertToResponses(findAllInOrder(issueRepository.findUserIssueIds(userId, status, page * size, size)));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<IssueResponse> getAllIssuesTracking(int page, int size, String status) {
-        try {
-            return issueRepository.findAllIssues(status, page * size, size)
-                    .stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            return Collections.emptyList();
-        }
+        return convertToResponses(findAllInOrder(issueRepository.findAllIssueIds(status, page * size, size)));
     }
 
     @Override
-    public List<IssueResponse> getAllIssues(int page, int size, String status) {
-        try {
-            if (status != null && !status.isEmpty()) {
-                return issueRepository.findByStatus(status).stream()
-                        .map(this::convertToResponse)
-                        .collect(Collectors.toList());
-            }
+    @Transactional(readOnly = true)
+    public CursorPage<IssueResponse> getUserSubmittedIssues(Long userId, String cursor, int size, String status) {
+        IssueCursor after = (cursor == null || cursor.isBlank()) ? null : IssueCursor.decode(cursor);
+        int pageSize = clampPageSize(size);
+        // Fetch one extra row to know whether another page exists
+        return toCursorPage(findAllInOrder(userIssueIds(userId, after, pageSize + 1, status)), pageSize);
+    }
 
-            return issueRepository.findAll(PageRequest.of(page, size))
-                    .stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            return Collections.emptyList();
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<IssueResponse> getAllIssuesTracking(String cursor, int size, String status) {
+        IssueCursor after = (cursor == null || cursor.isBlank()) ? null : IssueCursor.decode(cursor);
+        int pageSize = clampPageSize(size);
+        return toCursorPage(findAllInOrder(trackingIssueIds(after, pageSize + 1, status)), pageSize);
+    }
+
+    private List<Long> userIssueIds(Long userId, IssueCursor after, int limit, String status) {
+        return after == null
+                ? issueRepository.findUserIssueIds(userId, status, 0, limit)
+                : issueRepository.findUserIssueIdsBefore(userId, status, after.getCreatedAt(), after.getId(), limit);
+    }
+
+    private List<Long> trackingIssueIds(IssueCursor after, int limit, String status) {
+        return after == null
+                ? issueRepository.findAllIssueIds(status, 0, limit)
+                : issueRepository.findAllIssueIdsBefore(status, after.getCreatedAt(), after.getId(), limit);
+    }
+
+    private CursorPage<IssueResponse> toCursorPage(List<Issue> issues, int pageSize) {
+        boolean hasMore = issues.size() > pageSize;
+        List<Issue> pageIssues = hasMore ? issues.subList(0, pageSize) : issues;
+        String nextCursor = null;
+        if (hasMore) {
+            Issue last = pageIssues.get(pageIssues.size() - 1);
+            nextCursor = new IssueCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(convertToResponses(pageIssues), nextCursor, hasMore);
+    }
+
+    // Loads the issues for ids returned by a native (id-only) query, with reporter and
+    // assignee fetched in the same statement, keeping the order of the id query
+    private List<Issue> findAllInOrder(List<Long> issueIds) {
+        if (issueIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Issue> issuesById = new HashMap<>();
+        for (Issue issue : issueRepository.findAllByIdIn(issueIds)) {
+            issuesById.put(issue.getId(), issue);
         }
+        return issueIds.stream()
+                .map(issuesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private Pageable pageRequest(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), clampPageSize(size), NEWEST_FIRST);
+    }
+
+    private PageResponse<IssueResponse> toPageResponse(Page<Issue> issues) {
+        return new PageResponse<>(
+                convertToResponses(issues.getContent()),
+                issues.getNumber(),
+                issues.getSize(),
+                issues.getTotalElements(),
+                issues.getTotalPages(),
+                issues.isLast()
+        );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponse<IssueResponse> getAllIssues(int page, int size, String status) {
+        Pageable pageable = pageRequest(page, size);
+        if (status != null && !status.isEmpty()) {
+            return toPageResponse(issueRepository.findByStatus(status, pageable));
+        }
+
+        return toPageResponse(issueRepository.findAll(pageable));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public IssueResponse getIssueById(Long id) {
         Issue issue = issueRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Issue not found with id: " + id));
         return convertToResponse(issue);
     }
 
+    // The ETag methods run the same id queries as the list methods, then read only
+    // version stamps, so a 304 never loads or serializes the issues themselves
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getIssueETag(Long id) {
+        return versionTag(List.of(id), true);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getUserSubmittedIssuesETag(Long userId, int page, int size, String status) {
+        return versionTag(issueRepository.findUserIssueIds(userId, status, page * size, size), false);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getUserSubmittedIssuesETag(Long userId, String cursor, int size, String status) {
+        IssueCursor after = (cursor == null || cursor.isBlank()) ? null : IssueCursor.decode(cursor);
+        return versionTag(userIssueIds(userId, after, clampPageSize(size) + 1, status), false);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getAllIssuesTrackingETag(int page, int size, String status) {
+        return versionTag(issueRepository.findAllIssueIds(status, page * size, size), false);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getAllIssuesTrackingETag(String cursor, int size, String status) {
+        IssueCursor after = (cursor == null || cursor.isBlank()) ? null : IssueCursor.decode(cursor);
+        return versionTag(trackingIssueIds(after, clampPageSize(size) + 1, status), false);
+    }
+
+    // Hashes each issue's id and version stamps in response order. Returns
+    // null when a single issue was asked for and does not exist, so the caller
+    // falls through to its normal not-found handling.
+    private String versionTag(List<Long> issueIds, boolean single) {
+        Map<Long, String> versions = new HashMap<>();
+        if (!issueIds.isEmpty()) {
+            for (Object[] row : issueRepository.findVersionsByIdIn(issueIds)) {
+                versions.put((Long) row[0], Arrays.stream(row, 1, row.length)
+                        .map(String::valueOf)
+                        .collect(Collectors.joining("|")));
+            }
+        }
+        if (single && versions.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder stamp = new StringBuilder();
+        for (Long issueId : issueIds) {
+            stamp.append(issueId).append('|').append(versions.get(issueId)).append(';');
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(stamp.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
     @Override
     @Transactional
     public IssueResponse updateIssue(Long id, IssueRequest request) {
@@ -194,6 +396,8 @@ public class IssueServiceImpl implements IssueService {
         }
 
         Issue updatedIssue = issueRepository.save(issue);
+        // the location may have moved; reaches the map index once this commits
+        issueMapService.issueSaved(updatedIssue);
         return convertToResponse(updatedIssue);
     }
 
@@ -203,11 +407,26 @@ public class IssueServiceImpl implements IssueService {
         Issue issue = issueRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Issue not found with id: " + id));
 
+        // Remember whether the issue still counted as an unviewed 'new' remark for the dashboard
+        boolean hadUnviewedNewRemark = issueRemarkRepository != null && issueRemarkRepository.findByIssueId(id)
+                .map(remark -> remark.getRemarkType() == IssueRemark.RemarkType.NEW && !Boolean.TRUE.equals(remark.getIsViewed()))
+                .orElse(false);
+
+        // Media referenced by the issue and its updates, released once the delete commits
+        List<String> mediaUrls = new ArrayList<>();
+        if (issue.getPhotoUrls() != null) {
+            mediaUrls.addAll(issue.getPhotoUrls());
+        }
+        if (issue.getVideoUrls() != null) {
+            mediaUrls.addAll(issue.getVideoUrls());
+        }
+
         // First, delete all related entities to avoid foreign key constraint violations
         
         // Delete all updates associated with this issue
         if (updateRepository != null) {
             try {
+                updateRepository.findByIssueId(id).forEach(update -> mediaUrls.addAll(update.getPhotoUrls()));
                 updateRepository.deleteByIssueId(id);
             } catch (Exception e) {
                 System.err.println("Error deleting updates for issue " + id + ": " + e.getMessage());
@@ -223,6 +442,9 @@ public class IssueServiceImpl implements IssueService {
             }
         }
         
+        // Drop media still waiting in the async upload queue
+        mediaIngestionService.discardForIssue(id);
+
         // Delete issue remarks
         if (issueRemarkRepository != null) {
             try {
@@ -232,49 +454,93 @@ public class IssueServiceImpl implements IssueService {
             }
         }
 
-        // Delete media files from storage
-        if (issue.getPhotoUrls() != null && !issue.getPhotoUrls().isEmpty()) {
-            for (String photoUrl : issue.getPhotoUrls()) {
-                try {
-                    storageService.deleteFile(photoUrl);
-                } catch (Exception e) {
-                    System.err.println("Error deleting photo: " + photoUrl);
-                }
-            }
-        }
-
-        if (issue.getVideoUrls() != null && !issue.getVideoUrls().isEmpty()) {
-            for (String videoUrl : issue.getVideoUrls()) {
-                try {
-                    storageService.deleteFile(videoUrl);
-                } catch (Exception e) {
-                    System.err.println("Error deleting video: " + videoUrl);
-                }
-            }
-        }
-
         // Finally, delete the issue itself
         issueRepository.deleteById(id);
+        issueStatsService.issueDeleted(issue.getStatus(), Boolean.TRUE.equals(issue.getAssigned()), hadUnviewedNewRemark);
+        issueMapService.issueDeleted(id);
+
+        // The blobs are only queued here, in this transaction; they are deleted in the
+        // background after commit, so the request does not wait on blob storage
+        mediaUploadService.deleteQuietly(mediaUrls);
     }
 
     @Override
-    public List<IssueResponse> getNearbyIssues(Double latitude, Double longitude, Double radiusKm) {
+    @Transactional(readOnly = true)
+    public List<IssueResponse> getNearbyIssues(Double latitude, Double longitude, Double radiusKm, int limit) {
         if (latitude == null || longitude == null || radiusKm == null) {
             throw new IllegalArgumentException("Latitude, longitude, and radius are required");
         }
 
-        try {
-            double radiusMeters = radiusKm * 1000;
-            return issueRepository.findNearbyIssues(latitude, longitude, radiusMeters)
-                    .stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            return Collections.emptyList();
+        double radiusMeters = radiusKm * 1000;
+        return withDistances(issueRepository.findNearbyIssueIds(latitude, longitude, radiusMeters, clampPageSize(limit)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<IssueResponse> getNearestIssues(Double latitude, Double longitude, int limit) {
+        if (latitude == null || longitude == null) {
+            throw new IllegalArgumentException("Latitude and longitude are required");
+        }
+
+        return withDistances(issueRepository.findNearestIssueIds(latitude, longitude, clampPageSize(limit)));
+    }
+
+    // Loads the issues behind a spatial id query, keeping its order, and copies the
+    // distance the query measured onto each response
+    private List<IssueResponse> withDistances(List<IssueRepository.IssueDistance> matches) {
+        Map<Long, Double> distances = new HashMap<>();
+        List<Long> issueIds = new ArrayList<>();
+        for (IssueRepository.IssueDistance match : matches) {
+            distances.put(match.getId(), match.getDistanceMeters());
+            issueIds.add(match.getId());
         }
+        List<IssueResponse> responses = convertToResponses(findAllInOrder(issueIds));
+        responses.forEach(response -> response.setDistanceMeters(distances.get(response.getId())));
+        return responses;
     }
 
     private IssueResponse convertToResponse(Issue issue) {
+        IssueRemark remark = null;
+        if (remarkService != null) {
+            remark = remarkService.getRemarkByIssueId(issue.getId()).orElse(null);
+        }
+        return convertToResponse(issue, remark, renditionsFor(List.of(issue)));
+    }
+
+    // List variant of convertToResponse: resolves the remarks and photo renditions for
+    // the whole page in a single query each instead of lookups per issue
+    private List<IssueResponse> convertToResponses(List<Issue> issues) {
+        if (issues == null || issues.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, IssueRemark> remarksByIssueId = new HashMap<>();
+        if (remarkService != null) {
+            List<Long> issueIds = issues.stream()
+                    .map(Issue::getId)
+                    .collect(Collectors.toList());
+            for (IssueRemark remark : remarkService.getRemarksByIssueIds(issueIds)) {
+                remarksByIssueId.put(remark.getIssue().getId(), remark);
+            }
+        }
+
+        Map<String, MediaRendition> renditions = renditionsFor(issues);
+        return issues.stream()
+                .map(issue -> convertToResponse(issue, remarksByIssueId.get(issue.getId()), renditions))
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, MediaRendition> renditionsFor(List<Issue> issues) {
+        List<String> photoUrls = new ArrayList<>();
+        for (Issue issue : issues) {
+            if (issue.getPhotoUrls() != null) {
+                photoUrls.addAll(issue.getPhotoUrls());
+            }
+        }
+        return photoUrls.isEmpty() ? Collections.emptyMap() : imageRenditionService.findByOriginalUrls(photoUrls);
+    }
+
+    private IssueResponse convertToResponse(Issue issue, IssueRemark remark, Map<String, MediaRendition> renditions) {
         IssueResponse response = new IssueResponse();
         response.setId(issue.getId());
         response.setDescription(issue.getDescription());
@@ -284,8 +550,11 @@ public class IssueServiceImpl implements IssueService {
         response.setUsingCustomLocation(issue.getUsingCustomLocation());
         response.setCategory(issue.getCategory());
         response.setStatus(issue.getStatus());
-        response.setPhotoUrls(issue.getPhotoUrls() != null ? issue.getPhotoUrls() : new ArrayList<>());
-        response.setVideoUrls(issue.getVideoUrls() != null ? issue.getVideoUrls() : new ArrayList<>());
+        // Copy the media lists so they are initialised (batch-loaded) while the session is open
+        response.setPhotoUrls(issue.getPhotoUrls() != null ? new ArrayList<>(issue.getPhotoUrls()) : new ArrayList<>());
+        response.setVideoUrls(issue.getVideoUrls() != null ? new ArrayList<>(issue.getVideoUrls()) : new ArrayList<>());
+        response.setPhotoThumbnailUrls(MediaRenditions.smallUrls(response.getPhotoUrls(), renditions));
+        response.setPhotoPreviewUrls(MediaRenditions.mediumUrls(response.getPhotoUrls(), renditions));
         response.setCreatedAt(issue.getCreatedAt());
         response.setUpdatedAt(issue.getUpdatedAt());
         response.setAssigned(issue.getAssigned());
@@ -308,12 +577,10 @@ public class IssueServiceImpl implements IssueService {
             response.setAssignedTo(staffResponse);
         }
         
-        // Add remark information if service is available
-        if (remarkService != null) {
-            remarkService.getRemarkByIssueId(issue.getId()).ifPresent(remark -> {
-                response.setRemarkType(remark.getRemarkType().getValue());
-                response.setRemarkViewed(remark.getIsViewed());
-            });
+        // Add remark information if one exists for the issue
+        if (remark != null) {
+            response.setRemarkType(remark.getRemarkType().getValue());
+            response.setRemarkViewed(remark.getIsViewed());
         }
 
         return response;
@@ -363,8 +630,9 @@ public class IssueServiceImpl implements IssueService {
         // Check if at least one media file is provided
         boolean hasPhotos = photos != null && !photos.isEmpty();
         boolean hasVideos = videos != null && !videos.isEmpty();
+        boolean hasUploads = request.getUploadIds() != null && !request.getUploadIds().isEmpty();
         
-        if (!hasPhotos && !hasVideos) {
+        if (!hasPhotos && !hasVideos && !hasUploads) {
             errors.add("At least one photo or video must be provided");
         }
 
@@ -411,6 +679,7 @@ public class IssueServiceImpl implements IssueService {
                 .orElseThrow(() -> new ResourceNotFoundException("Staff not found with id: " + staffId));
 
         // Update the issue
+        boolean wasAssigned = Boolean.TRUE.equals(issue.getAssigned());
         issue.setAssigned(true);
         issue.setAssignedTo(staff);
         if (priority != null) {
@@ -418,38 +687,29 @@ public class IssueServiceImpl implements IssueService {
             issue.setPriority(priority);
         }
         issueRepository.save(issue); // Save the updated issue
+        issueStatsService.assignmentChanged(issue.getStatus(), wasAssigned, true);
     }
 
     @Override
-    public List<IssueResponse> getUnassignedIssues(int page, int size) {
+    @Transactional(readOnly = true)
+    public PageResponse<IssueResponse> getUnassignedIssues(int page, int size) {
         // Get unassigned issues excluding completed ones (completed issues never go back to unassigned)
-        List<Issue> unassignedIssues = issueRepository.findByAssignedFalse();
-        return unassignedIssues.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return toPageResponse(issueRepository.findByAssignedFalse(pageRequest(page, size)));
     }
 
     @Override
-    public List<IssueResponse> getAssignedIssues(int page, int size) {
-        List<Issue> assignedIssues = issueRepository.findByAssignedTrue();
-        return assignedIssues.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public PageResponse<IssueResponse> getAssignedIssues(int page, int size) {
+        return toPageResponse(issueRepository.findByAssignedTrue(pageRequest(page, size)));
     }
 
     @Override
-    public List<IssueResponse> getAssignedIssuesByStaff(Long staffId, int page, int size) {
-        try {
-            logger.info("Fetching assigned issues for staff ID: {}", staffId);
-            List<Issue> assignedIssues = issueRepository.findByAssignedTrueAndAssignedToId(staffId);
-            logger.info("Found {} assigned issues for staff ID: {}", assignedIssues.size(), staffId);
-            return assignedIssues.stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            logger.error("Error fetching assigned issues for staff ID: " + staffId, e);
-            return new ArrayList<>();
-        }
+    @Transactional(readOnly = true)
+    public PageResponse<IssueResponse> getAssignedIssuesByStaff(Long staffId, int page, int size) {
+        logger.info("Fetching assigned issues for staff ID: {}", staffId);
+        Page<Issue> assignedIssues = issueRepository.findByAssignedTrueAndAssignedToId(staffId, pageRequest(page, size));
+        logger.info("Found {} assigned issues for staff ID: {}", assignedIssues.getTotalElements(), staffId);
+        return toPageResponse(assignedIssues);
     }
 
     @Override
@@ -459,13 +719,9 @@ public class IssueServiceImpl implements IssueService {
     }
 
     @Override
-    public List<IssueResponse> getCompletedIssues() {
-        List<Issue> completedIssues = issueRepository.findCompletedIssues("completed");
-
-        // Convert entities to DTOs if needed
-        return completedIssues.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public PageResponse<IssueResponse> getCompletedIssues(int page, int size) {
+        return toPageResponse(issueRepository.findCompletedIssues("COMPLETED", pageRequest(page, size)));
     }
 
 
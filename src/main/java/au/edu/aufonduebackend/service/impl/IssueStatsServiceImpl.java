@@ -0,0 +1,263 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.repository.IssueRemarkRepository;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.service.IssueStatsService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters behind /api/issues/stats and /api/admin/issues/stats.
+// Each instance keeps its own copy: changes made on this node are applied as they
+// commit, changes made by other nodes (or by hand in the database) show up at the
+// next reconciliation.
+@Service
+@RequiredArgsConstructor
+public class IssueStatsServiceImpl implements IssueStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IssueStatsServiceImpl.class);
+    private static final int MAX_RECONCILE_ATTEMPTS = 3;
+
+    private final IssueRepository issueRepository;
+    private final IssueRemarkRepository issueRemarkRepository;
+
+    private final Object lock = new Object();
+    // bumped on every applied delta so reconcile can tell if it raced with a writer
+    private final AtomicLong mutations = new AtomicLong();
+    // deltas whose transaction is committing but has not applied them yet; the
+    // database may already count those rows while the counters do not
+    private final AtomicInteger committing = new AtomicInteger();
+
+    private Map<String, Long> statusCounts = new HashMap<>();
+    private long total;
+    private long unassigned;
+    private long unviewedNewRemarks;
+    private boolean loaded;
+
+    @Override
+    public Map<String, Long> getStats() {
+        if (!isLoaded()) {
+            reconcile();
+        }
+
+        synchronized (lock) {
+            long pending = statusCounts.getOrDefault("PENDING", 0L);
+            long inProgress = statusCounts.getOrDefault("IN PROGRESS", 0L);
+            long completed = statusCounts.getOrDefault("COMPLETED", 0L);
+
+            Map<String, Long> stats = new HashMap<>();
+            stats.put("totalIssues", total);
+            stats.put("incompleteIssues", pending + inProgress);
+            stats.put("completedIssues", completed);
+            stats.put("pendingIssues", pending);
+            stats.put("inProgressIssues", inProgress);
+            stats.put("unassignedIssues", unassigned);
+            stats.put("newUnviewedRemarks", unviewedNewRemarks);
+            return stats;
+        }
+    }
+
+    @Override
+    public void issueCreated(String status, boolean assigned) {
+        afterCommit(() -> {
+            total++;
+            addStatus(status, 1);
+            if (countsAsUnassigned(status, assigned)) {
+                unassigned++;
+            }
+        });
+    }
+
+    @Override
+    public void issueDeleted(String status, boolean assigned, boolean hadUnviewedNewRemark) {
+        afterCommit(() -> {
+            total--;
+            addStatus(status, -1);
+            if (countsAsUnassigned(status, assigned)) {
+                unassigned--;
+            }
+            if (hadUnviewedNewRemark) {
+                unviewedNewRemarks--;
+            }
+        });
+    }
+
+    @Override
+    public void statusChanged(String oldStatus, String newStatus, boolean assigned) {
+        if (normalize(oldStatus).equals(normalize(newStatus))) {
+            return;
+        }
+        afterCommit(() -> {
+            addStatus(oldStatus, -1);
+            addStatus(newStatus, 1);
+            if (countsAsUnassigned(oldStatus, assigned)) {
+                unassigned--;
+            }
+            if (countsAsUnassigned(newStatus, assigned)) {
+                unassigned++;
+            }
+        });
+    }
+
+    @Override
+    public void assignmentChanged(String status, boolean wasAssigned, boolean nowAssigned) {
+        if (wasAssigned == nowAssigned) {
+            return;
+        }
+        afterCommit(() -> {
+            if (countsAsUnassigned(status, wasAssigned)) {
+                unassigned--;
+            }
+            if (countsAsUnassigned(status, nowAssigned)) {
+                unassigned++;
+            }
+        });
+    }
+
+    @Override
+    public void unviewedNewRemarksChanged(long delta) {
+        if (delta == 0) {
+            return;
+        }
+        afterCommit(() -> unviewedNewRemarks += delta);
+    }
+
+    @Override
+    public void reconcileAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reconcile();
+                }
+            });
+        } else {
+            reconcile();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            // The first stats request will try again
+            logger.error("Failed to load issue counters on startup: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${issues.stats.reconcile-interval-ms:300000}",
+            initialDelayString = "${issues.stats.reconcile-interval-ms:300000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Issue counter reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void reconcile() {
+        for (int attempt = 1; attempt <= MAX_RECONCILE_ATTEMPTS; attempt++) {
+            long seen = mutations.get();
+
+            Map<String, Long> counts = new HashMap<>();
+            long newTotal = 0;
+            List<Object[]> rows = issueRepository.countGroupedByStatus();
+            for (Object[] row : rows) {
+                long count = ((Number) row[1]).longValue();
+                counts.merge(normalize((String) row[0]), count, Long::sum);
+                newTotal += count;
+            }
+            long newUnassigned = issueRepository.countUnassigned();
+            long newUnviewed = issueRemarkRepository.countNewUnviewedRemarks();
+
+            synchronized (lock) {
+                // A delta committed while we were counting may or may not be in the
+                // result, so only take the snapshot if nothing moved in between and
+                // no transaction that might already be counted is still to apply one
+                if (loaded && (mutations.get() != seen || committing.get() > 0)) {
+                    continue;
+                }
+                long drift = Math.abs(newTotal - total) + Math.abs(newUnassigned - unassigned)
+                        + Math.abs(newUnviewed - unviewedNewRemarks);
+                if (loaded && drift > 0) {
+                    logger.warn("Issue counters drifted by {} since the last reconciliation", drift);
+                }
+                statusCounts = counts;
+                total = newTotal;
+                unassigned = newUnassigned;
+                unviewedNewRemarks = newUnviewed;
+                loaded = true;
+                return;
+            }
+        }
+        logger.info("Issue counters changed during reconciliation, keeping incremental values");
+    }
+
+    private boolean isLoaded() {
+        synchronized (lock) {
+            return loaded;
+        }
+    }
+
+    // Applies the change only if the current transaction commits
+    private void afterCommit(Runnable delta) {
+        Runnable apply = () -> {
+            synchronized (lock) {
+                delta.run();
+                mutations.incrementAndGet();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean counted;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    committing.incrementAndGet();
+                    counted = true;
+                }
+
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (counted) {
+                        committing.decrementAndGet();
+                    }
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private void addStatus(String status, long delta) {
+        statusCounts.merge(normalize(status), delta, Long::sum);
+    }
+
+    // Mirrors IssueRepository.findByAssignedFalse: completed issues never count as unassigned
+    private static boolean countsAsUnassigned(String status, boolean assigned) {
+        return !assigned && !"COMPLETED".equals(normalize(status));
+    }
+
+    private static String normalize(String status) {
+        return status == null ? "" : status.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,283 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.service.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// Stores media on the local filesystem instead of Azure, for development, tests and
+// on-prem installs: run with the local-storage profile and no Blob connection string.
+// Files live under rootDir in two levels of hashed shard directories (ab/cd/name),
+// so no directory grows past a few thousand entries, and are served by FileController.
+// Each file is written to a temporary name and moved into place, so readers never
+// see a partial file.
+@Service
+@Profile(LocalStorageServiceImpl.PROFILE)
+public class LocalStorageServiceImpl implements StorageService {
+
+    public static final String PROFILE = "local-storage";
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalStorageServiceImpl.class);
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,200}");
+    private static final String CHUNKS_DIR = ".chunks";
+    private static final String TEMP_DIR = ".tmp";
+    private static final long TRANSFER_SIZE = 8L * 1024 * 1024;
+
+    private final Path rootDir;
+    private final String baseUrl;
+
+    public LocalStorageServiceImpl(@Value("${storage.local.root-dir:uploads}") String rootDir,
+                                   @Value("${storage.local.base-url:http://localhost:8080/api/files}") String baseUrl) {
+        this.rootDir = Paths.get(rootDir).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file) {
+        try {
+            String name = StorageNames.contentAddressedName(file);
+            Path target = pathFor(name);
+            // Same content stored before: nothing to write
+            if (Files.exists(target)) {
+                return urlFor(name);
+            }
+            try (InputStream data = file.getInputStream()) {
+                writeAtomically(target, Channels.newChannel(data), -1);
+            }
+            return urlFor(name);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file on local disk", e);
+        }
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file, String blobName) {
+        try (InputStream data = file.getInputStream()) {
+            writeAtomically(pathFor(blobName), Channels.newChannel(data), -1);
+            return urlFor(blobName);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file on local disk", e);
+        }
+    }
+
+    @Override
+    public String uploadDerivedFile(String originalUrl, String suffix, byte[] data, String contentType) {
+        try {
+            String name = StorageNames.derivedName(originalUrl, suffix);
+            writeAtomically(pathFor(name), Channels.newChannel(new ByteArrayInputStream(data)), data.length);
+            return urlFor(name);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file on local disk", e);
+        }
+    }
+
+    @Override
+    public InputStream openFile(String fileUrl) {
+        try {
+            return Files.newInputStream(resolve(StorageNames.nameOf(fileUrl)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file from local disk", e);
+        }
+    }
+
+    // Chunks are kept as separate files until commit. Across several instances this
+    // needs rootDir on a shared volume, like Blob storage would be.
+    @Override
+    public void stageChunk(String blobName, int chunkIndex, InputStream data, long length) {
+        try {
+            Path chunk = chunkDir(blobName).resolve(Integer.toString(chunkIndex));
+            writeAtomically(chunk, Channels.newChannel(data), length);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store chunk on local disk", e);
+        }
+    }
+
+    @Override
+    public String commitChunks(String blobName, int chunkCount, String contentType) {
+        Path chunkDir = chunkDir(blobName);
+        Path target = pathFor(checkedName(blobName));
+        try {
+            Path temp = tempFile();
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (int i = 0; i < chunkCount; i++) {
+                    try (FileChannel in = FileChannel.open(chunkDir.resolve(Integer.toString(i)), StandardOpenOption.READ)) {
+                        // kernel-side copy between the two files
+                        long size = in.size();
+                        long position = 0;
+                        while (position < size) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                    }
+                }
+                out.force(false);
+            }
+            moveIntoPlace(temp, target);
+            deleteDirectory(chunkDir);
+            return urlFor(blobName);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to assemble upload on local disk", e);
+        }
+    }
+
+    @Override
+    public void deleteFile(String fileUrl) {
+        try {
+            Files.deleteIfExists(resolve(StorageNames.nameOf(fileUrl)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete file from local disk", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> deleteFiles(Collection<String> fileUrls) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (String fileUrl : fileUrls) {
+            try {
+                deleteFile(fileUrl);
+            } catch (RuntimeException e) {
+                failures.put(fileUrl, String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+            }
+        }
+        return failures;
+    }
+
+    // There is nothing in front of the disk that could check a signed URL, so the
+    // direct upload endpoint is not registered with this profile
+    @Override
+    public String createUploadUrl(String blobName, Duration validFor) {
+        throw new UnsupportedOperationException("Direct uploads need Azure Blob Storage");
+    }
+
+    @Override
+    public Optional<StoredFile> claimUpload(String blobName, String finalName) {
+        Path source = resolve(blobName);
+        if (!Files.isRegularFile(source)) {
+            return Optional.empty();
+        }
+        try {
+            moveIntoPlace(source, pathFor(checkedName(finalName)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to move upload on local disk", e);
+        }
+        return describeFile(finalName);
+    }
+
+    @Override
+    public Optional<StoredFile> describeFile(String blobName) {
+        Path file = resolve(blobName);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new StoredFile(urlFor(blobName), Files.size(file), Files.probeContentType(file)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read file from local disk", e);
+        }
+    }
+
+    // Where a stored file is, or would be. Files from before the sharded layout
+    // (flat in rootDir) are still found.
+    public Path resolve(String name) {
+        Path sharded = pathFor(checkedName(name));
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+        Path flat = rootDir.resolve(name);
+        return Files.exists(flat) ? flat : sharded;
+    }
+
+    private Path pathFor(String name) {
+        String shard = DigestUtils.md5DigestAsHex(name.getBytes(StandardCharsets.UTF_8));
+        return rootDir.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(name);
+    }
+
+    private Path chunkDir(String blobName) {
+        return rootDir.resolve(CHUNKS_DIR).resolve(checkedName(blobName));
+    }
+
+    private String urlFor(String name) {
+        return baseUrl + "/" + name;
+    }
+
+    // Names end up in paths, so nothing that could climb out of rootDir gets through
+    private static String checkedName(String name) {
+        if (name == null || !SAFE_NAME.matcher(name).matches() || name.contains("..")) {
+            throw new IllegalArgumentException("Invalid file name: " + name);
+        }
+        return name;
+    }
+
+    // expectedSize < 0 means any size
+    private void writeAtomically(Path target, ReadableByteChannel source, long expectedSize) throws IOException {
+        Path temp = tempFile();
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                // with a blocking source, transferFrom only comes back short at end of stream
+                long position = 0;
+                long count;
+                while ((count = out.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+                    position += count;
+                }
+                if (expectedSize >= 0 && position != expectedSize) {
+                    throw new IOException("Expected " + expectedSize + " bytes but received " + position);
+                }
+                out.force(false);
+            }
+            moveIntoPlace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path tempFile() throws IOException {
+        Path tempDir = Files.createDirectories(rootDir.resolve(TEMP_DIR));
+        return Files.createFile(tempDir.resolve(UUID.randomUUID() + ".part"));
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // another request stored the same content first
+            logger.debug("{} already stored", target.getFileName());
+        }
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Could not remove chunk directory {}: {}", directory, e.getMessage());
+        }
+    }
+}
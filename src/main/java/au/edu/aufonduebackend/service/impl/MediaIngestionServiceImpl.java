@@ -0,0 +1,473 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.dto.response.MediaAttachmentResponse;
+import au.edu.aufonduebackend.model.entity.Issue;
+import au.edu.aufonduebackend.model.entity.MediaAttachment;
+import au.edu.aufonduebackend.model.entity.User;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.repository.MediaAttachmentRepository;
+import au.edu.aufonduebackend.service.FcmService;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.MediaIngestionService;
+import au.edu.aufonduebackend.service.MediaUploadService;
+import au.edu.aufonduebackend.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// Each attachment is uploaded by a worker on the instance that spooled it. Workers
+// claim an attachment with a conditional update, so the immediate hand-off and the
+// retry poller never upload the same file twice. Failed uploads are retried with
+// exponential backoff, and ones stuck on an instance that never came back are
+// failed after a while; once an issue has no unfinished attachments left, its
+// reporter gets a push notification.
+@Service
+public class MediaIngestionServiceImpl implements MediaIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaIngestionServiceImpl.class);
+    private static final int POLL_BATCH_SIZE = 50;
+
+    private final MediaAttachmentRepository attachmentRepository;
+    private final IssueRepository issueRepository;
+    private final FcmService fcmService;
+    private final UserService userService;
+    private final ImageRenditionService imageRenditionService;
+    private final MediaUploadService mediaUploadService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor ingestionExecutor;
+
+    @Value("${media.ingest.spool-dir:${java.io.tmpdir}/aufondue-spool}")
+    private String spoolDir;
+
+    @Value("${media.ingest.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${media.ingest.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${media.ingest.retry-base-delay-ms:10000}")
+    private long retryBaseDelayMs = 10000;
+
+    // Far longer than any upload or retry takes, so only a node that is gone leaves
+    // an attachment unfinished this long
+    @Value("${media.ingest.abandon-after-hours:6}")
+    private long abandonAfterHours = 6;
+
+    private String nodeId;
+
+    public MediaIngestionServiceImpl(MediaAttachmentRepository attachmentRepository,
+                                     IssueRepository issueRepository,
+                                     FcmService fcmService,
+                                     UserService userService,
+                                     ImageRenditionService imageRenditionService,
+                                     MediaUploadService mediaUploadService,
+                                     TransactionTemplate transactionTemplate,
+                                     @Qualifier("mediaIngestionExecutor") Executor ingestionExecutor) {
+        this.attachmentRepository = attachmentRepository;
+        this.issueRepository = issueRepository;
+        this.fcmService = fcmService;
+        this.userService = userService;
+        this.imageRenditionService = imageRenditionService;
+        this.mediaUploadService = mediaUploadService;
+        this.transactionTemplate = transactionTemplate;
+        this.ingestionExecutor = ingestionExecutor;
+    }
+
+    @Override
+    public List<MediaAttachment> spool(List<MultipartFile> photos, List<MultipartFile> videos) {
+        List<MediaAttachment> attachments = new ArrayList<>();
+        try {
+            Path directory = Files.createDirectories(Paths.get(spoolDir));
+            if (photos != null) {
+                for (MultipartFile photo : photos) {
+                    attachments.add(spoolFile(directory, photo, MediaAttachment.Kind.PHOTO));
+                }
+            }
+            if (videos != null) {
+                for (MultipartFile video : videos) {
+                    attachments.add(spoolFile(directory, video, MediaAttachment.Kind.VIDEO));
+                }
+            }
+            return attachments;
+        } catch (IOException e) {
+            discardSpooled(attachments);
+            throw new RuntimeException("Failed to spool media: " + e.getMessage(), e);
+        }
+    }
+
+    private MediaAttachment spoolFile(Path directory, MultipartFile file, MediaAttachment.Kind kind) throws IOException {
+        String originalFilename = file.getOriginalFilename();
+        String extension = originalFilename != null && originalFilename.contains(".")
+                ? originalFilename.substring(originalFilename.lastIndexOf(".")) : "";
+        Path target = directory.resolve(UUID.randomUUID() + extension);
+        // Usually a rename of the servlet container's own temp file
+        file.transferTo(target);
+
+        MediaAttachment attachment = new MediaAttachment();
+        attachment.setKind(kind);
+        attachment.setOriginalFilename(originalFilename);
+        attachment.setContentType(file.getContentType());
+        attachment.setSizeBytes(file.getSize());
+        attachment.setSpoolPath(target.toString());
+        attachment.setSpoolNode(nodeId());
+        attachment.setNextAttemptAt(Instant.now());
+        return attachment;
+    }
+
+    @Override
+    public List<MediaAttachmentResponse> register(Issue issue, List<MediaAttachment> attachments) {
+        attachments.forEach(attachment -> attachment.setIssue(issue));
+        List<MediaAttachment> saved = attachmentRepository.saveAll(attachments);
+
+        List<Long> attachmentIds = saved.stream().map(MediaAttachment::getId).toList();
+        afterCommit(() -> attachmentIds.forEach(this::enqueue));
+        return saved.stream().map(MediaIngestionServiceImpl::toResponse).toList();
+    }
+
+    @Override
+    public void discardSpooled(List<MediaAttachment> attachments) {
+        attachments.forEach(attachment -> deleteSpoolFile(attachment.getSpoolPath()));
+    }
+
+    @Override
+    public void discardForIssue(Long issueId) {
+        List<String> spoolPaths = attachmentRepository.findByIssueIdOrderByIdAsc(issueId).stream()
+                .map(MediaAttachment::getSpoolPath)
+                .toList();
+        attachmentRepository.deleteByIssueId(issueId);
+        // A worker that is mid-upload will find its attachment gone and remove the blob
+        afterCommit(() -> spoolPaths.forEach(MediaIngestionServiceImpl::deleteSpoolFile));
+    }
+
+    @Override
+    public List<MediaAttachmentResponse> getAttachments(Long issueId) {
+        return attachmentRepository.findByIssueIdOrderByIdAsc(issueId).stream()
+                .map(MediaIngestionServiceImpl::toResponse)
+                .toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        try {
+            Integer requeued = transactionTemplate.execute(status -> attachmentRepository.requeueInterrupted(nodeId()));
+            if (requeued != null && requeued > 0) {
+                logger.info("Re-queued {} media uploads interrupted by a restart", requeued);
+            }
+            pollDue();
+        } catch (Exception e) {
+            logger.error("Failed to resume pending media uploads: {}", e.getMessage());
+        }
+    }
+
+    // Picks up retries that are due, and anything the worker pool could not take
+    @Scheduled(fixedDelayString = "${media.ingest.poll-interval-ms:15000}",
+            initialDelayString = "${media.ingest.poll-interval-ms:15000}")
+    public void pollDue() {
+        try {
+            attachmentRepository.findDueIds(nodeId(), Instant.now(), PageRequest.of(0, POLL_BATCH_SIZE))
+                    .forEach(this::enqueue);
+        } catch (Exception e) {
+            logger.error("Media upload poll failed: {}", e.getMessage());
+        }
+    }
+
+    // Attachments are only uploaded by the node that spooled them. If that node is
+    // replaced, its spool directory goes with it and nothing else will finish them,
+    // so any instance fails them here and the reporter still hears back.
+    @Scheduled(fixedDelayString = "${media.ingest.abandon-check-interval-ms:900000}",
+            initialDelayString = "${media.ingest.abandon-check-interval-ms:900000}")
+    public void failAbandoned() {
+        try {
+            Instant cutoff = Instant.now().minus(Duration.ofHours(abandonAfterHours));
+            for (Long attachmentId : attachmentRepository.findAbandonedIds(cutoff, PageRequest.of(0, POLL_BATCH_SIZE))) {
+                Completion completion = transactionTemplate.execute(status -> {
+                    MediaAttachment attachment = attachmentRepository.findById(attachmentId).orElse(null);
+                    if (attachment == null) {
+                        return null;
+                    }
+                    String error = "Not uploaded by " + attachment.getSpoolNode() + " in time";
+                    if (attachmentRepository.failAbandoned(attachmentId, cutoff, error) == 0) {
+                        return null;
+                    }
+                    // keep the loaded copy in line with the row
+                    attachment.setStatus(MediaAttachment.Status.FAILED);
+                    attachment.setLastError(error);
+                    logger.warn("Gave up on attachment {} spooled on {}", attachmentId, attachment.getSpoolNode());
+                    return completionOf(attachment.getIssue());
+                });
+                if (completion != null) {
+                    notifyIfFinished(completion);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Abandoned media check failed: {}", e.getMessage());
+        }
+    }
+
+    private void enqueue(Long attachmentId) {
+        try {
+            ingestionExecutor.execute(() -> process(attachmentId));
+        } catch (RejectedExecutionException e) {
+            // Still PENDING, so the next poll will offer it again
+            logger.warn("Media upload queue is full, attachment {} will be retried", attachmentId);
+        }
+    }
+
+    void process(Long attachmentId) {
+        MediaAttachment claimed = transactionTemplate.execute(status ->
+                attachmentRepository.claim(attachmentId) == 1
+                        ? attachmentRepository.findById(attachmentId).orElse(null)
+                        : null);
+        if (claimed == null) {
+            return;
+        }
+        String spoolPath = claimed.getSpoolPath();
+
+        String url;
+        try {
+            SpooledFile file = new SpooledFile(claimed);
+            url = mediaUploadService.store(file);
+            if (claimed.getKind() == MediaAttachment.Kind.PHOTO) {
+                imageRenditionService.createRenditions(file, url);
+            }
+        } catch (Exception e) {
+            logger.warn("Upload of attachment {} failed (attempt {}): {}", attachmentId, claimed.getAttempts(), e.getMessage());
+            recordFailure(attachmentId, e);
+            return;
+        }
+
+        Completion completion;
+        try {
+            completion = transactionTemplate.execute(status -> complete(attachmentId, url));
+        } catch (RuntimeException e) {
+            // This attachment does not reference the blob yet, so drop it (unless
+            // identical content is used elsewhere) and let the retry upload again
+            mediaUploadService.deleteQuietly(List.of(url));
+            recordFailure(attachmentId, e);
+            return;
+        }
+        if (completion == null) {
+            // The issue was deleted while the file was uploading
+            mediaUploadService.deleteQuietly(List.of(url));
+            deleteSpoolFile(spoolPath);
+            return;
+        }
+        deleteSpoolFile(spoolPath);
+        notifyIfFinished(completion);
+    }
+
+    private Completion complete(Long attachmentId, String url) {
+        MediaAttachment attachment = attachmentRepository.findById(attachmentId).orElse(null);
+        if (attachment == null) {
+            return null;
+        }
+        Issue issue = attachment.getIssue();
+        if (attachment.getKind() == MediaAttachment.Kind.VIDEO) {
+            issueRepository.addVideoUrl(issue.getId(), url);
+        } else {
+            issueRepository.addPhotoUrl(issue.getId(), url);
+        }
+        issueRepository.touch(issue.getId(), Instant.now());
+
+        attachment.setStatus(MediaAttachment.Status.READY);
+        attachment.setUrl(url);
+        attachment.setSpoolPath(null);
+        attachment.setLastError(null);
+        attachmentRepository.save(attachment);
+        return completionOf(issue);
+    }
+
+    private void recordFailure(Long attachmentId, Exception error) {
+        Completion completion = transactionTemplate.execute(status -> {
+            MediaAttachment attachment = attachmentRepository.findById(attachmentId).orElse(null);
+            if (attachment == null) {
+                return null;
+            }
+            attachment.setLastError(truncate(error.getMessage()));
+            if (attachment.getAttempts() >= maxAttempts) {
+                attachment.setStatus(MediaAttachment.Status.FAILED);
+                String spoolPath = attachment.getSpoolPath();
+                afterCommit(() -> deleteSpoolFile(spoolPath));
+                attachment.setSpoolPath(null);
+                attachmentRepository.save(attachment);
+                return completionOf(attachment.getIssue());
+            }
+            long delayMs = retryBaseDelayMs << Math.min(attachment.getAttempts() - 1, 10);
+            attachment.setStatus(MediaAttachment.Status.PENDING);
+            attachment.setNextAttemptAt(Instant.now().plus(Duration.ofMillis(delayMs)));
+            attachmentRepository.save(attachment);
+            return null;
+        });
+        if (completion != null) {
+            notifyIfFinished(completion);
+        }
+    }
+
+    // Only reports back once the issue's last attachment has finished, either way.
+    // Attachments of one issue finishing at the same time take turns on the issue
+    // row, so the last one to commit sees all the others finished and reports.
+    private Completion completionOf(Issue issue) {
+        attachmentRepository.flush();
+        issueRepository.lockById(issue.getId());
+        if (attachmentRepository.countUnfinished(issue.getId()) > 0) {
+            return new Completion(issue.getId(), false, List.of(), 0, 0);
+        }
+        int ready = 0;
+        int failed = 0;
+        for (MediaAttachment attachment : attachmentRepository.findByIssueIdOrderByIdAsc(issue.getId())) {
+            if (attachment.getStatus() == MediaAttachment.Status.READY) {
+                ready++;
+            } else {
+                failed++;
+            }
+        }
+        User reporter = issue.getReportedBy();
+        return new Completion(issue.getId(), true,
+                reporter != null ? userService.getFcmTokens(reporter.getId()) : List.of(), ready, failed);
+    }
+
+    private void notifyIfFinished(Completion completion) {
+        if (!completion.finished() || completion.reporterFcmTokens().isEmpty()) {
+            return;
+        }
+        fcmService.sendMediaReadyNotification(completion.reporterFcmTokens(), completion.issueId(),
+                completion.ready(), completion.failed());
+    }
+
+    private String nodeId() {
+        if (nodeId == null) {
+            if (configuredNodeId != null && !configuredNodeId.isBlank()) {
+                nodeId = configuredNodeId;
+            } else {
+                try {
+                    nodeId = InetAddress.getLocalHost().getHostName();
+                } catch (IOException e) {
+                    nodeId = "local";
+                }
+            }
+        }
+        return nodeId;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void deleteSpoolFile(String spoolPath) {
+        if (spoolPath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(spoolPath));
+        } catch (IOException e) {
+            logger.warn("Could not delete spooled file {}: {}", spoolPath, e.getMessage());
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    private static MediaAttachmentResponse toResponse(MediaAttachment attachment) {
+        return new MediaAttachmentResponse(
+                attachment.getId(),
+                attachment.getKind().name(),
+                attachment.getStatus().name(),
+                attachment.getOriginalFilename(),
+                attachment.getUrl(),
+                attachment.getAttempts(),
+                attachment.getLastError()
+        );
+    }
+
+    private record Completion(Long issueId, boolean finished, List<String> reporterFcmTokens, int ready, int failed) {
+    }
+
+    // Presents a spooled file to StorageService the way an upload request would
+    private static class SpooledFile implements MultipartFile {
+        private final MediaAttachment attachment;
+        private final Path path;
+
+        SpooledFile(MediaAttachment attachment) {
+            this.attachment = attachment;
+            this.path = Paths.get(attachment.getSpoolPath());
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return attachment.getOriginalFilename();
+        }
+
+        @Override
+        public String getContentType() {
+            return attachment.getContentType();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return attachment.getSizeBytes() != null ? attachment.getSizeBytes() : path.toFile().length();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath());
+        }
+    }
+}
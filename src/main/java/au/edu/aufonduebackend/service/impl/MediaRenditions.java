@@ -0,0 +1,39 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.entity.MediaRendition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Builds the rendition URL lists of a response. They line up with photoUrls, and a
+// photo without a usable rendition falls back to its original URL, so clients can
+// always pick the entry at the same index.
+final class MediaRenditions {
+
+    private MediaRenditions() {
+    }
+
+    static List<String> smallUrls(List<String> photoUrls, Map<String, MediaRendition> renditions) {
+        return urls(photoUrls, renditions, MediaRendition::getSmallUrl);
+    }
+
+    static List<String> mediumUrls(List<String> photoUrls, Map<String, MediaRendition> renditions) {
+        return urls(photoUrls, renditions, MediaRendition::getMediumUrl);
+    }
+
+    private static List<String> urls(List<String> photoUrls, Map<String, MediaRendition> renditions,
+                                     Function<MediaRendition, String> size) {
+        List<String> urls = new ArrayList<>();
+        if (photoUrls == null) {
+            return urls;
+        }
+        for (String photoUrl : photoUrls) {
+            MediaRendition rendition = renditions.get(photoUrl);
+            String url = rendition != null ? size.apply(rendition) : null;
+            urls.add(url != null ? url : photoUrl);
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,107 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.service.BlobDeletionService;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.MediaUploadService;
+import au.edu.aufonduebackend.service.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+@Service
+public class MediaUploadServiceImpl implements MediaUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaUploadServiceImpl.class);
+
+    private final StorageService storageService;
+    private final ImageRenditionService imageRenditionService;
+    private final BlobDeletionService blobDeletionService;
+    private final Executor mediaUploadExecutor;
+
+    public MediaUploadServiceImpl(StorageService storageService,
+                                  ImageRenditionService imageRenditionService,
+                                  BlobDeletionService blobDeletionService,
+                                  @Qualifier("mediaUploadExecutor") Executor mediaUploadExecutor) {
+        this.storageService = storageService;
+        this.imageRenditionService = imageRenditionService;
+        this.blobDeletionService = blobDeletionService;
+        this.mediaUploadExecutor = mediaUploadExecutor;
+    }
+
+    @Override
+    public List<String> uploadAll(List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<CompletableFuture<String>> uploads = new ArrayList<>();
+        for (MultipartFile file : files) {
+            uploads.add(CompletableFuture.supplyAsync(() -> upload(file), mediaUploadExecutor));
+        }
+
+        // Wait for every upload, not just the first failure, so none is left
+        // running unnoticed and all successful ones can be cleaned up
+        List<String> fileUrls = new ArrayList<>();
+        RuntimeException failure = null;
+        for (CompletableFuture<String> upload : uploads) {
+            try {
+                fileUrls.add(upload.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException runtime ? runtime : e;
+                }
+            }
+        }
+
+        if (failure != null) {
+            deleteQuietly(fileUrls);
+            throw failure;
+        }
+        return fileUrls;
+    }
+
+    // Photos get their renditions on the same worker, while the file is still at hand
+    private String upload(MultipartFile file) {
+        String fileUrl = store(file);
+        if (isImage(file.getContentType())) {
+            imageRenditionService.createRenditions(file, fileUrl);
+        }
+        return fileUrl;
+    }
+
+    @Override
+    public String store(MultipartFile file) {
+        String fileUrl = storageService.uploadFile(file);
+        return switch (blobDeletionService.cancelDeletion(fileUrl)) {
+            // queued, and now it will not be deleted
+            case CANCELLED -> fileUrl;
+            // the shared blob may vanish at any moment: keep a copy of our own
+            case IN_PROGRESS -> storageService.uploadFile(file, StorageNames.uniqueName(fileUrl));
+            // nothing queued, or a deletion finished just before: check the blob is there
+            case NOT_QUEUED -> storageService.describeFile(StorageNames.nameOf(fileUrl)).isPresent()
+                    ? fileUrl
+                    : storageService.uploadFile(file);
+        };
+    }
+
+    static boolean isImage(String contentType) {
+        return contentType != null && contentType.toLowerCase().startsWith("image/");
+    }
+
+    @Override
+    public void deleteQuietly(List<String> fileUrls) {
+        try {
+            blobDeletionService.scheduleDeletion(fileUrls);
+        } catch (Exception e) {
+            logger.error("Failed to queue {} uploads for deletion: {}", fileUrls.size(), e.getMessage());
+        }
+    }
+}
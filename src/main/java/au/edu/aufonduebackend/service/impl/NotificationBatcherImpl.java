@@ -0,0 +1,184 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.service.FcmService;
+import au.edu.aufonduebackend.service.NotificationBatcher;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.SendResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The first message into an empty buffer schedules a flush after the window; a
+// full buffer is flushed straight away. Flushes only swap the buffer out under the
+// lock, the FCM call itself runs on the notification pool.
+@Service
+public class NotificationBatcherImpl implements NotificationBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationBatcherImpl.class);
+    // FCM's limit for one sendEach call
+    private static final int FCM_MAX_BATCH = 500;
+
+    private final FcmService fcmService;
+    private final Executor notificationExecutor;
+    private final TaskScheduler taskScheduler;
+    private final int maxBatchSize;
+    private final Duration window;
+    private final int maxPending;
+
+    private final Object lock = new Object();
+    private List<Pending> buffer = new ArrayList<>();
+    private long pending;
+
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong messagesFailed = new AtomicLong();
+    private final AtomicLong messagesRejected = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong sendMillisTotal = new AtomicLong();
+    private final AtomicLong lastBatchMillis = new AtomicLong();
+
+    public NotificationBatcherImpl(FcmService fcmService,
+                                   @Qualifier("notificationExecutor") Executor notificationExecutor,
+                                   TaskScheduler taskScheduler,
+                                   @Value("${notifications.batch.max-size:500}") int maxBatchSize,
+                                   @Value("${notifications.batch.window-ms:200}") long windowMs,
+                                   @Value("${notifications.batch.max-pending:10000}") int maxPending) {
+        this.fcmService = fcmService;
+        this.notificationExecutor = notificationExecutor;
+        this.taskScheduler = taskScheduler;
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, FCM_MAX_BATCH));
+        this.window = Duration.ofMillis(windowMs);
+        this.maxPending = maxPending;
+    }
+
+    @Override
+    public CompletableFuture<Outcome> submit(Message message) {
+        Pending entry = new Pending(message, new CompletableFuture<>());
+        List<Pending> full = null;
+        boolean scheduleFlush = false;
+        synchronized (lock) {
+            // pending counts messages buffered or in a batch not sent yet
+            if (pending >= maxPending) {
+                messagesRejected.incrementAndGet();
+                return CompletableFuture.completedFuture(Outcome.failed(null, "Notification queue full"));
+            }
+            pending++;
+            buffer.add(entry);
+            if (buffer.size() >= maxBatchSize) {
+                full = takeBuffer();
+            } else if (buffer.size() == 1) {
+                scheduleFlush = true;
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        } else if (scheduleFlush) {
+            taskScheduler.schedule(this::flush, Instant.now().plus(window));
+        }
+        return entry.result();
+    }
+
+    // Sends whatever is buffered; the scheduled end of a window
+    void flush() {
+        List<Pending> batch;
+        synchronized (lock) {
+            batch = takeBuffer();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    private List<Pending> takeBuffer() {
+        List<Pending> batch = buffer;
+        buffer = new ArrayList<>();
+        return batch;
+    }
+
+    private void dispatch(List<Pending> batch) {
+        try {
+            notificationExecutor.execute(() -> send(batch));
+        } catch (TaskRejectedException e) {
+            // every worker busy with a backlog: send on this thread rather than drop the batch
+            send(batch);
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        List<Message> messages = new ArrayList<>(batch.size());
+        batch.forEach(entry -> messages.add(entry.message()));
+        long started = System.nanoTime();
+        List<Outcome> outcomes = new ArrayList<>(batch.size());
+        try {
+            BatchResponse response = fcmService.sendEach(messages);
+            for (SendResponse sendResponse : response.getResponses()) {
+                if (sendResponse.isSuccessful()) {
+                    outcomes.add(Outcome.sent(sendResponse.getMessageId()));
+                } else {
+                    FirebaseMessagingException error = sendResponse.getException();
+                    outcomes.add(Outcome.failed(error.getMessagingErrorCode(), error.getMessage()));
+                }
+            }
+        } catch (FirebaseMessagingException e) {
+            logger.error("FCM batch of {} messages failed: {}", batch.size(), e.getMessage());
+            outcomes.clear();
+            batch.forEach(entry -> outcomes.add(Outcome.failed(e.getMessagingErrorCode(), e.getMessage())));
+        } catch (Exception e) {
+            logger.error("FCM batch of {} messages failed: {}", batch.size(), e.getMessage());
+            outcomes.clear();
+            batch.forEach(entry -> outcomes.add(Outcome.failed(null, e.getMessage())));
+        }
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        batchesSent.incrementAndGet();
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        sendMillisTotal.addAndGet(millis);
+        lastBatchMillis.set(millis);
+        synchronized (lock) {
+            pending -= batch.size();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Outcome outcome = i < outcomes.size() ? outcomes.get(i) : Outcome.failed(null, "No response from FCM");
+            (outcome.sent() ? messagesSent : messagesFailed).incrementAndGet();
+            batch.get(i).result().complete(outcome);
+        }
+        logger.debug("Sent FCM batch of {} messages in {} ms", batch.size(), millis);
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("pending", pending);
+            stats.put("buffered", (long) buffer.size());
+        }
+        long batches = batchesSent.get();
+        stats.put("batchesSent", batches);
+        stats.put("messagesSent", messagesSent.get());
+        stats.put("messagesFailed", messagesFailed.get());
+        stats.put("messagesRejected", messagesRejected.get());
+        stats.put("largestBatch", largestBatch.get());
+        stats.put("averageBatchMillis", batches == 0 ? 0 : sendMillisTotal.get() / batches);
+        stats.put("lastBatchMillis", lastBatchMillis.get());
+        return stats;
+    }
+
+    private record Pending(Message message, CompletableFuture<Outcome> result) {
+    }
+}
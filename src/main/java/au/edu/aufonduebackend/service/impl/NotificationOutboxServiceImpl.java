@@ -0,0 +1,346 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.entity.NotificationOutbox;
+import au.edu.aufonduebackend.model.entity.Update;
+import au.edu.aufonduebackend.model.entity.User;
+import au.edu.aufonduebackend.repository.NotificationOutboxRepository;
+import au.edu.aufonduebackend.repository.UpdateRepository;
+import au.edu.aufonduebackend.service.FcmService;
+import au.edu.aufonduebackend.service.NotificationBatcher;
+import au.edu.aufonduebackend.service.NotificationBatcher.Outcome;
+import au.edu.aufonduebackend.service.NotificationOutboxService;
+import au.edu.aufonduebackend.service.UserService;
+import com.google.firebase.messaging.MessagingErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Relays the outbox to FCM. Rows are claimed in one short transaction (FOR UPDATE
+// SKIP LOCKED, so instances never send the same row), sent through the batcher
+// with no transaction open, and the outcomes written back in a second one. A claim
+// pushes next_attempt_at out by a lease, so rows of an instance that dies
+// mid-batch come round again.
+//
+// Staff often post several updates on an issue within a minute. Each new one holds
+// back the issue's waiting notifications until its own window has passed, and the
+// relay merges the rows it claims for one issue and device into a single message.
+@Service
+public class NotificationOutboxServiceImpl implements NotificationOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutboxServiceImpl.class);
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+    // The token will never work again: the app was uninstalled or the token is malformed
+    private static final Set<MessagingErrorCode> DEAD_TOKEN = EnumSet.of(
+            MessagingErrorCode.UNREGISTERED, MessagingErrorCode.INVALID_ARGUMENT);
+    // Retrying the same message would fail the same way
+    private static final Set<MessagingErrorCode> PERMANENT = EnumSet.of(
+            MessagingErrorCode.UNREGISTERED, MessagingErrorCode.INVALID_ARGUMENT,
+            MessagingErrorCode.SENDER_ID_MISMATCH);
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final UpdateRepository updateRepository;
+    private final FcmService fcmService;
+    private final NotificationBatcher notificationBatcher;
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor notificationRelayExecutor;
+    private final TaskScheduler taskScheduler;
+
+    @Value("${notifications.outbox.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${notifications.outbox.retry-delay-seconds:30}")
+    private long retryDelaySeconds = 30;
+
+    @Value("${notifications.outbox.max-attempts:8}")
+    private int maxAttempts = 8;
+
+    // Debounce window per update status; statuses not listed use the default
+    private Map<String, Duration> coalesceWindows = parseWindows("PENDING=60,IN PROGRESS=60,COMPLETED=15");
+
+    @Value("${notifications.coalesce.default-window-seconds:30}")
+    private long defaultWindowSeconds = 30;
+
+    // However busy the issue, its first waiting notification goes out within this
+    @Value("${notifications.coalesce.max-delay-seconds:300}")
+    private long maxDelaySeconds = 300;
+
+    public NotificationOutboxServiceImpl(NotificationOutboxRepository outboxRepository,
+                                         UpdateRepository updateRepository,
+                                         FcmService fcmService,
+                                         NotificationBatcher notificationBatcher,
+                                         UserService userService,
+                                         TransactionTemplate transactionTemplate,
+                                         @Qualifier("notificationRelayExecutor") Executor notificationRelayExecutor,
+                                         TaskScheduler taskScheduler) {
+        this.outboxRepository = outboxRepository;
+        this.updateRepository = updateRepository;
+        this.fcmService = fcmService;
+        this.notificationBatcher = notificationBatcher;
+        this.userService = userService;
+        this.transactionTemplate = transactionTemplate;
+        this.notificationRelayExecutor = notificationRelayExecutor;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @Value("${notifications.coalesce.window-seconds:PENDING=60,IN PROGRESS=60,COMPLETED=15}")
+    void setCoalesceWindows(String windows) {
+        this.coalesceWindows = parseWindows(windows);
+    }
+
+    // "STATUS=seconds,STATUS=seconds"
+    static Map<String, Duration> parseWindows(String windows) {
+        Map<String, Duration> parsed = new HashMap<>();
+        for (String entry : windows.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length == 2) {
+                parsed.put(parts[0].trim().toUpperCase(), Duration.ofSeconds(Long.parseLong(parts[1].trim())));
+            }
+        }
+        return parsed;
+    }
+
+    @Override
+    public int enqueue(Update update, User recipient) {
+        // One row per device, so each is retried, coalesced and pruned on its own
+        List<String> fcmTokens = userService.getFcmTokens(recipient.getId());
+        if (fcmTokens.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        Duration window = coalesceWindows.getOrDefault(update.getStatus(), Duration.ofSeconds(defaultWindowSeconds));
+        Instant relayAt = null;
+        for (String fcmToken : fcmTokens) {
+            // Push back what is already waiting for this issue and device to the end
+            // of the new window, so they all go out together
+            Instant sendAt = now.plus(window);
+            Instant earliest = outboxRepository.findEarliestWaiting(update.getIssue().getId(), fcmToken);
+            if (earliest != null) {
+                Instant latest = earliest.plusSeconds(maxDelaySeconds);
+                sendAt = sendAt.isAfter(latest) ? latest : sendAt;
+                sendAt = sendAt.isBefore(now) ? now : sendAt;
+                outboxRepository.reschedule(update.getIssue().getId(), fcmToken, sendAt);
+            }
+
+            NotificationOutbox row = new NotificationOutbox();
+            row.setUpdateId(update.getId());
+            row.setIssueId(update.getIssue().getId());
+            row.setRecipientEmail(recipient.getEmail());
+            row.setFcmToken(fcmToken);
+            row.setStatus(update.getStatus());
+            row.setComment(update.getComment());
+            row.setNextAttemptAt(sendAt);
+            outboxRepository.save(row);
+            relayAt = relayAt == null || sendAt.isBefore(relayAt) ? sendAt : relayAt;
+        }
+
+        Instant firstDue = relayAt;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relayAt(firstDue);
+                }
+            });
+        } else {
+            relayAt(firstDue);
+        }
+        return fcmTokens.size();
+    }
+
+    // A window pushed back by a later update just finds nothing due when this fires
+    private void relayAt(Instant sendAt) {
+        if (sendAt.isAfter(Instant.now())) {
+            taskScheduler.schedule(this::startRelaying, sendAt);
+        } else {
+            startRelaying();
+        }
+    }
+
+    // One relay task at a time is enough: it keeps going until nothing is due. If
+    // the executor turns it away, the rows are picked up by the next poll.
+    private void startRelaying() {
+        try {
+            notificationRelayExecutor.execute(this::relay);
+        } catch (TaskRejectedException e) {
+            logger.debug("Notification relay already queued, leaving the rest to the poller");
+        }
+    }
+
+    private void relay() {
+        try {
+            while (processBatch() == batchSize) {
+                // a full batch means there may be more waiting
+            }
+        } catch (Exception e) {
+            logger.error("Notification relay failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int processBatch() {
+        Instant now = Instant.now();
+        List<NotificationOutbox> claimed = transactionTemplate.execute(status -> {
+            List<NotificationOutbox> due = outboxRepository.lockDue(now, batchSize);
+            for (NotificationOutbox row : due) {
+                row.setAttempts(row.getAttempts() + 1);
+                row.setNextAttemptAt(now.plus(LEASE));
+            }
+            return due;
+        });
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        // One message per issue and device, and all of them go to the batcher before
+        // waiting on any, so they share FCM calls
+        Map<String, List<NotificationOutbox>> groups = new LinkedHashMap<>();
+        for (NotificationOutbox row : claimed) {
+            groups.computeIfAbsent(row.getIssueId() + ":" + row.getFcmToken(), key -> new ArrayList<>()).add(row);
+        }
+        List<List<NotificationOutbox>> messages = new ArrayList<>(groups.values());
+        List<CompletableFuture<Outcome>> results = new ArrayList<>(messages.size());
+        for (List<NotificationOutbox> rows : messages) {
+            rows.sort(Comparator.comparing(NotificationOutbox::getId));
+            results.add(send(rows));
+        }
+
+        List<Long> finished = new ArrayList<>();
+        List<NotificationOutbox> retries = new ArrayList<>();
+        Map<Long, Outcome> finalOutcomes = new HashMap<>();
+        Map<Long, String> retryErrors = new HashMap<>();
+        Map<String, String> deadTokens = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            Outcome outcome = results.get(i).join();
+            for (NotificationOutbox row : messages.get(i)) {
+                if (outcome.sent() || PERMANENT.contains(outcome.errorCode()) || row.getAttempts() >= maxAttempts) {
+                    finished.add(row.getId());
+                    finalOutcomes.merge(row.getUpdateId(), outcome, (first, next) -> next.sent() ? next : first);
+                    if (DEAD_TOKEN.contains(outcome.errorCode())) {
+                        deadTokens.put(row.getFcmToken(), row.getRecipientEmail());
+                    }
+                } else {
+                    String error = truncate(outcome.error());
+                    row.setLastError(error);
+                    row.setNextAttemptAt(Instant.now().plus(backoff(row.getAttempts())));
+                    retries.add(row);
+                    retryErrors.put(row.getUpdateId(), error);
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxRepository.deleteAllByIdInBatch(finished);
+            outboxRepository.saveAll(retries);
+            recordOutcomes(finalOutcomes, retryErrors);
+        });
+        deadTokens.forEach(this::removeDeadToken);
+        if (!retries.isEmpty()) {
+            logger.warn("{} of {} push notifications failed and will be retried", retries.size(), claimed.size());
+        }
+        return claimed.size();
+    }
+
+    // The latest status, with the comments of every merged update in the order posted
+    private CompletableFuture<Outcome> send(List<NotificationOutbox> rows) {
+        NotificationOutbox latest = rows.get(rows.size() - 1);
+        try {
+            return notificationBatcher.submit(fcmService.buildIssueUpdateMessage(
+                    latest.getFcmToken(), latest.getIssueId(), latest.getStatus(), summarizeComments(rows)));
+        } catch (Exception e) {
+            // a message FCM would refuse anyway
+            return CompletableFuture.completedFuture(Outcome.failed(MessagingErrorCode.INVALID_ARGUMENT, e.getMessage()));
+        }
+    }
+
+    static String summarizeComments(List<NotificationOutbox> rows) {
+        Set<String> comments = new LinkedHashSet<>();
+        for (NotificationOutbox row : rows) {
+            if (row.getComment() != null && !row.getComment().isBlank()) {
+                comments.add(row.getComment().trim());
+            }
+        }
+        if (comments.isEmpty()) {
+            return null;
+        }
+        String summary = String.join("; ", comments);
+        return summary.length() > 1000 ? summary.substring(0, 997) + "..." : summary;
+    }
+
+    // An update counts as notified once any of the recipient's devices has it. Until
+    // then a retried notification stays QUEUED, with the latest error alongside.
+    private void recordOutcomes(Map<Long, Outcome> finalOutcomes, Map<Long, String> retryErrors) {
+        List<Long> updateIds = new ArrayList<>(finalOutcomes.keySet());
+        updateIds.addAll(retryErrors.keySet());
+        Instant now = Instant.now();
+        for (Update update : updateRepository.findAllById(updateIds)) {
+            Outcome outcome = finalOutcomes.get(update.getId());
+            if (update.getNotificationStatus() == Update.NotificationStatus.SENT) {
+                continue;
+            }
+            if (outcome != null && outcome.sent()) {
+                update.setNotificationStatus(Update.NotificationStatus.SENT);
+                update.setNotificationError(null);
+                update.setNotifiedAt(now);
+            } else if (retryErrors.containsKey(update.getId())) {
+                update.setNotificationError(retryErrors.get(update.getId()));
+            } else {
+                update.setNotificationStatus(Update.NotificationStatus.FAILED);
+                update.setNotificationError(truncate(outcome.error()));
+                update.setNotifiedAt(now);
+            }
+        }
+    }
+
+    // Just that device; the user's other devices keep receiving
+    private void removeDeadToken(String fcmToken, String email) {
+        try {
+            userService.removeFcmToken(email, fcmToken);
+            logger.info("Removed unregistered FCM token of {}", email);
+        } catch (Exception e) {
+            logger.error("Could not remove FCM token of {}: {}", email, e.getMessage());
+        }
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    // 30s, 1m, 2m, ... capped at an hour: after that the news is stale anyway
+    private Duration backoff(int attempts) {
+        Duration delay = Duration.ofSeconds(retryDelaySeconds).multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    // Retries, and anything queued while the relay task was turned away or an
+    // instance was restarting. Handed to the relay thread: a relay waits on the
+    // batcher, whose flush runs on the scheduler this poll would otherwise hold.
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-interval-ms:30000}",
+            initialDelayString = "${notifications.outbox.poll-interval-ms:30000}")
+    public void pollDue() {
+        startRelaying();
+    }
+}
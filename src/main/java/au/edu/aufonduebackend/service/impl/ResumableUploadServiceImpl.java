@@ -0,0 +1,305 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.exception.ResourceNotFoundException;
+import au.edu.aufonduebackend.model.dto.request.UploadSessionRequest;
+import au.edu.aufonduebackend.model.dto.response.UploadSessionResponse;
+import au.edu.aufonduebackend.model.entity.UploadSession;
+import au.edu.aufonduebackend.repository.UploadChunkRepository;
+import au.edu.aufonduebackend.repository.UploadSessionRepository;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.MediaUploadService;
+import au.edu.aufonduebackend.service.ResumableUploadService;
+import au.edu.aufonduebackend.service.StorageService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+// Chunks go straight from the request to a staged block in blob storage; only the
+// bookkeeping is in the database. Nothing is held on the instance between requests,
+// so chunks of one upload can be spread over instances behind the load balancer.
+@Service
+@RequiredArgsConstructor
+public class ResumableUploadServiceImpl implements ResumableUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadServiceImpl.class);
+    private static final int CLEANUP_BATCH_SIZE = 100;
+
+    private final UploadSessionRepository sessionRepository;
+    private final UploadChunkRepository chunkRepository;
+    private final StorageService storageService;
+    private final ImageRenditionService imageRenditionService;
+    private final MediaUploadService mediaUploadService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${uploads.resumable.chunk-size-bytes:4194304}")
+    private int chunkSize = 4 * 1024 * 1024;
+
+    // same cap as a video sent with the issue form
+    @Value("${uploads.resumable.max-size-bytes:104857600}")
+    private long maxSize = 100 * 1024 * 1024L;
+
+    // how long an unfinished upload can be resumed; well inside the 7 days Azure
+    // keeps uncommitted blocks
+    @Value("${uploads.resumable.session-ttl-hours:24}")
+    private long sessionTtlHours = 24;
+
+    // how long a committed upload waits to be attached to an issue
+    @Value("${uploads.resumable.committed-ttl-hours:72}")
+    private long committedTtlHours = 72;
+
+    // how long a direct upload URL can be used; the file has to be sent by then
+    @Value("${uploads.direct.url-ttl-minutes:15}")
+    private long uploadUrlTtlMinutes = 15;
+
+    @Override
+    public UploadSessionResponse createSession(UploadSessionRequest request) {
+        UploadSession session = newSession(request);
+        session.setChunkSize(chunkSize);
+        session.setChunkCount((int) ((session.getTotalSize() + chunkSize - 1) / chunkSize));
+        return toResponse(sessionRepository.save(session), List.of());
+    }
+
+    @Override
+    public UploadSessionResponse createDirectSession(UploadSessionRequest request) {
+        UploadSession session = newSession(request);
+        session.setMode(UploadSession.Mode.DIRECT);
+        // the whole file is one chunk, sent straight to blob storage
+        session.setChunkSize(session.getTotalSize().intValue());
+        session.setChunkCount(1);
+
+        Duration urlTtl = Duration.ofMinutes(uploadUrlTtlMinutes);
+        String uploadUrl = storageService.createUploadUrl(session.getBlobName(), urlTtl);
+        UploadSessionResponse response = toResponse(sessionRepository.save(session), List.of());
+        response.setUploadUrl(uploadUrl);
+        // Put Blob needs the blob type; the content type is what commit checks against
+        response.setUploadHeaders(Map.of("x-ms-blob-type", "BlockBlob", "Content-Type", session.getContentType()));
+        response.setUploadUrlExpiresAt(Instant.now().plus(urlTtl));
+        return response;
+    }
+
+    private UploadSession newSession(UploadSessionRequest request) {
+        if (request.getUserEmail() == null || request.getUserEmail().isBlank()) {
+            throw new IllegalArgumentException("User email is required");
+        }
+        String contentType = request.getContentType();
+        if (contentType == null || !(contentType.startsWith("image/") || contentType.startsWith("video/"))) {
+            throw new IllegalArgumentException("Only photos and videos can be uploaded");
+        }
+        Long totalSize = request.getTotalSize();
+        if (totalSize == null || totalSize <= 0) {
+            throw new IllegalArgumentException("Total size is required");
+        }
+        if (totalSize > maxSize) {
+            throw new IllegalArgumentException("File exceeds the " + (maxSize / (1024 * 1024)) + "MB limit");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setOwnerEmail(request.getUserEmail());
+        session.setOriginalFilename(request.getFilename());
+        session.setContentType(contentType);
+        session.setTotalSize(totalSize);
+        session.setBlobName("upload-" + session.getId() + extension(request.getFilename()));
+        session.setExpiresAt(Instant.now().plus(Duration.ofHours(sessionTtlHours)));
+        return session;
+    }
+
+    @Override
+    public UploadSessionResponse receiveChunk(String uploadId, int chunkIndex, InputStream data, long length) {
+        UploadSession session = findSession(uploadId);
+        if (session.getStatus() != UploadSession.Status.OPEN) {
+            throw new IllegalStateException("Upload " + uploadId + " is already committed");
+        }
+        if (session.isDirect()) {
+            throw new IllegalStateException("Upload " + uploadId + " goes straight to blob storage, not in chunks");
+        }
+        if (chunkIndex < 0 || chunkIndex >= session.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (session.getChunkCount() - 1));
+        }
+        long expectedLength = chunkIndex < session.getChunkCount() - 1
+                ? session.getChunkSize()
+                : session.getTotalSize() - (long) session.getChunkSize() * (session.getChunkCount() - 1);
+        if (length != expectedLength) {
+            throw new IllegalArgumentException("Chunk " + chunkIndex + " must be " + expectedLength + " bytes, got " + length);
+        }
+
+        // Staged outside any transaction; resending a chunk simply replaces its block
+        storageService.stageChunk(session.getBlobName(), chunkIndex, data, length);
+        transactionTemplate.executeWithoutResult(status -> chunkRepository.recordChunk(uploadId, chunkIndex, length));
+        return toResponse(session, chunkRepository.findChunkIndexes(uploadId));
+    }
+
+    @Override
+    public UploadSessionResponse getSession(String uploadId) {
+        UploadSession session = findSession(uploadId);
+        return toResponse(session, chunkRepository.findChunkIndexes(uploadId));
+    }
+
+    @Override
+    public UploadSessionResponse commit(String uploadId) {
+        return commit(findSession(uploadId));
+    }
+
+    private UploadSessionResponse commit(UploadSession session) {
+        String uploadId = session.getId();
+        List<Integer> received = chunkRepository.findChunkIndexes(uploadId);
+        if (session.getStatus() == UploadSession.Status.COMMITTED) {
+            return toResponse(session, received);
+        }
+        String url;
+        if (session.isDirect()) {
+            url = verifyDirectUpload(session);
+        } else {
+            if (received.size() != session.getChunkCount()) {
+                throw new IllegalStateException("Upload " + uploadId + " is missing "
+                        + (session.getChunkCount() - received.size()) + " of " + session.getChunkCount() + " chunks");
+            }
+            url = storageService.commitChunks(session.getBlobName(), session.getChunkCount(), session.getContentType());
+        }
+        session.setStatus(UploadSession.Status.COMMITTED);
+        session.setUrl(url);
+        session.setExpiresAt(Instant.now().plus(Duration.ofHours(committedTtlHours)));
+        UploadSession committed = transactionTemplate.execute(status -> sessionRepository.save(session));
+
+        if (session.getContentType().startsWith("image/")) {
+            imageRenditionService.createRenditions(() -> storageService.openFile(url), url);
+        }
+        return toResponse(committed, received);
+    }
+
+    // The client could have sent anything with the URL, so the blob has to be what the
+    // session declared. It is moved to a name of its own first and checked there, so
+    // nothing sent with the URL afterwards can replace it. One that does not match is
+    // deleted; the client may send it again while the URL is still valid.
+    private String verifyDirectUpload(UploadSession session) {
+        String finalName = "media-" + UUID.randomUUID() + extension(session.getBlobName());
+        StorageService.StoredFile stored = storageService.claimUpload(session.getBlobName(), finalName)
+                .orElseThrow(() -> new IllegalStateException("Upload " + session.getId() + " has not been received yet"));
+        String problem = null;
+        if (stored.size() != session.getTotalSize()) {
+            problem = "is " + stored.size() + " bytes, expected " + session.getTotalSize();
+        } else if (!mediaType(session.getContentType()).equals(mediaType(stored.contentType()))) {
+            problem = "has content type " + stored.contentType() + ", expected " + session.getContentType();
+        }
+        if (problem != null) {
+            mediaUploadService.deleteQuietly(List.of(stored.url()));
+            throw new IllegalStateException("Upload " + session.getId() + " " + problem);
+        }
+        return stored.url();
+    }
+
+    private static String mediaType(String contentType) {
+        if (contentType == null) {
+            return "";
+        }
+        int parameters = contentType.indexOf(';');
+        return (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public List<UploadSession> getCommittedUploads(List<String> uploadIds, String ownerEmail) {
+        List<UploadSession> sessions = new ArrayList<>();
+        if (uploadIds == null) {
+            return sessions;
+        }
+        for (String uploadId : uploadIds) {
+            UploadSession session = sessionRepository.findById(uploadId)
+                    .filter(found -> found.getOwnerEmail().equalsIgnoreCase(ownerEmail))
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown upload: " + uploadId));
+            // past this point the cleanup may already be deleting it
+            if (session.getExpiresAt().isBefore(Instant.now())) {
+                throw new IllegalArgumentException("Upload " + uploadId + " has expired");
+            }
+            if (session.getStatus() != UploadSession.Status.COMMITTED && session.isDirect()) {
+                // direct uploads can be finalized here rather than by a separate commit call
+                try {
+                    commit(session);
+                } catch (IllegalStateException e) {
+                    throw new IllegalArgumentException(e.getMessage());
+                }
+            } else if (session.getStatus() != UploadSession.Status.COMMITTED) {
+                throw new IllegalArgumentException("Upload " + uploadId + " has not been committed");
+            }
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    // Drops expired sessions. Uncommitted blocks are discarded by Azure on its own;
+    // a committed or directly uploaded blob is queued for deletion, which waits out
+    // the grace period and then rechecks, so an issue that picked the session up
+    // just before it expired keeps its file.
+    @Scheduled(fixedDelayString = "${uploads.resumable.cleanup-interval-ms:3600000}",
+            initialDelayString = "${uploads.resumable.cleanup-interval-ms:3600000}")
+    public void cleanupExpired() {
+        try {
+            List<UploadSession> expired = sessionRepository.findExpired(Instant.now(), PageRequest.of(0, CLEANUP_BATCH_SIZE));
+            for (UploadSession session : expired) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    chunkRepository.deleteBySessionId(session.getId());
+                    sessionRepository.deleteById(session.getId());
+                });
+                if (session.getUrl() != null) {
+                    mediaUploadService.deleteQuietly(List.of(session.getUrl()));
+                }
+                if (session.isDirect()) {
+                    // sent but never finalized, or sent again after it was
+                    storageService.describeFile(session.getBlobName())
+                            .ifPresent(stored -> mediaUploadService.deleteQuietly(List.of(stored.url())));
+                }
+            }
+            if (!expired.isEmpty()) {
+                logger.info("Removed {} expired upload sessions", expired.size());
+            }
+        } catch (Exception e) {
+            logger.error("Upload session cleanup failed: {}", e.getMessage());
+        }
+    }
+
+    private UploadSession findSession(String uploadId) {
+        UploadSession session = sessionRepository.findById(uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload not found: " + uploadId));
+        if (session.getStatus() == UploadSession.Status.OPEN && session.getExpiresAt().isBefore(Instant.now())) {
+            throw new ResourceNotFoundException("Upload " + uploadId + " has expired");
+        }
+        return session;
+    }
+
+    private static String extension(String filename) {
+        if (filename == null || filename.lastIndexOf('.') < 0) {
+            return "";
+        }
+        String extension = filename.substring(filename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+        // client-supplied, so only a plain extension makes it into the blob name
+        return extension.matches("\\.[a-z0-9]{1,10}") ? extension : "";
+    }
+
+    private static UploadSessionResponse toResponse(UploadSession session, List<Integer> receivedChunks) {
+        UploadSessionResponse response = new UploadSessionResponse();
+        response.setUploadId(session.getId());
+        response.setStatus(session.getStatus().name());
+        response.setFilename(session.getOriginalFilename());
+        response.setContentType(session.getContentType());
+        response.setTotalSize(session.getTotalSize());
+        response.setChunkSize(session.getChunkSize());
+        response.setChunkCount(session.getChunkCount());
+        response.setReceivedChunks(receivedChunks);
+        response.setUrl(session.getUrl());
+        response.setExpiresAt(session.getExpiresAt());
+        return response;
+    }
+}
@@ -6,6 +6,7 @@ import au.edu.aufonduebackend.model.entity.Staff;
 import au.edu.aufonduebackend.repository.StaffRepository;
 import au.edu.aufonduebackend.repository.IssueRepository;
 import au.edu.aufonduebackend.service.FirebaseAuthService;
+import au.edu.aufonduebackend.service.IssueStatsService;
 import au.edu.aufonduebackend.service.StaffService;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -26,16 +27,19 @@ public class StaffServiceImpl implements StaffService {
     private static final Logger logger = LoggerFactory.getLogger(StaffServiceImpl.class);
     private final StaffRepository staffRepository;
     private final IssueRepository issueRepository;
+    private final IssueStatsService issueStatsService;
     private final FirebaseAuthService firebaseAuthService;
     private final BCryptPasswordEncoder passwordEncoder;
 
     @Autowired
     public StaffServiceImpl(StaffRepository staffRepository,
                            IssueRepository issueRepository,
+                           IssueStatsService issueStatsService,
                            @Autowired(required = false) FirebaseAuthService firebaseAuthService,
                            @Autowired(required = false) BCryptPasswordEncoder passwordEncoder) {
         this.staffRepository = staffRepository;
         this.issueRepository = issueRepository;
+        this.issueStatsService = issueStatsService;
         this.firebaseAuthService = firebaseAuthService;
         this.passwordEncoder = passwordEncoder != null ? passwordEncoder : new BCryptPasswordEncoder();
     }
@@ -84,6 +88,9 @@ public class StaffServiceImpl implements StaffService {
             issueRepository.removeStaffFromCompletedIssues(id);
             logger.info("Removed staff reference from completed issues for: {}", 
                 staff.getStaffId() != null ? staff.getStaffId() : "legacy-" + id);
+            
+            // Bulk updates bypass the per-issue counter hooks
+            issueStatsService.reconcileAfterCommit();
         } catch (Exception e) {
             logger.warn("Failed to handle issue reassignment for staff {}: {}", 
                 staff.getStaffId() != null ? staff.getStaffId() : "legacy-" + id, e.getMessage());
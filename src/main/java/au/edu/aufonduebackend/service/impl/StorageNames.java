@@ -0,0 +1,73 @@
+package au.edu.aufonduebackend.service.impl;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.UUID;
+
+// File naming shared by the StorageService backends, so a file gets the same name
+// (and URL path) whichever one stores it
+final class StorageNames {
+
+    private StorageNames() {
+    }
+
+    // <sha256><ext>: identical files share one stored copy
+    static String contentAddressedName(MultipartFile file) throws IOException {
+        return contentHash(file) + extension(file.getOriginalFilename());
+    }
+
+    // A file generated from another one, e.g. "<hash>_small.jpg" for "<hash>.jpg"
+    static String derivedName(String originalUrl, String suffix) {
+        String originalName = nameOf(originalUrl);
+        int dot = originalName.lastIndexOf('.');
+        return (dot > 0 ? originalName.substring(0, dot) : originalName) + suffix;
+    }
+
+    // Another name for the file at the URL, e.g. "<hash>-<uuid>.jpg" for "<hash>.jpg",
+    // that no other upload will share
+    static String uniqueName(String fileUrl) {
+        String originalName = nameOf(fileUrl);
+        int dot = originalName.lastIndexOf('.');
+        return dot > 0
+                ? originalName.substring(0, dot) + "-" + UUID.randomUUID() + originalName.substring(dot)
+                : originalName + "-" + UUID.randomUUID();
+    }
+
+    // Extract the file name from the URL
+    static String nameOf(String fileUrl) {
+        return fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
+    }
+
+    // SHA-256 of the file, read once as a stream. Multipart and spooled files are on
+    // local disk (or in memory), so this pass is cheap next to the upload it can save.
+    private static String contentHash(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream data = new DigestInputStream(file.getInputStream(), digest)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (data.read(buffer) != -1) {
+                // reading is enough, the stream feeds the digest
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Lower-cased so "IMG.JPG" and "img.jpg" with the same bytes map to the same file
+    private static String extension(String originalFilename) {
+        if (originalFilename == null || originalFilename.lastIndexOf('.') < 0) {
+            return ".jpg";
+        }
+        return originalFilename.substring(originalFilename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+    }
+}
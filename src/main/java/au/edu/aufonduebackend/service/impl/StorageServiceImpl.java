@@ -1,64 +1,173 @@
 package au.edu.aufonduebackend.service.impl;
 
 import au.edu.aufonduebackend.service.StorageService;
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.models.BlobHttpHeaders;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.ParallelTransferOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import com.azure.storage.blob.options.BlockBlobCommitBlockListOptions;
+import com.azure.storage.blob.sas.BlobSasPermission;
+import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
+import com.azure.storage.common.sas.SasProtocol;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.ByteArrayInputStream;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+// Azure Blob Storage, used unless the local-storage profile is active
 @Service
+@Profile("!" + LocalStorageServiceImpl.PROFILE)
 @RequiredArgsConstructor
 public class StorageServiceImpl implements StorageService {
 
+    private static final Logger logger = LoggerFactory.getLogger(StorageServiceImpl.class);
+
     private final BlobContainerClient blobContainerClient;
 
+    // Uploads are streamed in staged blocks, so each one holds at most about
+    // blockSize * maxConcurrency bytes in memory whatever the file size
+    @Value("${azure.blob-storage.upload.block-size-bytes:4194304}")
+    private long blockSize = 4L * 1024 * 1024;
+
+    @Value("${azure.blob-storage.upload.max-concurrency:4}")
+    private int maxConcurrency = 4;
+
+    // Deletes are tiny requests that mostly wait on the round trip, so a batch is
+    // sent with many in flight at once
+    @Value("${azure.blob-storage.delete.max-concurrency:16}")
+    private int deleteConcurrency = 16;
+
     @Override
     public String uploadFile(MultipartFile file) {
         try {
-            System.out.println("Starting file upload to Azure Blob Storage");
-            System.out.println("Container Client exists: " + (blobContainerClient != null));
-            System.out.println("Container Name: " + blobContainerClient.getBlobContainerName());
-
-            // Generate a unique filename
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename != null ?
-                    originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
-            String filename = String.format("%s-%s%s", timestamp, UUID.randomUUID(), extension);
-
-            System.out.println("Generated filename: " + filename);
+            // Name the blob after its content, so identical files share one blob
+            String filename = StorageNames.contentAddressedName(file);
 
             // Get a reference to a blob
             BlobClient blobClient = blobContainerClient.getBlobClient(filename);
-            System.out.println("Created blob client for: " + blobClient.getBlobUrl());
 
-            // Upload the file
-            System.out.println("File size: " + file.getSize());
-            blobClient.upload(new ByteArrayInputStream(file.getBytes()), file.getSize(), true);
+            // Same content uploaded before (a retry, or a photo attached again): nothing to transfer
+            if (blobClient.exists()) {
+                logger.debug("Blob {} already exists, skipping upload", filename);
+                return blobClient.getBlobUrl();
+            }
+
+            return upload(file, blobClient);
+        } catch (Exception e) {
+            logger.error("Error uploading {} to Azure Blob Storage", file.getOriginalFilename(), e);
+            throw new RuntimeException("Failed to upload file to Azure Blob Storage", e);
+        }
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file, String blobName) {
+        try {
+            return upload(file, blobContainerClient.getBlobClient(blobName));
+        } catch (Exception e) {
+            logger.error("Error uploading {} to Azure Blob Storage", file.getOriginalFilename(), e);
+            throw new RuntimeException("Failed to upload file to Azure Blob Storage", e);
+        }
+    }
 
-            System.out.println("File uploaded successfully");
-            String blobUrl = blobClient.getBlobUrl();
-            System.out.println("Blob URL: " + blobUrl);
+    private String upload(MultipartFile file, BlobClient blobClient) throws IOException {
+        logger.debug("Uploading {} ({} bytes)", blobClient.getBlobName(), file.getSize());
+        ParallelTransferOptions transferOptions = new ParallelTransferOptions()
+                .setBlockSizeLong(blockSize)
+                .setMaxSingleUploadSizeLong(blockSize)
+                .setMaxConcurrency(maxConcurrency);
+        try (InputStream data = file.getInputStream()) {
+            BlobParallelUploadOptions options = new BlobParallelUploadOptions(data)
+                    .setParallelTransferOptions(transferOptions)
+                    .setHeaders(new BlobHttpHeaders().setContentType(file.getContentType()));
+            blobClient.uploadWithResponse(options, null, Context.NONE);
+        }
+        logger.debug("Uploaded {}", blobClient.getBlobName());
+        return blobClient.getBlobUrl();
+    }
 
-            return blobUrl;
+    @Override
+    public String uploadDerivedFile(String originalUrl, String suffix, byte[] data, String contentType) {
+        try {
+            BlobClient blobClient = blobContainerClient.getBlobClient(StorageNames.derivedName(originalUrl, suffix));
+            BlobParallelUploadOptions options = new BlobParallelUploadOptions(BinaryData.fromBytes(data))
+                    .setHeaders(new BlobHttpHeaders().setContentType(contentType));
+            blobClient.uploadWithResponse(options, null, Context.NONE);
+            return blobClient.getBlobUrl();
         } catch (Exception e) {
-            System.err.println("Error uploading to Azure Blob Storage: " + e.getMessage());
-            e.printStackTrace();
             throw new RuntimeException("Failed to upload file to Azure Blob Storage", e);
         }
     }
 
+    @Override
+    public InputStream openFile(String fileUrl) {
+        try {
+            return blobContainerClient.getBlobClient(StorageNames.nameOf(fileUrl)).openInputStream();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read file from Azure Blob Storage", e);
+        }
+    }
+
+    @Override
+    public void stageChunk(String blobName, int chunkIndex, InputStream data, long length) {
+        try {
+            blobContainerClient.getBlobClient(blobName).getBlockBlobClient()
+                    .stageBlock(blockId(chunkIndex), data, length);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to upload chunk to Azure Blob Storage", e);
+        }
+    }
+
+    @Override
+    public String commitChunks(String blobName, int chunkCount, String contentType) {
+        try {
+            List<String> blockIds = new ArrayList<>();
+            for (int i = 0; i < chunkCount; i++) {
+                blockIds.add(blockId(i));
+            }
+            BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
+            blobClient.getBlockBlobClient().commitBlockListWithResponse(
+                    new BlockBlobCommitBlockListOptions(blockIds)
+                            .setHeaders(new BlobHttpHeaders().setContentType(contentType)),
+                    null, Context.NONE);
+            return blobClient.getBlobUrl();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to commit upload to Azure Blob Storage", e);
+        }
+    }
+
+    // Block IDs must all have the same length within a blob, hence the padding
+    private static String blockId(int chunkIndex) {
+        return Base64.getEncoder().encodeToString(String.format("chunk-%08d", chunkIndex).getBytes(StandardCharsets.US_ASCII));
+    }
+
     @Override
     public void deleteFile(String fileUrl) {
         try {
-            // Extract the blob name from the URL
-            String blobName = fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
+            String blobName = StorageNames.nameOf(fileUrl);
 
             // Get a reference to the blob and delete it
             BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
@@ -68,4 +177,69 @@ public class StorageServiceImpl implements StorageService {
             throw new RuntimeException("Failed to delete file from Azure Blob Storage", e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public Map<String, String> deleteFiles(Collection<String> fileUrls) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        Flux.fromIterable(fileUrls)
+                .flatMap(fileUrl -> Mono.fromCallable(() -> blobContainerClient.getBlobClient(StorageNames.nameOf(fileUrl)).deleteIfExists())
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.<Map.Entry<String, String>>empty())
+                        .onErrorResume(e -> Mono.just(Map.entry(fileUrl, String.valueOf(e.getMessage())))),
+                        deleteConcurrency)
+                .doOnNext(failure -> failures.put(failure.getKey(), failure.getValue()))
+                .blockLast();
+        return failures;
+    }
+
+    // A service SAS signed with the account key from the connection string, scoped
+    // to the one blob: create and write only, HTTPS only
+    @Override
+    public String createUploadUrl(String blobName, Duration validFor) {
+        try {
+            BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
+            BlobServiceSasSignatureValues values = new BlobServiceSasSignatureValues(
+                    OffsetDateTime.now().plus(validFor),
+                    new BlobSasPermission().setCreatePermission(true).setWritePermission(true))
+                    .setProtocol(SasProtocol.HTTPS_ONLY);
+            return blobClient.getBlobUrl() + "?" + blobClient.generateSas(values);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create upload URL for Azure Blob Storage", e);
+        }
+    }
+
+    // Copy Blob From URL runs inside the storage account and returns once done; it
+    // takes files up to 256 MiB, above the upload size cap. The source is read
+    // through a SAS of its own, so this works with the container private.
+    @Override
+    public Optional<StoredFile> claimUpload(String blobName, String finalName) {
+        BlobClient source = blobContainerClient.getBlobClient(blobName);
+        BlobClient target = blobContainerClient.getBlobClient(finalName);
+        try {
+            String sourceSas = source.generateSas(new BlobServiceSasSignatureValues(
+                    OffsetDateTime.now().plusMinutes(5), new BlobSasPermission().setReadPermission(true)));
+            target.copyFromUrl(source.getBlobUrl() + "?" + sourceSas);
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new RuntimeException("Failed to copy upload in Azure Blob Storage", e);
+        }
+        source.deleteIfExists();
+        return describeFile(finalName);
+    }
+
+    @Override
+    public Optional<StoredFile> describeFile(String blobName) {
+        BlobClient blobClient = blobContainerClient.getBlobClient(blobName);
+        try {
+            BlobProperties properties = blobClient.getProperties();
+            return Optional.of(new StoredFile(blobClient.getBlobUrl(), properties.getBlobSize(), properties.getContentType()));
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new RuntimeException("Failed to read file properties from Azure Blob Storage", e);
+        }
+    }
+}
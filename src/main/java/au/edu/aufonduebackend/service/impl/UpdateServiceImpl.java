@@ -1,31 +1,38 @@
 package au.edu.aufonduebackend.service.impl;
 
+import au.edu.aufonduebackend.exception.ResourceNotFoundException;
 import au.edu.aufonduebackend.model.dto.request.UpdateRequest;
+import au.edu.aufonduebackend.model.dto.response.NotificationStatusResponse;
 import au.edu.aufonduebackend.model.dto.response.UpdateResponse;
 import au.edu.aufonduebackend.model.entity.Issue;
 import au.edu.aufonduebackend.model.entity.Update;
 import au.edu.aufonduebackend.model.entity.User;
 import au.edu.aufonduebackend.model.entity.IssueRemark;
 import au.edu.aufonduebackend.model.entity.Admin;
+import au.edu.aufonduebackend.model.entity.MediaRendition;
 import au.edu.aufonduebackend.repository.IssueRepository;
 import au.edu.aufonduebackend.repository.UpdateRepository;
 import au.edu.aufonduebackend.repository.AdminRepository;
-import au.edu.aufonduebackend.service.StorageService;
 import au.edu.aufonduebackend.service.UpdateService;
-import au.edu.aufonduebackend.service.FcmService;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.IssueMapService;
 import au.edu.aufonduebackend.service.IssueRemarkService;
+import au.edu.aufonduebackend.service.IssueStatsService;
+import au.edu.aufonduebackend.service.MediaUploadService;
+import au.edu.aufonduebackend.service.NotificationOutboxService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -33,8 +40,12 @@ public class UpdateServiceImpl implements UpdateService {
 
     private final UpdateRepository updateRepository;
     private final IssueRepository issueRepository;
-    private final StorageService storageService;
-    private final FcmService fcmService; // ADD THIS
+    private final IssueStatsService issueStatsService;
+    private final IssueMapService issueMapService;
+    private final MediaUploadService mediaUploadService;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageRenditionService imageRenditionService;
+    private final NotificationOutboxService notificationOutboxService;
     @Autowired(required = false)
     private IssueRemarkService remarkService;
     @Autowired(required = false)
@@ -43,28 +54,63 @@ public class UpdateServiceImpl implements UpdateService {
     private static final Logger logger = LoggerFactory.getLogger(UpdateServiceImpl.class);
     private static final List<String> VALID_STATUSES = Arrays.asList("PENDING", "IN PROGRESS", "COMPLETED");
 
+    // Not @Transactional: photos go to blob storage first, and only the writes run
+    // in a (short) transaction. The push notification is queued in the outbox in
+    // that transaction and sent after it commits, so neither waits on FCM.
     @Override
-    @Transactional
     public UpdateResponse createUpdate(UpdateRequest request, List<MultipartFile> photos) {
-        Issue issue = issueRepository.findById(request.getIssueId())
-                .orElseThrow(() -> new EntityNotFoundException("Issue not found"));
+        if (!issueRepository.existsById(request.getIssueId())) {
+            throw new EntityNotFoundException("Issue not found");
+        }
 
         // Validate status
         if (!VALID_STATUSES.contains(request.getStatus().toUpperCase())) {
             throw new IllegalArgumentException("Invalid status: " + request.getStatus());
         }
-        
-        // Handle remarks if provided and services are available
+
+        // Validate the remark before anything is uploaded
+        IssueRemark.RemarkType remarkType = null;
         if (request.getRemark() != null && !request.getRemark().trim().isEmpty() && remarkService != null) {
             try {
-                IssueRemark.RemarkType remarkType = IssueRemark.RemarkType.fromString(request.getRemark());
-                
+                remarkType = IssueRemark.RemarkType.fromString(request.getRemark());
+
                 // Validate status-remark combination
                 if (!remarkService.validateStatusRemarkCombination(request.getStatus(), remarkType)) {
                     String errorMessage = getRemarkValidationError(request.getStatus(), remarkType);
                     throw new IllegalArgumentException(errorMessage);
                 }
-                
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid remark: " + e.getMessage());
+            }
+        }
+
+        // Upload photos in parallel and collect URLs
+        List<String> uploadedPhotoUrls = mediaUploadService.uploadAll(photos);
+
+        SavedUpdate saved;
+        try {
+            IssueRemark.RemarkType validRemarkType = remarkType;
+            saved = transactionTemplate.execute(status -> saveUpdate(request, validRemarkType, uploadedPhotoUrls));
+        } catch (RuntimeException e) {
+            // The update was not stored, so nothing will ever reference these blobs
+            mediaUploadService.deleteQuietly(uploadedPhotoUrls);
+            throw e;
+        }
+
+        // Committed by now, so the in-memory counters and map only ever see stored changes
+        UpdateResponse response = saved.response();
+        issueStatsService.statusChanged(saved.previousStatus(), response.getStatus(), saved.assigned());
+        issueMapService.statusChanged(response.getIssueId(), response.getStatus());
+        return response;
+    }
+
+    private SavedUpdate saveUpdate(UpdateRequest request, IssueRemark.RemarkType remarkType, List<String> uploadedPhotoUrls) {
+        Issue issue = issueRepository.findById(request.getIssueId())
+                .orElseThrow(() -> new EntityNotFoundException("Issue not found"));
+
+        // Handle remarks if provided and services are available
+        if (remarkType != null) {
+            try {
                 // Get admin who is making the update
                 Admin updatedBy = null;
                 if (request.getUpdatedBy() != null && adminRepository != null) {
@@ -84,82 +130,91 @@ public class UpdateServiceImpl implements UpdateService {
             }
         }
 
-        // Upload photos and collect URLs
-        List<String> uploadedPhotoUrls = (photos != null) ?
-                photos.stream().map(storageService::uploadFile).collect(Collectors.toList()) : List.of();
-
         // Create and save update record
+        String previousStatus = issue.getStatus();
         Update update = new Update();
         update.setIssue(issue);
         update.setStatus(request.getStatus().toUpperCase());  // This will also update issue status
         update.setComment(request.getComment());
         update.setPhotoUrls(uploadedPhotoUrls);
 
+        update.setNotificationStatus(Update.NotificationStatus.QUEUED);
+
         // Save issue and update
         issueRepository.save(issue);  // Save issue with new status
         update = updateRepository.save(update); // Save the update
 
-        // SEND FCM NOTIFICATION
-        boolean notificationSent = false;
-        String notificationError = null;
-
-        try {
-            // Get the user who reported the issue
-            User reporter = issue.getReportedBy();
-
-            if (reporter != null && reporter.getFcmToken() != null) {
-                notificationSent = fcmService.sendIssueUpdateNotification(
-                        reporter.getFcmToken(),
-                        issue.getId(),
-                        request.getStatus(),
-                        request.getComment()
-                );
-
-                if (notificationSent) {
-                    logger.info("Push notification sent successfully for issue {}", issue.getId());
-                } else {
-                    logger.warn("Failed to send push notification for issue {}", issue.getId());
-                    notificationError = "FCM service returned false";
-                }
-            } else {
-                logger.warn("No FCM token available for user who reported issue {}", issue.getId());
-                notificationError = "User FCM token not available";
-            }
-        } catch (Exception e) {
-            logger.error("Failed to send push notification for issue {}", issue.getId(), e);
-            notificationError = e.getMessage();
+        // Get the user who reported the issue while the session is still open
+        User reporter = issue.getReportedBy();
+        if (reporter == null || notificationOutboxService.enqueue(update, reporter) == 0) {
+            logger.warn("No FCM token available for user who reported issue {}", issue.getId());
+            update.setNotificationStatus(Update.NotificationStatus.SKIPPED);
+            update.setNotificationError("User FCM token not available");
         }
 
-        // Return as UpdateResponse DTO with notification status
-        return new UpdateResponse(
+        UpdateResponse response = new UpdateResponse(
                 update.getId(),
                 issue.getId(),
                 update.getStatus(),
                 update.getComment(),
                 update.getUpdateTime(),
-                update.getPhotoUrls(),
-                notificationSent,
-                notificationError
+                new ArrayList<>(update.getPhotoUrls())
         );
+        addRenditions(response, imageRenditionService.findByOriginalUrls(response.getPhotoUrls()));
+        addNotification(response, update);
+        return new SavedUpdate(response, previousStatus, Boolean.TRUE.equals(issue.getAssigned()));
+    }
+
+    // What the caller needs once the transaction has committed
+    private record SavedUpdate(UpdateResponse response, String previousStatus, boolean assigned) {
     }
 
     @Override
     public List<UpdateResponse> getUpdatesByIssueId(Long issueId) {
         List<Update> updates = updateRepository.findByIssueId(issueId);
 
+        // One rendition lookup for the photos of every update
+        List<String> photoUrls = new ArrayList<>();
+        updates.forEach(update -> photoUrls.addAll(update.getPhotoUrls()));
+        Map<String, MediaRendition> renditions = imageRenditionService.findByOriginalUrls(photoUrls);
+
         return updates.stream()
-                .map(update -> new UpdateResponse(
-                        update.getId(),
-                        update.getIssue().getId(),
-                        update.getStatus(),
-                        update.getComment(),
-                        update.getUpdateTime(),
-                        update.getPhotoUrls(),
-                        null, // No notification status for historical updates
-                        null
-                ))
+                .map(update -> {
+                    UpdateResponse response = new UpdateResponse(
+                            update.getId(),
+                            update.getIssue().getId(),
+                            update.getStatus(),
+                            update.getComment(),
+                            update.getUpdateTime(),
+                            update.getPhotoUrls()
+                    );
+                    addRenditions(response, renditions);
+                    addNotification(response, update);
+                    return response;
+                })
                 .toList();
     }
+
+    @Override
+    public NotificationStatusResponse getNotificationStatus(Long updateId) {
+        Update update = updateRepository.findById(updateId)
+                .orElseThrow(() -> new ResourceNotFoundException("Update not found with id: " + updateId));
+        return new NotificationStatusResponse(update.getId(), update.getIssue().getId(),
+                update.getNotificationStatus() != null ? update.getNotificationStatus().name() : null,
+                update.getNotificationError(), update.getNotifiedAt());
+    }
+
+    private static void addNotification(UpdateResponse response, Update update) {
+        if (update.getNotificationStatus() != null) {
+            response.setNotificationStatus(update.getNotificationStatus().name());
+        }
+        response.setNotificationError(update.getNotificationError());
+    }
+
+    private static void addRenditions(UpdateResponse response, Map<String, MediaRendition> renditions) {
+        response.setPhotoThumbnailUrls(MediaRenditions.smallUrls(response.getPhotoUrls(), renditions));
+        response.setPhotoPreviewUrls(MediaRenditions.mediumUrls(response.getPhotoUrls(), renditions));
+    }
     
     private String getRemarkValidationError(String status, IssueRemark.RemarkType remarkType) {
         String upperStatus = status.toUpperCase();
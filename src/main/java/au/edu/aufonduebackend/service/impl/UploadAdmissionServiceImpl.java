@@ -0,0 +1,150 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.service.UploadAdmissionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// All bookkeeping is under one lock; it is taken once per multipart request, not
+// per byte. A request larger than a budget on its own is still let in when
+// nothing else is using that budget, so big files are slowed down, never refused
+// outright.
+@Service
+public class UploadAdmissionServiceImpl implements UploadAdmissionService {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<String, Long> inFlightByClient = new HashMap<>();
+
+    private final long maxInFlightBytes;
+    private final long maxInFlightBytesPerClient;
+    private final long maxWaitMs;
+
+    private long inFlightBytes;
+    private long inFlightRequests;
+    private long queuedBytes;
+    private long queuedRequests;
+    private long admittedRequests;
+    private long admittedBytes;
+    private long rejectedRequests;
+    private long rejectedBytes;
+
+    public UploadAdmissionServiceImpl(
+            @Value("${uploads.admission.max-in-flight-bytes:536870912}") long maxInFlightBytes,
+            @Value("${uploads.admission.max-in-flight-bytes-per-client:209715200}") long maxInFlightBytesPerClient,
+            @Value("${uploads.admission.max-wait-ms:500}") long maxWaitMs) {
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.maxInFlightBytesPerClient = maxInFlightBytesPerClient;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    @Override
+    public Permit tryAdmit(String clientKey, long bytes) {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        lock.lock();
+        try {
+            boolean queued = false;
+            try {
+                while (!fits(clientKey, bytes)) {
+                    if (remainingNanos <= 0) {
+                        rejectedRequests++;
+                        rejectedBytes += bytes;
+                        return null;
+                    }
+                    if (!queued) {
+                        queued = true;
+                        queuedRequests++;
+                        queuedBytes += bytes;
+                    }
+                    remainingNanos = released.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejectedRequests++;
+                rejectedBytes += bytes;
+                return null;
+            } finally {
+                if (queued) {
+                    queuedRequests--;
+                    queuedBytes -= bytes;
+                }
+            }
+
+            inFlightBytes += bytes;
+            inFlightRequests++;
+            inFlightByClient.merge(clientKey, bytes, Long::sum);
+            admittedRequests++;
+            admittedBytes += bytes;
+            return new AdmittedUpload(clientKey, bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean fits(String clientKey, long bytes) {
+        long client = inFlightByClient.getOrDefault(clientKey, 0L);
+        boolean globalRoom = inFlightBytes == 0 || inFlightBytes + bytes <= maxInFlightBytes;
+        boolean clientRoom = client == 0 || client + bytes <= maxInFlightBytesPerClient;
+        return globalRoom && clientRoom;
+    }
+
+    private void release(String clientKey, long bytes) {
+        lock.lock();
+        try {
+            inFlightBytes -= bytes;
+            inFlightRequests--;
+            // drop the entry at zero so the map only holds clients with uploads running
+            inFlightByClient.computeIfPresent(clientKey, (key, current) -> current - bytes <= 0 ? null : current - bytes);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        lock.lock();
+        try {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("maxInFlightBytes", maxInFlightBytes);
+            stats.put("maxInFlightBytesPerClient", maxInFlightBytesPerClient);
+            stats.put("inFlightBytes", inFlightBytes);
+            stats.put("inFlightRequests", inFlightRequests);
+            stats.put("clientsInFlight", (long) inFlightByClient.size());
+            stats.put("queuedBytes", queuedBytes);
+            stats.put("queuedRequests", queuedRequests);
+            stats.put("admittedBytes", admittedBytes);
+            stats.put("admittedRequests", admittedRequests);
+            stats.put("rejectedBytes", rejectedBytes);
+            stats.put("rejectedRequests", rejectedRequests);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class AdmittedUpload implements Permit {
+        private final String clientKey;
+        private final long bytes;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        AdmittedUpload(String clientKey, long bytes) {
+            this.clientKey = clientKey;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(clientKey, bytes);
+            }
+        }
+    }
+}
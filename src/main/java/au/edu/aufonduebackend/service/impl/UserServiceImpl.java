@@ -1,19 +1,29 @@
 package au.edu.aufonduebackend.service.impl;
 
 import au.edu.aufonduebackend.model.entity.User;
+import au.edu.aufonduebackend.model.entity.UserDevice;
+import au.edu.aufonduebackend.repository.UserDeviceRepository;
 import au.edu.aufonduebackend.repository.UserRepository;
 import au.edu.aufonduebackend.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final UserDeviceRepository deviceRepository;
+
+    @Value("${devices.last-seen-resolution-hours:24}")
+    private long lastSeenResolutionHours = 24;
 
     @Override
     @Transactional
@@ -29,24 +39,60 @@ public class UserServiceImpl implements UserService {
     }
 
     // ADD THESE NEW METHODS FOR FCM TOKEN MANAGEMENT
+    // The app registers its token on every launch, so an unchanged token costs one
+    // read and, at most once per resolution period, a last_seen_at update
     @Override
     @Transactional
-    public User updateFcmToken(String email, String fcmToken) {
+    public User updateFcmToken(String email, String fcmToken, String deviceId) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
 
+        Instant now = Instant.now();
+        UserDevice device = deviceRepository.findByFcmToken(fcmToken).orElse(null);
+        if (device != null && device.getUser().getId().equals(user.getId())
+                && (deviceId == null || deviceId.equals(device.getDeviceId()))) {
+            if (device.getLastSeenAt().isBefore(now.minus(Duration.ofHours(lastSeenResolutionHours)))) {
+                deviceRepository.touch(device.getId(), now);
+            }
+            return user;
+        }
+
+        // The install's previous token, which this one replaces
+        UserDevice previous = deviceId == null ? null
+                : deviceRepository.findByUserIdAndDeviceId(user.getId(), deviceId).orElse(null);
+        if (previous != null && !previous.getFcmToken().equals(fcmToken)) {
+            deviceRepository.delete(previous);
+            deviceRepository.flush();
+        }
+        deviceRepository.upsert(user.getId(), fcmToken, deviceId, now);
+        // a token that moved over from someone else must not stay in their column
+        // either, or UserDeviceMigration would hand it back to them
+        userRepository.clearFcmTokenOfOthers(fcmToken, user.getId());
         user.setFcmToken(fcmToken);
-        return userRepository.save(user);
+        return user;
     }
 
     @Override
     @Transactional
-    public User removeFcmToken(String email) {
+    public User removeFcmToken(String email, String fcmToken) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
 
-        user.setFcmToken(null);
-        return userRepository.save(user);
+        if (fcmToken == null) {
+            deviceRepository.deleteByUserId(user.getId());
+        } else {
+            deviceRepository.deleteByUserIdAndFcmToken(user.getId(), fcmToken);
+        }
+        // keep UserDeviceMigration from copying the signed-out token back
+        if (fcmToken == null || fcmToken.equals(user.getFcmToken())) {
+            user.setFcmToken(null);
+        }
+        return user;
+    }
+
+    @Override
+    public List<String> getFcmTokens(Long userId) {
+        return deviceRepository.findTokensByUserId(userId);
     }
 
     @Override
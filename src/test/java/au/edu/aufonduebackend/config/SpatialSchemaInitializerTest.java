@@ -0,0 +1,27 @@
+package au.edu.aufonduebackend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class SpatialSchemaInitializerTest {
+
+    @Test
+    void missingPostgisFailsStartup() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doThrow(new DataAccessResourceFailureException("type \"geography\" does not exist"))
+                .when(jdbcTemplate).execute(anyString());
+        SpatialSchemaInitializer initializer = new SpatialSchemaInitializer();
+        ReflectionTestUtils.setField(initializer, "jdbcTemplate", jdbcTemplate);
+
+        assertThatThrownBy(initializer::run)
+                .isInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("type \"geography\" does not exist");
+    }
+}
@@ -0,0 +1,99 @@
+package au.edu.aufonduebackend.config;
+
+import au.edu.aufonduebackend.service.UploadAdmissionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadAdmissionFilterTest {
+
+    private UploadAdmissionService admissionService;
+    private UploadAdmissionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        admissionService = mock(UploadAdmissionService.class);
+        filter = new UploadAdmissionFilter(admissionService, new ObjectMapper());
+    }
+
+    @Test
+    void admittedUploadReleasesItsBytesAfterwards() throws Exception {
+        UploadAdmissionService.Permit permit = mock(UploadAdmissionService.Permit.class);
+        when(admissionService.tryAdmit("ip:203.0.113.7", 5000)).thenReturn(permit);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(upload(5000), new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        verify(permit).close();
+    }
+
+    @Test
+    void uploadOverBudgetGetsServiceUnavailable() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(upload(5000), response, chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("5");
+        assertThat(response.getContentAsString()).contains("\"success\":false");
+    }
+
+    @Test
+    void clientHeadersDoNotChooseTheKey() throws Exception {
+        MockHttpServletRequest request = upload(5000);
+        request.addHeader("X-Forwarded-For", "198.51.100.1");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        verify(admissionService).tryAdmit("ip:203.0.113.7", 5000);
+    }
+
+    @Test
+    void forwardedForIsReadThroughTrustedProxiesOnly() throws Exception {
+        filter.setTrustedProxies(List.of("10.0.0.0/8", " 192.0.2.10"));
+        MockHttpServletRequest request = upload(5000);
+        request.setRemoteAddr("10.1.2.3");
+        // spoofed first entry, then the real client, then another of our proxies
+        request.addHeader("X-Forwarded-For", "198.51.100.1, 203.0.113.9, 192.0.2.10");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        verify(admissionService).tryAdmit("ip:203.0.113.9", 5000);
+    }
+
+    @Test
+    void otherRequestsAreNotCounted() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/issues");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        verify(admissionService, never()).tryAdmit(anyString(), anyLong());
+    }
+
+    private static MockHttpServletRequest upload(int length) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/issues");
+        request.setContentType("multipart/form-data; boundary=xyz");
+        request.setContent(new byte[length]);
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader("X-User-Id", "42");
+        return request;
+    }
+}
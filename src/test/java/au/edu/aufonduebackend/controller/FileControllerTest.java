@@ -0,0 +1,114 @@
+package au.edu.aufonduebackend.controller;
+
+import au.edu.aufonduebackend.service.impl.LocalStorageServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileControllerTest {
+
+    private static final String NAME = "walkthrough.mp4";
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path root;
+
+    private FileController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(root.resolve(NAME), CONTENT);
+        controller = new FileController(new LocalStorageServiceImpl(root.toString(), "http://localhost/api/files"));
+    }
+
+    @Test
+    void wholeFileWithCachingHeaders() throws Exception {
+        MockHttpServletResponse response = get(new MockHttpServletRequest("GET", "/api/files/" + NAME));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getContentType()).isEqualTo("video/mp4");
+        assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+        assertThat(response.getHeader("Cache-Control")).contains("immutable");
+        assertThat(response.getHeader("ETag")).isNotNull();
+    }
+
+    @Test
+    void byteRangeIsServedAsPartialContent() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/" + NAME);
+        request.addHeader("Range", "bytes=2-5");
+
+        MockHttpServletResponse response = get(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 2-5/10");
+    }
+
+    @Test
+    void suffixRangeServesTheEndOfTheFile() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/" + NAME);
+        request.addHeader("Range", "bytes=-3");
+
+        assertThat(get(request).getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/" + NAME);
+        request.addHeader("Range", "bytes=50-");
+
+        MockHttpServletResponse response = get(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void matchingETagGetsNotModified() throws Exception {
+        String etag = get(new MockHttpServletRequest("GET", "/api/files/" + NAME)).getHeader("ETag");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/" + NAME);
+        request.addHeader("If-None-Match", etag);
+
+        MockHttpServletResponse response = get(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void tomcatSendfileIsUsedWhenAvailable() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/" + NAME);
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=4-");
+
+        MockHttpServletResponse response = get(request);
+
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(root.resolve(NAME).toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(4L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(10L);
+        assertThat(response.getContentLengthLong()).isEqualTo(6);
+    }
+
+    @Test
+    void unknownFileIsNotFound() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serveFile("missing.jpg", new MockHttpServletRequest("GET", "/api/files/missing.jpg"), response);
+
+        assertThat(response.getStatus()).isEqualTo(404);
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serveFile(NAME, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,198 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.entity.MediaRendition;
+import au.edu.aufonduebackend.model.entity.PendingBlobDeletion;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.repository.MediaRenditionRepository;
+import au.edu.aufonduebackend.repository.PendingBlobDeletionRepository;
+import au.edu.aufonduebackend.service.BlobDeletionService.Cancellation;
+import au.edu.aufonduebackend.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BlobDeletionServiceImplTest {
+
+    private PendingBlobDeletionRepository deletionRepository;
+    private IssueRepository issueRepository;
+    private MediaRenditionRepository renditionRepository;
+    private StorageService storageService;
+    private PlatformTransactionManager transactionManager;
+    private BlobDeletionServiceImpl deletionService;
+
+    private final List<PendingBlobDeletion> queue = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        deletionRepository = mock(PendingBlobDeletionRepository.class);
+        issueRepository = mock(IssueRepository.class);
+        renditionRepository = mock(MediaRenditionRepository.class);
+        storageService = mock(StorageService.class);
+        // no transaction manager behind it: callbacks run inline
+        transactionManager = mock(PlatformTransactionManager.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        deletionService = new BlobDeletionServiceImpl(deletionRepository, issueRepository, renditionRepository,
+                storageService, transactionTemplate, Runnable::run);
+
+        // the repository hands back whatever was queued, once
+        when(deletionRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            Iterable<PendingBlobDeletion> rows = invocation.getArgument(0);
+            for (PendingBlobDeletion row : rows) {
+                if (row.getId() == null) {
+                    row.setId(ids.incrementAndGet());
+                    queue.add(row);
+                }
+            }
+            return rows;
+        });
+        when(deletionRepository.lockDue(any(Instant.class), anyInt())).thenAnswer(invocation -> {
+            List<PendingBlobDeletion> due = new ArrayList<>(queue);
+            queue.clear();
+            return due;
+        });
+        when(storageService.deleteFiles(anyCollection())).thenReturn(Map.of());
+    }
+
+    @Test
+    void orphanedBlobsAreDeletedInOneBatchWithTheirRenditions() {
+        MediaRendition rendition = new MediaRendition();
+        rendition.setOriginalUrl("https://blob/a.jpg");
+        rendition.setSmallUrl("https://blob/a_small.jpg");
+        rendition.setMediumUrl("https://blob/a_medium.jpg");
+        when(renditionRepository.findByOriginalUrlIn(anyCollection())).thenReturn(List.of(rendition));
+
+        deletionService.scheduleDeletion(List.of("https://blob/a.jpg", "https://blob/b.mp4", "https://blob/a.jpg"));
+        deletionService.processBatch();
+
+        verify(storageService).deleteFiles(List.of("https://blob/a.jpg", "https://blob/b.mp4",
+                "https://blob/a_small.jpg", "https://blob/a_medium.jpg"));
+        // listed twice, queued once
+        verify(deletionRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(renditionRepository).deleteAllInBatch(List.of(rendition));
+    }
+
+    @Test
+    void blobReferencedAgainIsKept() {
+        when(issueRepository.countMediaReferences("https://blob/shared.jpg")).thenReturn(1L);
+
+        deletionService.scheduleDeletion(List.of("https://blob/shared.jpg", "https://blob/orphan.jpg"));
+        deletionService.processBatch();
+
+        verify(storageService).deleteFiles(List.of("https://blob/orphan.jpg"));
+        // dropped when claimed, and once deleted
+        verify(deletionRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(deletionRepository).deleteAllByIdInBatch(List.of(2L));
+    }
+
+    @Test
+    void failedDeletionStaysQueuedWithBackoff() {
+        when(storageService.deleteFiles(anyCollection())).thenReturn(Map.of("https://blob/b.mp4", "Server busy"));
+        Instant before = Instant.now();
+
+        deletionService.scheduleDeletion(List.of("https://blob/a.jpg", "https://blob/b.mp4"));
+        deletionService.processBatch();
+
+        verify(deletionRepository).deleteAllByIdInBatch(List.of(1L));
+        ArgumentCaptor<Instant> nextAttempt = ArgumentCaptor.forClass(Instant.class);
+        verify(deletionRepository).reschedule(eq(2L), nextAttempt.capture(), eq("Server busy"));
+        assertThat(nextAttempt.getValue()).isAfter(before.plusSeconds(29));
+        verify(deletionRepository, never()).reschedule(eq(1L), any(), any());
+    }
+
+    @Test
+    void failedRenditionKeepsTheOriginalQueued() {
+        MediaRendition rendition = new MediaRendition();
+        rendition.setOriginalUrl("https://blob/a.jpg");
+        rendition.setSmallUrl("https://blob/a_small.jpg");
+        when(renditionRepository.findByOriginalUrlIn(anyCollection())).thenReturn(List.of(rendition));
+        when(storageService.deleteFiles(anyCollection())).thenReturn(Map.of("https://blob/a_small.jpg", "timeout"));
+
+        deletionService.scheduleDeletion(Set.of("https://blob/a.jpg"));
+        deletionService.processBatch();
+
+        verify(deletionRepository).reschedule(eq(1L), any(Instant.class), eq("timeout"));
+        verify(renditionRepository).deleteAllInBatch(List.of());
+    }
+
+    @Test
+    void queuedBlobsWaitOutTheGracePeriod() {
+        Instant before = Instant.now();
+
+        deletionService.scheduleDeletion(List.of("https://blob/a.jpg"));
+
+        assertThat(queue).singleElement()
+                .satisfies(row -> assertThat(row.getNextAttemptAt()).isAfter(before.plusSeconds(3599)));
+        verify(deletionRepository, never()).lockDue(any(Instant.class), anyInt());
+    }
+
+    @Test
+    void blobsAreDeletedBetweenTwoShortTransactionsUnderALease() {
+        deletionService.scheduleDeletion(List.of("https://blob/a.jpg"));
+        PendingBlobDeletion row = queue.get(0);
+        Instant before = Instant.now();
+        when(storageService.deleteFiles(anyCollection())).thenAnswer(invocation -> {
+            // claimed for a while, so other instances leave it alone
+            assertThat(row.getClaimedUntil()).isAfter(before.plusSeconds(60));
+            assertThat(row.getNextAttemptAt()).isEqualTo(row.getClaimedUntil());
+            return Map.of();
+        });
+
+        deletionService.processBatch();
+
+        InOrder order = inOrder(transactionManager, deletionRepository, issueRepository, storageService);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(deletionRepository).lockDue(any(Instant.class), anyInt());
+        order.verify(issueRepository).countMediaReferences("https://blob/a.jpg");
+        order.verify(transactionManager).commit(any());
+        order.verify(storageService).deleteFiles(List.of("https://blob/a.jpg"));
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(deletionRepository).deleteAllByIdInBatch(List.of(1L));
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void cancellingAClaimedDeletionReportsItInProgress() {
+        when(deletionRepository.deleteUnclaimedByUrl(eq("https://blob/a.jpg"), any(Instant.class))).thenReturn(0);
+        when(deletionRepository.isClaimed(eq("https://blob/a.jpg"), any(Instant.class))).thenReturn(true);
+
+        assertThat(deletionService.cancelDeletion("https://blob/a.jpg")).isEqualTo(Cancellation.IN_PROGRESS);
+    }
+
+    @Test
+    void cancellingAnUnclaimedDeletionRemovesIt() {
+        when(deletionRepository.deleteUnclaimedByUrl(eq("https://blob/a.jpg"), any(Instant.class))).thenReturn(1);
+
+        assertThat(deletionService.cancelDeletion("https://blob/a.jpg")).isEqualTo(Cancellation.CANCELLED);
+        assertThat(deletionService.cancelDeletion("https://blob/b.jpg")).isEqualTo(Cancellation.NOT_QUEUED);
+    }
+
+    @Test
+    void nothingDueMeansNoStorageCalls() {
+        assertThat(deletionService.processBatch()).isZero();
+
+        verify(storageService, never()).deleteFiles(anyCollection());
+    }
+}
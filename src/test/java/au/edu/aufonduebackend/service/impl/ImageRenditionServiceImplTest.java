@@ -0,0 +1,211 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.entity.MediaRendition;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.repository.MediaRenditionRepository;
+import au.edu.aufonduebackend.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageRenditionServiceImplTest {
+
+    private static final String ORIGINAL = "https://blob/20241201-photo.jpg";
+
+    private MediaRenditionRepository renditionRepository;
+    private IssueRepository issueRepository;
+    private StorageService storageService;
+    private ImageRenditionServiceImpl renditionService;
+    private final Map<String, byte[]> uploaded = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        renditionRepository = mock(MediaRenditionRepository.class);
+        issueRepository = mock(IssueRepository.class);
+        storageService = mock(StorageService.class);
+        // no transaction manager behind it: callbacks run inline
+        renditionService = new ImageRenditionServiceImpl(renditionRepository, issueRepository, storageService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        when(storageService.uploadDerivedFile(anyString(), anyString(), any(), eq("image/jpeg")))
+                .thenAnswer(invocation -> {
+                    String url = "https://blob/20241201-photo" + invocation.getArgument(1);
+                    uploaded.put(url, invocation.getArgument(2));
+                    return url;
+                });
+    }
+
+    @Test
+    void cameraPhotoIsScaledToSmallAndMediumJpegs() throws Exception {
+        byte[] photo = jpeg(4000, 3000);
+
+        renditionService.createRenditions(new ByteArrayResource(photo), ORIGINAL);
+
+        MediaRendition saved = savedRendition();
+        assertThat(saved.getStatus()).isEqualTo(MediaRendition.Status.READY);
+        assertThat(saved.getOriginalUrl()).isEqualTo(ORIGINAL);
+        BufferedImage medium = read(saved.getMediumUrl());
+        BufferedImage small = read(saved.getSmallUrl());
+        assertThat(medium.getWidth()).isEqualTo(800);
+        assertThat(medium.getHeight()).isEqualTo(600);
+        assertThat(small.getWidth()).isEqualTo(200);
+        assertThat(small.getHeight()).isEqualTo(150);
+        assertThat(uploaded.get(saved.getSmallUrl()).length).isLessThan(photo.length / 10);
+    }
+
+    @Test
+    void smallPhotoIsNotEnlarged() throws Exception {
+        renditionService.createRenditions(new ByteArrayResource(jpeg(300, 100)), ORIGINAL);
+
+        MediaRendition saved = savedRendition();
+        assertThat(read(saved.getMediumUrl()).getWidth()).isEqualTo(300);
+        assertThat(read(saved.getSmallUrl()).getWidth()).isEqualTo(200);
+    }
+
+    @Test
+    void exifRotationIsAppliedToTheRenditions() throws Exception {
+        // stored landscape, tagged "rotate 90 degrees clockwise" like most phone portraits
+        byte[] photo = withExifOrientation(jpeg(1600, 1200), 6);
+
+        renditionService.createRenditions(new ByteArrayResource(photo), ORIGINAL);
+
+        BufferedImage medium = read(savedRendition().getMediumUrl());
+        assertThat(medium.getWidth()).isEqualTo(600);
+        assertThat(medium.getHeight()).isEqualTo(800);
+    }
+
+    @Test
+    void undecodableFileIsRecordedAsUnsupported() {
+        byte[] notAnImage = "ftypheic not something ImageIO reads".getBytes(StandardCharsets.US_ASCII);
+
+        renditionService.createRenditions(new ByteArrayResource(notAnImage), ORIGINAL);
+
+        assertThat(savedRendition().getStatus()).isEqualTo(MediaRendition.Status.UNSUPPORTED);
+        verify(storageService, never()).uploadDerivedFile(anyString(), anyString(), any(), anyString());
+    }
+
+    @Test
+    void corruptFileIsRecordedAsUnsupported() {
+        byte[] truncatedPng = Arrays.copyOf(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13}, 40);
+
+        renditionService.createRenditions(new ByteArrayResource(truncatedPng), ORIGINAL);
+
+        assertThat(savedRendition().getStatus()).isEqualTo(MediaRendition.Status.UNSUPPORTED);
+    }
+
+    @Test
+    void mediumRenditionIsRemovedWhenTheSmallOneFails() throws Exception {
+        when(storageService.uploadDerivedFile(anyString(), eq("_small.jpg"), any(), anyString()))
+                .thenThrow(new RuntimeException("Server busy"));
+
+        renditionService.createRenditions(new ByteArrayResource(jpeg(1200, 900)), ORIGINAL);
+
+        verify(storageService).deleteFile("https://blob/20241201-photo_medium.jpg");
+        // nothing recorded, so the backfill tries again
+        verify(renditionRepository, never()).save(any());
+    }
+
+    @Test
+    void backfillRendersExistingPhotosFromStorage() throws Exception {
+        byte[] photo = jpeg(1200, 900);
+        when(renditionRepository.findPhotoUrlsWithoutRenditions(10)).thenReturn(List.of(ORIGINAL));
+        when(storageService.openFile(ORIGINAL)).thenReturn(new ByteArrayInputStream(photo));
+
+        int processed = renditionService.backfill(10);
+
+        assertThat(processed).isEqualTo(1);
+        assertThat(savedRendition().getStatus()).isEqualTo(MediaRendition.Status.READY);
+        // so the issue's ETag changes along with its thumbnail URLs
+        verify(issueRepository).touchByPhotoUrl(eq(ORIGINAL), any(Instant.class));
+    }
+
+    @Test
+    void storageTroubleLeavesTheBatchForTheNextRun() {
+        when(renditionRepository.findPhotoUrlsWithoutRenditions(10)).thenReturn(List.of(ORIGINAL, "https://blob/other.jpg"));
+        when(storageService.openFile(ORIGINAL)).thenThrow(new RuntimeException("Connection reset"));
+        when(storageService.describeFile("20241201-photo.jpg"))
+                .thenReturn(Optional.of(new StorageService.StoredFile(ORIGINAL, 1000, "image/jpeg")));
+
+        int processed = renditionService.backfill(10);
+
+        assertThat(processed).isZero();
+        verify(renditionRepository, never()).save(any());
+        verify(storageService, never()).openFile("https://blob/other.jpg");
+    }
+
+    @Test
+    void missingBlobDoesNotStallTheBackfill() {
+        when(renditionRepository.findPhotoUrlsWithoutRenditions(10)).thenReturn(List.of(ORIGINAL));
+        when(storageService.openFile(ORIGINAL)).thenThrow(new RuntimeException("BlobNotFound"));
+
+        renditionService.backfill(10);
+
+        assertThat(savedRendition().getStatus()).isEqualTo(MediaRendition.Status.UNSUPPORTED);
+    }
+
+    private MediaRendition savedRendition() {
+        ArgumentCaptor<MediaRendition> captor = ArgumentCaptor.forClass(MediaRendition.class);
+        verify(renditionRepository).save(captor.capture());
+        return captor.getValue();
+    }
+
+    private BufferedImage read(String url) throws Exception {
+        return ImageIO.read(new ByteArrayInputStream(uploaded.get(url)));
+    }
+
+    private static byte[] jpeg(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.ORANGE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLUE);
+        g.fillOval(width / 4, height / 4, width / 2, height / 2);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    // Inserts a minimal big-endian EXIF block with only the orientation tag after SOI
+    private static byte[] withExifOrientation(byte[] jpeg, int orientation) {
+        ByteBuffer tiff = ByteBuffer.allocate(8 + 2 + 12 + 4);
+        tiff.put((byte) 'M').put((byte) 'M').putShort((short) 42).putInt(8);
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        tiff.putInt(0);
+        byte[] exif = "Exif\0\0".getBytes(StandardCharsets.ISO_8859_1);
+
+        int segmentLength = 2 + exif.length + tiff.capacity();
+        ByteBuffer result = ByteBuffer.allocate(jpeg.length + 2 + segmentLength);
+        result.put(jpeg, 0, 2);
+        result.putShort((short) 0xFFE1).putShort((short) segmentLength).put(exif).put(tiff.array());
+        result.put(jpeg, 2, jpeg.length - 2);
+        return result.array();
+    }
+}
@@ -0,0 +1,205 @@
+package au.edu.aufonduebackend.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IssueExportServiceImplTest {
+
+    private static final String CSV_HEADER = "id,description,category,status,priority,latitude,longitude,"
+            + "customLocation,assigned,createdAt,updatedAt,reporterId,reporterUsername,reporterEmail,"
+            + "assigneeStaffId,assigneeName,assigneeEmail,remarkType,remarkViewed,photoUrls,videoUrls";
+
+    private DataSource dataSource;
+    private Connection connection;
+    private PreparedStatement statement;
+    private PlatformTransactionManager transactionManager;
+    private IssueExportServiceImpl exportService;
+
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // how much had reached the output when each row was fetched
+    private final List<Integer> writtenBeforeRow = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = mock(DataSource.class);
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        ResultSet resultSet = resultSet();
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        exportService = new IssueExportServiceImpl(dataSource, transactionManager, new ObjectMapper(), 500);
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws Exception {
+        rows.add(row(1L, "Broken light"));
+        rows.add(row(2L, "Pothole"));
+
+        exportService.exportIssues("ndjson", null, null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(1L);
+        assertThat(first.get("description").asText()).isEqualTo("Broken light");
+        assertThat(first.get("createdAt").asText()).isEqualTo("2024-12-01T00:00:00Z");
+        assertThat(first.get("reportedBy").get("username").asText()).isEqualTo("alice");
+        assertThat(first.get("assignedTo").isNull()).isTrue();
+        assertThat(first.get("photoUrls").get(0).asText()).isEqualTo("https://blobs/a.jpg");
+        assertThat(new ObjectMapper().readTree(lines[1]).get("id").asLong()).isEqualTo(2L);
+    }
+
+    @Test
+    void rowsReachTheOutputWhileTheCursorIsStillOpen() throws Exception {
+        for (long id = 1; id <= 2500; id++) {
+            rows.add(row(id, "Issue " + id));
+        }
+
+        exportService.exportIssues("ndjson", null, null, null, out);
+
+        // nothing is buffered up for the whole result: earlier rows were flushed
+        // to the client before the later ones were even fetched
+        assertThat(writtenBeforeRow.get(0)).isZero();
+        assertThat(writtenBeforeRow.get(1500)).isPositive();
+        assertThat(writtenBeforeRow.get(2499)).isGreaterThan(writtenBeforeRow.get(1500));
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).hasSize(2500);
+        verify(statement).setFetchSize(500);
+    }
+
+    @Test
+    void exportRunsInAReadOnlyTransaction() throws Exception {
+        exportService.exportIssues("csv", null, null, null, out);
+
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    @Test
+    void csvStartsWithTheHeaderRow() throws Exception {
+        rows.add(row(1L, "Broken light"));
+
+        exportService.exportIssues("csv", null, null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(lines[0]).isEqualTo(CSV_HEADER);
+        assertThat(lines[1]).startsWith("1,Broken light,Lighting,PENDING,,");
+        assertThat(lines[1]).endsWith(",https://blobs/a.jpg https://blobs/b.jpg,");
+    }
+
+    @Test
+    void csvQuotesValuesWithCommasQuotesAndLineBreaks() throws Exception {
+        rows.add(row(1L, "Light out, \"again\"\nnear the gate"));
+
+        exportService.exportIssues("csv", null, null, null, out);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertThat(csv).contains("\r\n1,\"Light out, \"\"again\"\"\nnear the gate\",Lighting,");
+    }
+
+    @Test
+    void emptyResultStillWritesTheCsvHeader() throws Exception {
+        exportService.exportIssues("csv", "completed", null, null, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(CSV_HEADER + "\r\n");
+    }
+
+    @Test
+    void emptyResultWritesNoNdjsonLines() throws Exception {
+        exportService.exportIssues("ndjson", null, Instant.parse("2024-01-01T00:00:00Z"), null, out);
+
+        assertThat(out.size()).isZero();
+        verify(statement).setObject(1, Timestamp.from(Instant.parse("2024-01-01T00:00:00Z")));
+    }
+
+    @Test
+    void unknownFormatIsRejectedBeforeQuerying() throws Exception {
+        assertThatThrownBy(() -> exportService.exportIssues("xml", null, null, null, out))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(dataSource, never()).getConnection();
+        assertThat(out.size()).isZero();
+    }
+
+    private Map<String, Object> row(long id, String description) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("description", description);
+        row.put("category", "Lighting");
+        row.put("status", "PENDING");
+        row.put("latitude", -37.8);
+        row.put("longitude", 144.9);
+        row.put("custom_location", "Main St");
+        row.put("assigned", false);
+        row.put("created_at", Timestamp.from(Instant.parse("2024-12-01T00:00:00Z")));
+        row.put("updated_at", Timestamp.from(Instant.parse("2024-12-02T00:00:00Z")));
+        row.put("reporter_id", 5L);
+        row.put("reporter_username", "alice");
+        row.put("reporter_email", "alice@example.com");
+        row.put("photo_urls", new String[]{"https://blobs/a.jpg", "https://blobs/b.jpg"});
+        row.put("video_urls", new String[0]);
+        return row;
+    }
+
+    // A forward-only result set over the rows list that records how much output
+    // had been written each time it moved to the next row
+    private ResultSet resultSet() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        int[] index = {-1};
+        when(rs.next()).thenAnswer(inv -> {
+            index[0]++;
+            if (index[0] < rows.size()) {
+                writtenBeforeRow.add(out.size());
+                return true;
+            }
+            return false;
+        });
+        when(rs.getString(anyString())).thenAnswer(inv -> {
+            Object value = rows.get(index[0]).get(inv.<String>getArgument(0));
+            return value == null ? null : value.toString();
+        });
+        when(rs.getLong(anyString())).thenAnswer(inv -> rows.get(index[0]).get(inv.<String>getArgument(0)));
+        when(rs.getBoolean(anyString())).thenAnswer(inv ->
+                Boolean.TRUE.equals(rows.get(index[0]).get(inv.<String>getArgument(0))));
+        when(rs.getObject(anyString(), any(Class.class))).thenAnswer(inv ->
+                rows.get(index[0]).get(inv.<String>getArgument(0)));
+        when(rs.getTimestamp(anyString())).thenAnswer(inv -> rows.get(index[0]).get(inv.<String>getArgument(0)));
+        when(rs.getArray(anyString())).thenAnswer(inv -> {
+            String[] values = (String[]) rows.get(index[0]).get(inv.<String>getArgument(0));
+            Array array = mock(Array.class);
+            when(array.getArray()).thenReturn(values);
+            return array;
+        });
+        return rs;
+    }
+}
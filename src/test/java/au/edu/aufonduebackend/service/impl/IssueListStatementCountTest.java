@@ -0,0 +1,174 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.dto.response.IssueResponse;
+import au.edu.aufonduebackend.model.entity.Issue;
+import au.edu.aufonduebackend.model.entity.IssueRemark;
+import au.edu.aufonduebackend.model.entity.MediaRendition;
+import au.edu.aufonduebackend.model.entity.Staff;
+import au.edu.aufonduebackend.model.entity.User;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.service.IssueMapService;
+import au.edu.aufonduebackend.service.IssueService;
+import au.edu.aufonduebackend.service.IssueStatsService;
+import au.edu.aufonduebackend.service.MediaIngestionService;
+import au.edu.aufonduebackend.service.MediaUploadService;
+import au.edu.aufonduebackend.service.ResumableUploadService;
+import au.edu.aufonduebackend.service.StorageService;
+import au.edu.aufonduebackend.service.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Counts the statements Hibernate actually prepares for a page of issues, against a
+// real database. The page should cost the same whatever its size: the ids, the
+// issues with reporter and assignee, their remarks, the photo renditions, and one
+// batch each for the photo and video lists. Skipped when Docker is not available.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({IssueServiceImpl.class, IssueRemarkServiceImpl.class, ImageRenditionServiceImpl.class})
+class IssueListStatementCountTest {
+
+    private static final int STATEMENTS_PER_PAGE = 6;
+
+    // AufonduebackendApplication declares its own @ComponentScan, which would pull
+    // every bean into the slice, so the test brings just the JPA setup it needs
+    @Configuration
+    @EntityScan(basePackageClasses = Issue.class)
+    @EnableJpaRepositories(basePackageClasses = IssueRepository.class)
+    static class JpaConfig {
+    }
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private IssueStatsService issueStatsService;
+    @MockBean
+    private IssueMapService issueMapService;
+    @MockBean
+    private MediaUploadService mediaUploadService;
+    @MockBean
+    private MediaIngestionService mediaIngestionService;
+    @MockBean
+    private ResumableUploadService resumableUploadService;
+    @MockBean
+    private StorageService storageService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private IssueService issueService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void trackingPageCostsTheSameStatementsForThreeIssuesAsForThirty() {
+        persistIssues(30);
+
+        assertThat(statementsFor(() -> issueService.getAllIssuesTracking(0, 3, null))).isEqualTo(STATEMENTS_PER_PAGE);
+        assertThat(statementsFor(() -> issueService.getAllIssuesTracking(0, 30, null))).isEqualTo(STATEMENTS_PER_PAGE);
+    }
+
+    @Test
+    void userSubmittedPageCostsTheSameStatementsForThreeIssuesAsForThirty() {
+        User reporter = persistIssues(30).get(0).getReportedBy();
+
+        assertThat(statementsFor(() -> issueService.getUserSubmittedIssues(reporter.getId(), 0, 3, null)))
+                .isEqualTo(STATEMENTS_PER_PAGE);
+        assertThat(statementsFor(() -> issueService.getUserSubmittedIssues(reporter.getId(), 0, 30, null)))
+                .isEqualTo(STATEMENTS_PER_PAGE);
+    }
+
+    // Runs the request against an empty persistence context, so every entity it
+    // reads has to come from the database, and returns the statements it prepared
+    private long statementsFor(Supplier<List<IssueResponse>> request) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<IssueResponse> responses = request.get();
+
+        assertThat(responses).isNotEmpty();
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.getReportedBy().getUsername()).isNotNull();
+            assertThat(response.getPhotoUrls()).hasSize(2);
+            assertThat(response.getVideoUrls()).hasSize(1);
+            assertThat(response.getRemarkType()).isNotNull();
+        });
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Every issue has a remark, two photos (one with renditions) and a video; half of
+    // them are assigned, so both lazy associations are on the page
+    private List<Issue> persistIssues(int count) {
+        User reporter = new User();
+        reporter.setUsername("reporter");
+        reporter.setEmail("reporter@example.com");
+        reporter.setRole("USER");
+        entityManager.persist(reporter);
+
+        Staff staff = new Staff();
+        staff.setName("Staff member");
+        staff.setStaffId("S001");
+        entityManager.persist(staff);
+
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Issue issue = new Issue();
+            issue.setDescription("Issue " + i);
+            issue.setReportedBy(reporter);
+            if (i % 2 == 0) {
+                issue.setAssigned(true);
+                issue.setAssignedTo(staff);
+            }
+            issue.setPhotoUrls(new ArrayList<>(List.of("https://blob/" + i + "-a.jpg", "https://blob/" + i + "-b.jpg")));
+            issue.setVideoUrls(new ArrayList<>(List.of("https://blob/" + i + ".mp4")));
+            entityManager.persist(issue);
+            issues.add(issue);
+
+            IssueRemark remark = new IssueRemark();
+            remark.setIssue(issue);
+            remark.setRemarkType(IssueRemark.RemarkType.NEW);
+            entityManager.persist(remark);
+
+            MediaRendition rendition = new MediaRendition();
+            rendition.setOriginalUrl("https://blob/" + i + "-a.jpg");
+            rendition.setSmallUrl("https://blob/" + i + "-a_small.jpg");
+            rendition.setMediumUrl("https://blob/" + i + "-a_medium.jpg");
+            rendition.setStatus(MediaRendition.Status.READY);
+            entityManager.persist(rendition);
+        }
+        return issues;
+    }
+}
@@ -0,0 +1,82 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.dto.response.IssueCluster;
+import au.edu.aufonduebackend.model.dto.response.IssueClusterResponse;
+import au.edu.aufonduebackend.model.entity.Issue;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The cluster payload must stay bounded however many issues the viewport covers,
+// and changes reported by the issue services must show up without a reload.
+class IssueMapServiceImplTest {
+
+    // around the Suvarnabhumi campus
+    private static final double LAT = 13.61;
+    private static final double LON = 100.83;
+
+    private IssueRepository issueRepository;
+    private IssueMapServiceImpl mapService;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            rows.add(new Object[]{id, LAT + (id % 100) * 0.0001, LON + (id / 100) * 0.0001,
+                    id % 2 == 0 ? "PENDING" : "COMPLETED", "Category " + (id % 20)});
+        }
+        issueRepository = mock(IssueRepository.class);
+        when(issueRepository.findMapPoints()).thenReturn(rows);
+
+        mapService = new IssueMapServiceImpl(issueRepository);
+        mapService.loadOnStartup();
+    }
+
+    @Test
+    void clusterCountAndSizeAreBoundedAtEveryZoom() {
+        for (int zoom = 0; zoom <= 22; zoom++) {
+            IssueClusterResponse response = mapService.getClusters(LAT - 0.01, LON - 0.01, LAT + 0.02, LON + 0.02, zoom);
+
+            assertThat(response.getTotalIssues()).isEqualTo(5000);
+            assertThat(response.getClusters()).hasSizeLessThanOrEqualTo(256);
+            assertThat(response.getClusters()).allSatisfy(cluster -> {
+                assertThat(cluster.getSampleIssueIds()).hasSizeLessThanOrEqualTo(3);
+                assertThat(cluster.getCategoryCounts()).hasSizeLessThanOrEqualTo(8);
+            });
+            assertThat(response.getClusters().stream().mapToInt(IssueCluster::getCount).sum()).isEqualTo(5000);
+        }
+        verify(issueRepository, times(1)).findMapPoints();
+    }
+
+    @Test
+    void createdAndDeletedIssuesUpdateTheIndex() {
+        Issue issue = new Issue();
+        issue.setId(9001L);
+        issue.setLatitude(-37.81);
+        issue.setLongitude(144.96);
+        issue.setStatus("PENDING");
+        issue.setCategory("Electrical");
+
+        mapService.issueSaved(issue);
+        mapService.statusChanged(9001L, "IN PROGRESS");
+        IssueClusterResponse response = mapService.getClusters(-38, 144, -37, 145, 12);
+
+        assertThat(response.getClusters()).singleElement().satisfies(cluster -> {
+            assertThat(cluster.getSampleIssueIds()).containsExactly(9001L);
+            assertThat(cluster.getStatusCounts()).containsEntry("IN PROGRESS", 1);
+        });
+
+        mapService.issueDeleted(9001L);
+
+        assertThat(mapService.getClusters(-38, 144, -37, 145, 12).getClusters()).isEmpty();
+    }
+}
@@ -0,0 +1,341 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.dto.request.IssueCursor;
+import au.edu.aufonduebackend.model.dto.response.CursorPage;
+import au.edu.aufonduebackend.model.dto.response.IssueResponse;
+import au.edu.aufonduebackend.model.dto.response.PageResponse;
+import au.edu.aufonduebackend.model.entity.Issue;
+import au.edu.aufonduebackend.model.entity.IssueRemark;
+import au.edu.aufonduebackend.model.entity.MediaRendition;
+import au.edu.aufonduebackend.repository.IssueRemarkHistoryRepository;
+import au.edu.aufonduebackend.repository.IssueRemarkRepository;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.repository.StaffRepository;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.IssueMapService;
+import au.edu.aufonduebackend.service.IssueStatsService;
+import au.edu.aufonduebackend.service.MediaIngestionService;
+import au.edu.aufonduebackend.service.MediaUploadService;
+import au.edu.aufonduebackend.service.ResumableUploadService;
+import au.edu.aufonduebackend.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Checks which repository lookups a page of issues makes: each of them is one query,
+// and none of them may be repeated per issue (the rendition lookup is skipped when
+// the page has no photos). IssueListStatementCountTest counts the statements
+// Hibernate actually prepares, including the batch-loaded photo and video lists.
+class IssueServiceImplTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    private IssueRepository issueRepository;
+    private IssueRemarkRepository remarkRepository;
+    private ImageRenditionService imageRenditionService;
+    private IssueServiceImpl issueService;
+
+    @BeforeEach
+    void setUp() {
+        issueRepository = mock(IssueRepository.class);
+        remarkRepository = mock(IssueRemarkRepository.class);
+        imageRenditionService = mock(ImageRenditionService.class);
+
+        IssueRemarkServiceImpl remarkService = new IssueRemarkServiceImpl();
+        ReflectionTestUtils.setField(remarkService, "remarkRepository", remarkRepository);
+        ReflectionTestUtils.setField(remarkService, "historyRepository", mock(IssueRemarkHistoryRepository.class));
+        ReflectionTestUtils.setField(remarkService, "issueRepository", issueRepository);
+
+        issueService = new IssueServiceImpl(issueRepository, mock(StaffRepository.class), mock(UserService.class),
+                mock(IssueStatsService.class), mock(IssueMapService.class),
+                mock(MediaUploadService.class), mock(TransactionTemplate.class), mock(MediaIngestionService.class),
+                imageRenditionService, mock(ResumableUploadService.class));
+        ReflectionTestUtils.setField(issueService, "remarkService", remarkService);
+        ReflectionTestUtils.setField(issueService, "issueRemarkRepository", remarkRepository);
+    }
+
+    @Test
+    void trackingPageCostsAFixedNumberOfStatementsRegardlessOfSize() {
+        List<Issue> page = issues(PAGE_SIZE);
+        stubIdQuery(page, issueRepository.findAllIssueIds(isNull(), anyInt(), anyInt()));
+        when(remarkRepository.findByIssueIds(anyList())).thenReturn(remarksFor(page));
+
+        List<IssueResponse> responses = issueService.getAllIssuesTracking(0, PAGE_SIZE, null);
+
+        assertThat(responses).hasSize(PAGE_SIZE);
+        // ids, issues with reporter and assignee, remarks
+        assertThat(repositoryCalls()).isEqualTo(3);
+        verify(remarkRepository, never()).findByIssueId(anyLong());
+        verify(remarkRepository, never()).findByIssue(any());
+    }
+
+    @Test
+    void remarksAreMatchedToTheirIssues() {
+        List<Issue> page = issues(3);
+        IssueRemark viewed = remark(page.get(1), IssueRemark.RemarkType.PR, true);
+        stubIdQuery(page, issueRepository.findUserIssueIds(anyLong(), isNull(), anyInt(), anyInt()));
+        when(remarkRepository.findByIssueIds(anyList())).thenReturn(List.of(viewed));
+
+        List<IssueResponse> responses = issueService.getUserSubmittedIssues(7L, 0, 3, null);
+
+        assertThat(responses.get(0).getRemarkType()).isNull();
+        assertThat(responses.get(1).getRemarkType()).isEqualTo("PR");
+        assertThat(responses.get(1).getRemarkViewed()).isTrue();
+        assertThat(responses.get(2).getRemarkType()).isNull();
+        assertThat(repositoryCalls()).isEqualTo(3);
+    }
+
+    @Test
+    void photoRenditionsForTheWholePageComeFromOneLookup() {
+        List<Issue> page = issues(3);
+        page.get(0).setPhotoUrls(List.of("https://blob/a.jpg", "https://blob/b.heic"));
+        page.get(2).setPhotoUrls(List.of("https://blob/c.jpg"));
+        MediaRendition a = rendition("https://blob/a.jpg", "https://blob/a_small.jpg", "https://blob/a_medium.jpg");
+        MediaRendition c = rendition("https://blob/c.jpg", "https://blob/c_small.jpg", "https://blob/c_medium.jpg");
+        stubIdQuery(page, issueRepository.findAllIssueIds(isNull(), anyInt(), anyInt()));
+        when(imageRenditionService.findByOriginalUrls(anyList()))
+                .thenReturn(Map.of(a.getOriginalUrl(), a, c.getOriginalUrl(), c));
+
+        List<IssueResponse> responses = issueService.getAllIssuesTracking(0, 3, null);
+
+        // the photo without a rendition keeps its original URL at the same index
+        assertThat(responses.get(0).getPhotoThumbnailUrls())
+                .containsExactly("https://blob/a_small.jpg", "https://blob/b.heic");
+        assertThat(responses.get(0).getPhotoPreviewUrls())
+                .containsExactly("https://blob/a_medium.jpg", "https://blob/b.heic");
+        assertThat(responses.get(1).getPhotoThumbnailUrls()).isEmpty();
+        assertThat(responses.get(2).getPhotoThumbnailUrls()).containsExactly("https://blob/c_small.jpg");
+        // ids, issues, remarks, renditions
+        assertThat(repositoryCalls()).isEqualTo(4);
+    }
+
+    @Test
+    void cursorPageResumesAfterTheLastRowItReturned() {
+        List<Issue> firstPage = issues(4);
+        stubIdQuery(firstPage, issueRepository.findAllIssueIds(isNull(), eq(0), eq(4)));
+
+        CursorPage<IssueResponse> page = issueService.getAllIssuesTracking("", 3, null);
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.isHasMore()).isTrue();
+        IssueCursor next = IssueCursor.decode(page.getNextCursor());
+        assertThat(next.getId()).isEqualTo(3L);
+        assertThat(next.getCreatedAt()).isEqualTo(firstPage.get(2).getCreatedAt());
+
+        stubIdQuery(List.of(firstPage.get(3)),
+                issueRepository.findAllIssueIdsBefore(isNull(), eq(next.getCreatedAt()), eq(3L), eq(4)));
+
+        CursorPage<IssueResponse> last = issueService.getAllIssuesTracking(page.getNextCursor(), 3, null);
+
+        assertThat(last.getContent()).extracting(IssueResponse::getId).containsExactly(4L);
+        assertThat(last.isHasMore()).isFalse();
+        assertThat(last.getNextCursor()).isNull();
+    }
+
+    @Test
+    void adminListsArePagedNewestFirstWithACappedSize() {
+        List<Issue> issues = issues(2);
+        when(issueRepository.findByAssignedFalse(any(Pageable.class)))
+                .thenAnswer(invocation -> new PageImpl<>(issues, invocation.getArgument(0), 250));
+
+        PageResponse<IssueResponse> page = issueService.getUnassignedIssues(1, 500);
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(issueRepository).findByAssignedFalse(pageable.capture());
+        assertThat(pageable.getValue().getPageNumber()).isEqualTo(1);
+        assertThat(pageable.getValue().getPageSize()).isEqualTo(100);
+        assertThat(pageable.getValue().getSort())
+                .isEqualTo(Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id")));
+        assertThat(page.getTotalElements()).isEqualTo(250);
+        assertThat(page.getTotalPages()).isEqualTo(3);
+        assertThat(page.getContent()).hasSize(2);
+    }
+
+    @Test
+    void completedIssuesAreQueriedWithTheStoredUppercaseStatus() {
+        when(issueRepository.findCompletedIssues(any(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of()));
+
+        issueService.getCompletedIssues(0, 10);
+
+        verify(issueRepository).findCompletedIssues(eq("COMPLETED"), any(Pageable.class));
+    }
+
+    @Test
+    void emptyPageSkipsTheRemarkQuery() {
+        when(issueRepository.findByAssignedTrue(any(Pageable.class))).thenReturn(Page.empty());
+
+        assertThat(issueService.getAssignedIssues(0, PAGE_SIZE).getContent()).isEmpty();
+        assertThat(repositoryCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void idQueryOrderIsKeptWhenLoadingTheEntities() {
+        List<Issue> page = issues(3);
+        when(issueRepository.findNearestIssueIds(any(), any(), eq(3)))
+                .thenReturn(List.of(distance(3L, 12.5), distance(1L, 40.0), distance(2L, 310.2)));
+        // the IN query comes back in arbitrary order
+        when(issueRepository.findAllByIdIn(anyList())).thenReturn(page);
+
+        List<IssueResponse> responses = issueService.getNearestIssues(13.6, 100.8, 3);
+
+        assertThat(responses).extracting(IssueResponse::getId).containsExactly(3L, 1L, 2L);
+        assertThat(responses).extracting(IssueResponse::getDistanceMeters).containsExactly(12.5, 40.0, 310.2);
+    }
+
+    @Test
+    void nearbySearchIsAlwaysLimited() {
+        when(issueRepository.findNearbyIssueIds(any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        issueService.getNearbyIssues(13.6, 100.8, 50.0, 10_000);
+
+        verify(issueRepository).findNearbyIssueIds(13.6, 100.8, 50_000.0, 100);
+    }
+
+    @Test
+    void listETagIsComputedFromVersionStampsAlone() {
+        when(issueRepository.findAllIssueIds(isNull(), eq(0), eq(2))).thenReturn(List.of(2L, 1L));
+        Instant issueUpdated = Instant.parse("2024-12-01T00:00:00Z");
+        when(issueRepository.findVersionsByIdIn(List.of(2L, 1L))).thenReturn(List.of(
+                new Object[]{1L, issueUpdated, null},
+                new Object[]{2L, issueUpdated, LocalDateTime.parse("2024-12-01T08:00:00")}));
+
+        String etag = issueService.getAllIssuesTrackingETag(0, 2, null);
+
+        assertThat(etag).startsWith("W/\"");
+        assertThat(repositoryCalls()).isEqualTo(2);
+        verify(issueRepository, never()).findAllByIdIn(anyList());
+
+        // a remark update on one issue changes the tag of every page it is on
+        when(issueRepository.findVersionsByIdIn(List.of(2L, 1L))).thenReturn(List.of(
+                new Object[]{1L, issueUpdated, null},
+                new Object[]{2L, issueUpdated, LocalDateTime.parse("2024-12-01T09:30:00")}));
+
+        assertThat(issueService.getAllIssuesTrackingETag(0, 2, null)).isNotEqualTo(etag);
+    }
+
+    @Test
+    void issueETagCoversReporterAssigneeAndRenditions() {
+        Instant issueUpdated = Instant.parse("2024-12-01T00:00:00Z");
+        when(issueRepository.findVersionsByIdIn(List.of(1L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, issueUpdated, null, false, null, "alice", "alice@example.com",
+                        null, null, null, null, 0L, null}));
+        String etag = issueService.getIssueETag(1L);
+
+        // assigned to staff without the issue's own timestamp moving
+        when(issueRepository.findVersionsByIdIn(List.of(1L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, issueUpdated, null, true, "HIGH", "alice", "alice@example.com",
+                        7L, "S7", "Sam", "sam@example.com", 0L, null}));
+        String assigned = issueService.getIssueETag(1L);
+        assertThat(assigned).isNotEqualTo(etag);
+
+        // the reporter renamed
+        when(issueRepository.findVersionsByIdIn(List.of(1L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, issueUpdated, null, true, "HIGH", "alice2", "alice@example.com",
+                        7L, "S7", "Sam", "sam@example.com", 0L, null}));
+        String renamed = issueService.getIssueETag(1L);
+        assertThat(renamed).isNotEqualTo(assigned);
+
+        // a rendition created for one of its photos
+        when(issueRepository.findVersionsByIdIn(List.of(1L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, issueUpdated, null, true, "HIGH", "alice2", "alice@example.com",
+                        7L, "S7", "Sam", "sam@example.com", 1L, 40L}));
+        assertThat(issueService.getIssueETag(1L)).isNotEqualTo(renamed);
+    }
+
+    @Test
+    void missingIssueHasNoETag() {
+        when(issueRepository.findVersionsByIdIn(List.of(99L))).thenReturn(List.of());
+
+        assertThat(issueService.getIssueETag(99L)).isNull();
+    }
+
+    private void stubIdQuery(List<Issue> issues, List<Long> idQueryCall) {
+        List<Long> ids = issues.stream().map(Issue::getId).toList();
+        when(idQueryCall).thenReturn(ids);
+        when(issueRepository.findAllByIdIn(ids)).thenReturn(issues);
+    }
+
+    private static IssueRepository.IssueDistance distance(long id, double meters) {
+        return new IssueRepository.IssueDistance() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Double getDistanceMeters() {
+                return meters;
+            }
+        };
+    }
+
+    private int repositoryCalls() {
+        return mockingDetails(issueRepository).getInvocations().size()
+                + mockingDetails(remarkRepository).getInvocations().size()
+                + mockingDetails(imageRenditionService).getInvocations().size();
+    }
+
+    private static MediaRendition rendition(String originalUrl, String smallUrl, String mediumUrl) {
+        MediaRendition rendition = new MediaRendition();
+        rendition.setOriginalUrl(originalUrl);
+        rendition.setSmallUrl(smallUrl);
+        rendition.setMediumUrl(mediumUrl);
+        rendition.setStatus(MediaRendition.Status.READY);
+        return rendition;
+    }
+
+    private static List<Issue> issues(int count) {
+        List<Issue> issues = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Issue issue = new Issue();
+            issue.setId(id);
+            issue.setDescription("Issue " + id);
+            issue.setStatus("PENDING");
+            issue.setCreatedAt(Instant.parse("2024-12-01T00:00:00Z").minusSeconds(id));
+            issues.add(issue);
+        }
+        return issues;
+    }
+
+    private static List<IssueRemark> remarksFor(List<Issue> issues) {
+        List<IssueRemark> remarks = new ArrayList<>();
+        for (Issue issue : issues) {
+            remarks.add(remark(issue, IssueRemark.RemarkType.NEW, false));
+        }
+        return remarks;
+    }
+
+    private static IssueRemark remark(Issue issue, IssueRemark.RemarkType type, boolean viewed) {
+        IssueRemark remark = new IssueRemark();
+        remark.setIssue(issue);
+        remark.setRemarkType(type);
+        remark.setIsViewed(viewed);
+        return remark;
+    }
+}
@@ -0,0 +1,107 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.repository.IssueRemarkRepository;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Reading the stats should cost no queries once the counters are loaded, and the
+// incremental updates should land on the same numbers a fresh count would give.
+class IssueStatsServiceImplTest {
+
+    private IssueRepository issueRepository;
+    private IssueRemarkRepository remarkRepository;
+    private IssueStatsServiceImpl statsService;
+
+    @BeforeEach
+    void setUp() {
+        issueRepository = mock(IssueRepository.class);
+        remarkRepository = mock(IssueRemarkRepository.class);
+        when(issueRepository.countGroupedByStatus()).thenReturn(List.of(
+                new Object[]{"PENDING", 4L},
+                new Object[]{"IN PROGRESS", 2L},
+                new Object[]{"COMPLETED", 3L}));
+        when(issueRepository.countUnassigned()).thenReturn(3L);
+        when(remarkRepository.countNewUnviewedRemarks()).thenReturn(1L);
+
+        statsService = new IssueStatsServiceImpl(issueRepository, remarkRepository);
+        statsService.loadOnStartup();
+    }
+
+    @Test
+    void statsAreServedFromMemoryAfterTheFirstLoad() {
+        statsService.getStats();
+        statsService.getStats();
+
+        verify(issueRepository, times(1)).countGroupedByStatus();
+        verify(issueRepository, times(1)).countUnassigned();
+        verify(remarkRepository, times(1)).countNewUnviewedRemarks();
+        assertThat(statsService.getStats())
+                .containsEntry("totalIssues", 9L)
+                .containsEntry("incompleteIssues", 6L)
+                .containsEntry("completedIssues", 3L);
+    }
+
+    @Test
+    void lifecycleDeltasKeepTheCountersInStep() {
+        statsService.issueCreated("PENDING", false);
+        statsService.unviewedNewRemarksChanged(1);
+        statsService.assignmentChanged("PENDING", false, true);
+        statsService.statusChanged("PENDING", "COMPLETED", true);
+        statsService.issueDeleted("IN PROGRESS", false, false);
+
+        Map<String, Long> stats = statsService.getStats();
+
+        assertThat(stats)
+                .containsEntry("totalIssues", 9L)
+                .containsEntry("pendingIssues", 4L)
+                .containsEntry("inProgressIssues", 1L)
+                .containsEntry("completedIssues", 4L)
+                .containsEntry("unassignedIssues", 2L)
+                .containsEntry("newUnviewedRemarks", 2L);
+    }
+
+    @Test
+    void reconcileDuringACommitDoesNotCountTheIssueTwice() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            statsService.issueCreated("PENDING", false);
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+            // the row is committed and counted before the delta is applied
+            when(issueRepository.countGroupedByStatus()).thenReturn(List.of(
+                    new Object[]{"PENDING", 5L},
+                    new Object[]{"IN PROGRESS", 2L},
+                    new Object[]{"COMPLETED", 3L}));
+            when(issueRepository.countUnassigned()).thenReturn(4L);
+            statsService.reconcile();
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(statsService.getStats())
+                .containsEntry("totalIssues", 10L)
+                .containsEntry("pendingIssues", 5L)
+                .containsEntry("unassignedIssues", 4L);
+
+        // once nothing is committing, the snapshot is taken again
+        statsService.reconcile();
+        verify(issueRepository, times(5)).countGroupedByStatus();
+        assertThat(statsService.getStats()).containsEntry("totalIssues", 10L);
+    }
+}
@@ -0,0 +1,100 @@
+package au.edu.aufonduebackend.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalStorageServiceImplTest {
+
+    @TempDir
+    Path root;
+
+    private LocalStorageServiceImpl storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalStorageServiceImpl(root.toString(), "http://localhost:8080/api/files/");
+    }
+
+    @Test
+    void fileIsStoredInShardDirectoriesUnderItsContentHash() throws Exception {
+        String url = storage.uploadFile(photo("pothole.JPG", "jpeg bytes"));
+
+        assertThat(url).matches("http://localhost:8080/api/files/[0-9a-f]{64}\\.jpg");
+        Path stored = storage.resolve(StorageNames.nameOf(url));
+        assertThat(root.relativize(stored).getNameCount()).isEqualTo(3);
+        assertThat(Files.readString(stored)).isEqualTo("jpeg bytes");
+        try (InputStream data = storage.openFile(url)) {
+            assertThat(new String(data.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("jpeg bytes");
+        }
+    }
+
+    @Test
+    void identicalContentIsStoredOnce() {
+        String first = storage.uploadFile(photo("a.jpg", "same"));
+        String second = storage.uploadFile(photo("b.jpg", "same"));
+
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void chunksAreAssembledInIndexOrder() throws Exception {
+        storage.stageChunk("upload-1.mp4", 1, stream("world"), 5);
+        storage.stageChunk("upload-1.mp4", 0, stream("hello "), 6);
+
+        String url = storage.commitChunks("upload-1.mp4", 2, "video/mp4");
+
+        assertThat(url).isEqualTo("http://localhost:8080/api/files/upload-1.mp4");
+        assertThat(Files.readString(storage.resolve("upload-1.mp4"))).isEqualTo("hello world");
+        assertThat(root.resolve(".chunks").resolve("upload-1.mp4")).doesNotExist();
+    }
+
+    @Test
+    void truncatedChunkIsNotKept() {
+        assertThatThrownBy(() -> storage.stageChunk("upload-1.mp4", 0, stream("short"), 100))
+                .hasMessageContaining("chunk");
+
+        assertThatThrownBy(() -> storage.commitChunks("upload-1.mp4", 1, "video/mp4"))
+                .hasMessageContaining("assemble");
+    }
+
+    @Test
+    void filesFromTheOldFlatLayoutAreStillFound() throws Exception {
+        Files.writeString(root.resolve("legacy-photo.jpg"), "old");
+
+        assertThat(storage.resolve("legacy-photo.jpg")).isEqualTo(root.resolve("legacy-photo.jpg"));
+    }
+
+    @Test
+    void namesCannotLeaveTheRootDirectory() {
+        assertThatThrownBy(() -> storage.resolve("../application.properties"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void deletedFileIsGone() {
+        String url = storage.uploadFile(photo("a.jpg", "bytes"));
+
+        storage.deleteFile(url);
+
+        assertThat(storage.resolve(StorageNames.nameOf(url))).doesNotExist();
+    }
+
+    private static MockMultipartFile photo(String filename, String content) {
+        return new MockMultipartFile("photos", filename, "image/jpeg", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
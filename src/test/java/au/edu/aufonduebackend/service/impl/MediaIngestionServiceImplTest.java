@@ -0,0 +1,197 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.entity.Issue;
+import au.edu.aufonduebackend.model.entity.MediaAttachment;
+import au.edu.aufonduebackend.model.entity.User;
+import au.edu.aufonduebackend.repository.IssueRepository;
+import au.edu.aufonduebackend.repository.MediaAttachmentRepository;
+import au.edu.aufonduebackend.service.FcmService;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.MediaUploadService;
+import au.edu.aufonduebackend.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MediaIngestionServiceImplTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private MediaAttachmentRepository attachmentRepository;
+    private IssueRepository issueRepository;
+    private FcmService fcmService;
+    private ImageRenditionService imageRenditionService;
+    private MediaUploadService mediaUploadService;
+    private MediaIngestionServiceImpl ingestionService;
+
+    private MediaAttachment attachment;
+    private Path spooledFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        attachmentRepository = mock(MediaAttachmentRepository.class);
+        issueRepository = mock(IssueRepository.class);
+        fcmService = mock(FcmService.class);
+        imageRenditionService = mock(ImageRenditionService.class);
+        mediaUploadService = mock(MediaUploadService.class);
+        // no transaction manager behind it: callbacks run inline
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        UserService userService = mock(UserService.class);
+        ingestionService = new MediaIngestionServiceImpl(attachmentRepository, issueRepository, fcmService,
+                userService, imageRenditionService, mediaUploadService, transactionTemplate, Runnable::run);
+
+        User reporter = new User();
+        reporter.setId(3L);
+        when(userService.getFcmTokens(3L)).thenReturn(List.of("phone-token", "tablet-token"));
+        Issue issue = new Issue();
+        issue.setId(7L);
+        issue.setReportedBy(reporter);
+
+        spooledFile = Files.writeString(spoolDir.resolve("leak.jpg"), "jpeg bytes");
+        attachment = new MediaAttachment();
+        attachment.setId(70L);
+        attachment.setIssue(issue);
+        attachment.setKind(MediaAttachment.Kind.PHOTO);
+        attachment.setOriginalFilename("leak.jpg");
+        attachment.setSizeBytes(10L);
+        attachment.setSpoolPath(spooledFile.toString());
+        attachment.setSpoolNode("node-a");
+        attachment.setAttempts(1);
+
+        when(attachmentRepository.claim(70L)).thenReturn(1);
+        when(attachmentRepository.findById(70L)).thenReturn(Optional.of(attachment));
+        when(attachmentRepository.findByIssueIdOrderByIdAsc(7L)).thenReturn(List.of(attachment));
+    }
+
+    @Test
+    void uploadedFileIsAddedToTheIssueAndTheReporterNotified() {
+        when(mediaUploadService.store(any())).thenReturn("https://blob/leak.jpg");
+        when(attachmentRepository.countUnfinished(7L)).thenReturn(0L);
+
+        ingestionService.process(70L);
+
+        verify(issueRepository).addPhotoUrl(7L, "https://blob/leak.jpg");
+        verify(issueRepository).touch(eq(7L), any(Instant.class));
+        assertThat(attachment.getStatus()).isEqualTo(MediaAttachment.Status.READY);
+        assertThat(attachment.getUrl()).isEqualTo("https://blob/leak.jpg");
+        assertThat(spooledFile).doesNotExist();
+        verify(fcmService).sendMediaReadyNotification(List.of("phone-token", "tablet-token"), 7L, 1, 0);
+        verify(imageRenditionService).createRenditions(any(), eq("https://blob/leak.jpg"));
+    }
+
+    @Test
+    void noNotificationWhileOtherAttachmentsAreStillPending() {
+        when(mediaUploadService.store(any())).thenReturn("https://blob/leak.jpg");
+        when(attachmentRepository.countUnfinished(7L)).thenReturn(1L);
+
+        ingestionService.process(70L);
+
+        verify(fcmService, never()).sendMediaReadyNotification(anyList(), anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void failedUploadIsRetriedLaterWithTheFileKept() {
+        when(mediaUploadService.store(any())).thenThrow(new RuntimeException("connection reset"));
+        Instant before = Instant.now();
+
+        ingestionService.process(70L);
+
+        assertThat(attachment.getStatus()).isEqualTo(MediaAttachment.Status.PENDING);
+        assertThat(attachment.getNextAttemptAt()).isAfter(before);
+        assertThat(attachment.getLastError()).isEqualTo("connection reset");
+        assertThat(spooledFile).exists();
+        verify(issueRepository, never()).addPhotoUrl(anyLong(), anyString());
+    }
+
+    @Test
+    void lastFailedAttemptGivesUpAndReportsBack() {
+        attachment.setAttempts(5);
+        when(mediaUploadService.store(any())).thenThrow(new RuntimeException("connection reset"));
+        when(attachmentRepository.countUnfinished(7L)).thenReturn(0L);
+
+        ingestionService.process(70L);
+
+        assertThat(attachment.getStatus()).isEqualTo(MediaAttachment.Status.FAILED);
+        assertThat(spooledFile).doesNotExist();
+        verify(fcmService).sendMediaReadyNotification(List.of("phone-token", "tablet-token"), 7L, 0, 1);
+    }
+
+    @Test
+    void issueRowIsLockedBeforeCountingWhatIsLeft() {
+        when(mediaUploadService.store(any())).thenReturn("https://blob/leak.jpg");
+
+        ingestionService.process(70L);
+
+        InOrder order = inOrder(issueRepository, attachmentRepository);
+        order.verify(issueRepository).lockById(7L);
+        order.verify(attachmentRepository).countUnfinished(7L);
+    }
+
+    @Test
+    void attachmentStuckOnAGoneNodeIsFailedAndReported() {
+        when(attachmentRepository.findAbandonedIds(any(Instant.class), any())).thenReturn(List.of(70L));
+        when(attachmentRepository.failAbandoned(eq(70L), any(Instant.class), anyString())).thenReturn(1);
+        when(attachmentRepository.countUnfinished(7L)).thenReturn(0L);
+
+        ingestionService.failAbandoned();
+
+        assertThat(attachment.getStatus()).isEqualTo(MediaAttachment.Status.FAILED);
+        assertThat(attachment.getLastError()).contains("node-a");
+        verify(fcmService).sendMediaReadyNotification(List.of("phone-token", "tablet-token"), 7L, 0, 1);
+    }
+
+    @Test
+    void attachmentThatMovedOnIsNotFailed() {
+        when(attachmentRepository.findAbandonedIds(any(Instant.class), any())).thenReturn(List.of(70L));
+        when(attachmentRepository.failAbandoned(eq(70L), any(Instant.class), anyString())).thenReturn(0);
+
+        ingestionService.failAbandoned();
+
+        assertThat(attachment.getStatus()).isEqualTo(MediaAttachment.Status.PENDING);
+        verify(fcmService, never()).sendMediaReadyNotification(anyList(), anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void attachmentClaimedElsewhereIsNotUploadedAgain() {
+        when(attachmentRepository.claim(70L)).thenReturn(0);
+
+        ingestionService.process(70L);
+
+        verify(mediaUploadService, never()).store(any());
+    }
+
+    @Test
+    void blobIsRemovedWhenTheIssueWasDeletedDuringUpload() {
+        when(mediaUploadService.store(any())).thenReturn("https://blob/leak.jpg");
+        // claimed first, then gone by the time the upload finishes
+        when(attachmentRepository.findById(70L)).thenReturn(Optional.of(attachment)).thenReturn(Optional.empty());
+
+        ingestionService.process(70L);
+
+        verify(mediaUploadService).deleteQuietly(List.of("https://blob/leak.jpg"));
+        verify(issueRepository, never()).addPhotoUrl(anyLong(), anyString());
+    }
+}
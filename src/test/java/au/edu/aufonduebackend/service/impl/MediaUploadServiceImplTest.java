@@ -0,0 +1,165 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.service.BlobDeletionService;
+import au.edu.aufonduebackend.service.BlobDeletionService.Cancellation;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.StorageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MediaUploadServiceImplTest {
+
+    private StorageService storageService;
+    private ImageRenditionService imageRenditionService;
+    private BlobDeletionService blobDeletionService;
+    private ExecutorService executor;
+    private MediaUploadServiceImpl mediaUploadService;
+
+    @BeforeEach
+    void setUp() {
+        storageService = mock(StorageService.class);
+        imageRenditionService = mock(ImageRenditionService.class);
+        blobDeletionService = mock(BlobDeletionService.class);
+        executor = Executors.newFixedThreadPool(4);
+        mediaUploadService = new MediaUploadServiceImpl(storageService, imageRenditionService, blobDeletionService, executor);
+        // uploaded files are there when looked up
+        when(storageService.describeFile(any())).thenAnswer(invocation ->
+                Optional.of(new StorageService.StoredFile("https://blob/" + invocation.getArgument(0), 1, "image/jpeg")));
+        when(blobDeletionService.cancelDeletion(any())).thenReturn(Cancellation.NOT_QUEUED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void filesAreUploadedConcurrentlyAndReturnedInOrder() {
+        MultipartFile first = mock(MultipartFile.class);
+        MultipartFile second = mock(MultipartFile.class);
+        MultipartFile third = mock(MultipartFile.class);
+        // every upload waits until all three are in flight, so this only
+        // completes if they run at the same time
+        CountDownLatch allStarted = new CountDownLatch(3);
+        when(storageService.uploadFile(first)).thenAnswer(invocation -> awaitOthers(allStarted, "https://blob/1.jpg"));
+        when(storageService.uploadFile(second)).thenAnswer(invocation -> awaitOthers(allStarted, "https://blob/2.jpg"));
+        when(storageService.uploadFile(third)).thenAnswer(invocation -> awaitOthers(allStarted, "https://blob/3.mp4"));
+
+        List<String> urls = mediaUploadService.uploadAll(List.of(first, second, third));
+
+        assertThat(urls).containsExactly("https://blob/1.jpg", "https://blob/2.jpg", "https://blob/3.mp4");
+    }
+
+    @Test
+    void successfulUploadsAreRemovedWhenAnotherFails() {
+        MultipartFile photo = mock(MultipartFile.class);
+        MultipartFile video = mock(MultipartFile.class);
+        when(storageService.uploadFile(photo)).thenReturn("https://blob/1.jpg");
+        when(storageService.uploadFile(video)).thenThrow(new RuntimeException("Failed to upload file to Azure Blob Storage"));
+
+        assertThatThrownBy(() -> mediaUploadService.uploadAll(List.of(photo, video)))
+                .hasMessageContaining("Failed to upload file");
+
+        verify(blobDeletionService).scheduleDeletion(List.of("https://blob/1.jpg"));
+    }
+
+    @Test
+    void onlyPhotosGetRenditions() {
+        MultipartFile photo = mock(MultipartFile.class);
+        MultipartFile video = mock(MultipartFile.class);
+        when(photo.getContentType()).thenReturn("image/jpeg");
+        when(video.getContentType()).thenReturn("video/mp4");
+        when(storageService.uploadFile(photo)).thenReturn("https://blob/1.jpg");
+        when(storageService.uploadFile(video)).thenReturn("https://blob/2.mp4");
+
+        mediaUploadService.uploadAll(List.of(photo, video));
+
+        verify(imageRenditionService).createRenditions(photo, "https://blob/1.jpg");
+        verify(imageRenditionService, never()).createRenditions(eq(video), any());
+    }
+
+    @Test
+    void reusedBlobIsTakenOffTheDeletionQueue() {
+        MultipartFile photo = mock(MultipartFile.class);
+        when(storageService.uploadFile(photo)).thenReturn("https://blob/shared.jpg");
+        when(blobDeletionService.cancelDeletion("https://blob/shared.jpg")).thenReturn(Cancellation.CANCELLED);
+
+        assertThat(mediaUploadService.store(photo)).isEqualTo("https://blob/shared.jpg");
+
+        verify(storageService, times(1)).uploadFile(photo);
+        verify(storageService, never()).describeFile(any());
+    }
+
+    @Test
+    void blobDeletedWhileBeingReusedIsUploadedAgain() {
+        MultipartFile photo = mock(MultipartFile.class);
+        when(storageService.uploadFile(photo)).thenReturn("https://blob/shared.jpg");
+        when(storageService.describeFile("shared.jpg")).thenReturn(Optional.empty());
+
+        assertThat(mediaUploadService.store(photo)).isEqualTo("https://blob/shared.jpg");
+
+        InOrder order = inOrder(storageService, blobDeletionService);
+        order.verify(storageService).uploadFile(photo);
+        order.verify(blobDeletionService).cancelDeletion("https://blob/shared.jpg");
+        order.verify(storageService).describeFile("shared.jpg");
+        order.verify(storageService).uploadFile(photo);
+    }
+
+    @Test
+    void blobBeingDeletedIsStoredAgainUnderItsOwnName() {
+        MultipartFile photo = mock(MultipartFile.class);
+        when(storageService.uploadFile(photo)).thenReturn("https://blob/shared.jpg");
+        when(blobDeletionService.cancelDeletion("https://blob/shared.jpg")).thenReturn(Cancellation.IN_PROGRESS);
+        when(storageService.uploadFile(eq(photo), any())).thenAnswer(invocation ->
+                "https://blob/" + invocation.getArgument(1));
+
+        String url = mediaUploadService.store(photo);
+
+        assertThat(url).startsWith("https://blob/shared-").endsWith(".jpg");
+        verify(storageService, times(1)).uploadFile(photo);
+        verify(storageService, never()).describeFile(any());
+    }
+
+    @Test
+    void failureToQueueDeletionsIsNotThrown() {
+        doThrow(new RuntimeException("connection refused")).when(blobDeletionService).scheduleDeletion(any());
+
+        mediaUploadService.deleteQuietly(List.of("https://blob/1.jpg"));
+    }
+
+    @Test
+    void noFilesMeansNoUploads() {
+        assertThat(mediaUploadService.uploadAll(null)).isEmpty();
+        verify(storageService, never()).uploadFile(any());
+    }
+
+    private static String awaitOthers(CountDownLatch allStarted, String url) throws InterruptedException {
+        allStarted.countDown();
+        if (!allStarted.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("uploads ran one at a time");
+        }
+        return url;
+    }
+}
@@ -0,0 +1,149 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.service.FcmService;
+import au.edu.aufonduebackend.service.NotificationBatcher.Outcome;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.SendResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationBatcherImplTest {
+
+    private FcmService fcmService;
+    private TaskScheduler taskScheduler;
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fcmService = mock(FcmService.class);
+        taskScheduler = mock(TaskScheduler.class);
+        when(taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(invocation -> {
+            scheduled.add(invocation.getArgument(0));
+            return null;
+        });
+        // every message succeeds unless a test says otherwise
+        when(fcmService.sendEach(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            List<SendResponse> responses = new ArrayList<>();
+            for (int i = 0; i < messages.size(); i++) {
+                responses.add(sent("msg-" + i));
+            }
+            return batch(responses);
+        });
+    }
+
+    @Test
+    void messagesInOneWindowGoOutInOneCall() throws Exception {
+        NotificationBatcherImpl batcher = batcher(500, 100);
+
+        CompletableFuture<Outcome> first = batcher.submit(message());
+        CompletableFuture<Outcome> second = batcher.submit(message());
+
+        verify(fcmService, never()).sendEach(anyList());
+        assertThat(scheduled).hasSize(1);
+        scheduled.forEach(Runnable::run);
+
+        verify(fcmService, times(1)).sendEach(anyList());
+        assertThat(first.join().messageId()).isEqualTo("msg-0");
+        assertThat(second.join().messageId()).isEqualTo("msg-1");
+        assertThat(batcher.getStats()).containsEntry("batchesSent", 1L).containsEntry("messagesSent", 2L)
+                .containsEntry("pending", 0L);
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() throws Exception {
+        NotificationBatcherImpl batcher = batcher(2, 100);
+
+        batcher.submit(message());
+        CompletableFuture<Outcome> second = batcher.submit(message());
+
+        assertThat(second).isCompleted();
+        verify(fcmService).sendEach(anyList());
+        // the window's flush finds nothing left to send
+        scheduled.forEach(Runnable::run);
+        verify(fcmService, times(1)).sendEach(anyList());
+    }
+
+    @Test
+    void eachMessageGetsItsOwnResult() throws Exception {
+        FirebaseMessagingException unregistered = mock(FirebaseMessagingException.class);
+        when(unregistered.getMessagingErrorCode()).thenReturn(MessagingErrorCode.UNREGISTERED);
+        when(unregistered.getMessage()).thenReturn("Requested entity was not found.");
+        SendResponse failed = mock(SendResponse.class);
+        when(failed.getException()).thenReturn(unregistered);
+        BatchResponse response = batch(List.of(sent("msg-0"), failed));
+        when(fcmService.sendEach(anyList())).thenReturn(response);
+        NotificationBatcherImpl batcher = batcher(2, 100);
+
+        CompletableFuture<Outcome> first = batcher.submit(message());
+        CompletableFuture<Outcome> second = batcher.submit(message());
+
+        assertThat(first.join().sent()).isTrue();
+        assertThat(second.join().sent()).isFalse();
+        assertThat(second.join().errorCode()).isEqualTo(MessagingErrorCode.UNREGISTERED);
+        assertThat(batcher.getStats()).containsEntry("messagesSent", 1L).containsEntry("messagesFailed", 1L);
+    }
+
+    @Test
+    void batchThatCannotBeSentFailsEveryMessage() throws Exception {
+        when(fcmService.sendEach(anyList())).thenThrow(new IllegalStateException("FirebaseApp not initialized"));
+        NotificationBatcherImpl batcher = batcher(2, 100);
+
+        CompletableFuture<Outcome> first = batcher.submit(message());
+        CompletableFuture<Outcome> second = batcher.submit(message());
+
+        assertThat(first.join().error()).isEqualTo("FirebaseApp not initialized");
+        assertThat(second.join().sent()).isFalse();
+    }
+
+    @Test
+    void messagesOverThePendingLimitAreTurnedAway() {
+        NotificationBatcherImpl batcher = new NotificationBatcherImpl(fcmService, task -> { }, taskScheduler, 500, 100, 1);
+
+        batcher.submit(message());
+        Outcome rejected = batcher.submit(message()).join();
+
+        assertThat(rejected.sent()).isFalse();
+        assertThat(rejected.error()).isEqualTo("Notification queue full");
+        assertThat(batcher.getStats()).containsEntry("messagesRejected", 1L);
+    }
+
+    private NotificationBatcherImpl batcher(int maxBatchSize, long windowMs) {
+        return new NotificationBatcherImpl(fcmService, Runnable::run, taskScheduler, maxBatchSize, windowMs, 1000);
+    }
+
+    private static Message message() {
+        return Message.builder().setToken("reporter-token").putData("issueId", "7").build();
+    }
+
+    private static SendResponse sent(String messageId) {
+        SendResponse response = mock(SendResponse.class);
+        when(response.isSuccessful()).thenReturn(true);
+        when(response.getMessageId()).thenReturn(messageId);
+        return response;
+    }
+
+    private static BatchResponse batch(List<SendResponse> responses) {
+        BatchResponse response = mock(BatchResponse.class);
+        when(response.getResponses()).thenReturn(responses);
+        return response;
+    }
+}
@@ -0,0 +1,308 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.entity.Issue;
+import au.edu.aufonduebackend.model.entity.NotificationOutbox;
+import au.edu.aufonduebackend.model.entity.Update;
+import au.edu.aufonduebackend.model.entity.User;
+import au.edu.aufonduebackend.repository.NotificationOutboxRepository;
+import au.edu.aufonduebackend.repository.UpdateRepository;
+import au.edu.aufonduebackend.service.FcmService;
+import au.edu.aufonduebackend.service.NotificationBatcher;
+import au.edu.aufonduebackend.service.NotificationBatcher.Outcome;
+import au.edu.aufonduebackend.service.UserService;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.SendResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationOutboxServiceImplTest {
+
+    private NotificationOutboxRepository outboxRepository;
+    private NotificationBatcher notificationBatcher;
+    private UserService userService;
+    private FcmService fcmService;
+    private TaskScheduler taskScheduler;
+    private UpdateRepository updateRepository;
+    private NotificationOutboxServiceImpl outboxService;
+
+    private final List<NotificationOutbox> queue = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private Update update;
+    private User reporter;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(NotificationOutboxRepository.class);
+        updateRepository = mock(UpdateRepository.class);
+        fcmService = mock(FcmService.class);
+        taskScheduler = mock(TaskScheduler.class);
+        notificationBatcher = mock(NotificationBatcher.class);
+        userService = mock(UserService.class);
+        // no transaction manager behind it: callbacks run inline
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        outboxService = new NotificationOutboxServiceImpl(outboxRepository, updateRepository, fcmService,
+                notificationBatcher, userService, transactionTemplate, Runnable::run, taskScheduler);
+        // sent straight away unless a test is about coalescing
+        outboxService.setCoalesceWindows("");
+        ReflectionTestUtils.setField(outboxService, "defaultWindowSeconds", 0L);
+
+        Issue issue = new Issue();
+        issue.setId(7L);
+        update = new Update();
+        update.setId(5L);
+        update.setIssue(issue);
+        update.setStatus("COMPLETED");
+        update.setComment("Fixed");
+        update.setNotificationStatus(Update.NotificationStatus.QUEUED);
+        reporter = new User();
+        reporter.setId(3L);
+        reporter.setEmail("reporter@au.edu");
+        when(userService.getFcmTokens(3L)).thenReturn(List.of("reporter-token"));
+        when(updateRepository.findAllById(any())).thenReturn(List.of(update));
+        when(fcmService.buildIssueUpdateMessage("reporter-token", 7L, "COMPLETED", "Fixed"))
+                .thenReturn(Message.builder().setToken("reporter-token").build());
+
+        // the repository hands back whatever was queued, once
+        when(outboxRepository.save(any(NotificationOutbox.class))).thenAnswer(invocation -> {
+            NotificationOutbox row = invocation.getArgument(0);
+            row.setId(ids.incrementAndGet());
+            queue.add(row);
+            return row;
+        });
+        when(outboxRepository.lockDue(any(Instant.class), anyInt())).thenAnswer(invocation -> {
+            List<NotificationOutbox> due = new ArrayList<>(queue);
+            queue.clear();
+            return due;
+        });
+    }
+
+    @Test
+    void sentNotificationLeavesTheOutbox() {
+        outcome(Outcome.sent("msg-1"));
+
+        outboxService.enqueue(update, reporter);
+
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        assertThat(update.getNotificationStatus()).isEqualTo(Update.NotificationStatus.SENT);
+        assertThat(update.getNotifiedAt()).isNotNull();
+    }
+
+    @Test
+    void transientFailureIsRetriedWithBackoff() {
+        outcome(Outcome.failed(MessagingErrorCode.UNAVAILABLE, "Service unavailable"));
+        Instant before = Instant.now();
+
+        outboxService.enqueue(update, reporter);
+
+        verify(outboxRepository).deleteAllByIdInBatch(List.of());
+        NotificationOutbox retry = savedRetry();
+        assertThat(retry.getAttempts()).isEqualTo(1);
+        assertThat(retry.getLastError()).isEqualTo("Service unavailable");
+        assertThat(retry.getNextAttemptAt()).isAfter(before.plusSeconds(29));
+        assertThat(update.getNotificationStatus()).isEqualTo(Update.NotificationStatus.QUEUED);
+        verify(userService, never()).removeFcmToken(anyString(), anyString());
+    }
+
+    @Test
+    void notificationTurnedAwayByTheBatcherIsRetried() {
+        outcome(Outcome.failed(null, "Notification queue full"));
+
+        outboxService.enqueue(update, reporter);
+
+        assertThat(savedRetry().getLastError()).isEqualTo("Notification queue full");
+    }
+
+    @Test
+    void unregisteredTokenIsRemovedAndNotRetried() {
+        outcome(Outcome.failed(MessagingErrorCode.UNREGISTERED, "Requested entity was not found."));
+
+        outboxService.enqueue(update, reporter);
+
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(userService).removeFcmToken("reporter@au.edu", "reporter-token");
+        assertThat(update.getNotificationStatus()).isEqualTo(Update.NotificationStatus.FAILED);
+    }
+
+    @Test
+    void everyDeviceGetsItsOwnRow() {
+        when(userService.getFcmTokens(3L)).thenReturn(List.of("phone-token", "tablet-token"));
+        when(fcmService.buildIssueUpdateMessage(anyString(), eq(7L), eq("COMPLETED"), eq("Fixed")))
+                .thenAnswer(invocation -> Message.builder().setToken(invocation.getArgument(0)).build());
+        Message tablet = Message.builder().setToken("tablet-token").build();
+        when(notificationBatcher.submit(any(Message.class))).thenAnswer(invocation -> CompletableFuture.completedFuture(
+                invocation.getArgument(0) == tablet ? Outcome.sent("msg-2")
+                        : Outcome.failed(MessagingErrorCode.UNREGISTERED, "Requested entity was not found.")));
+        when(fcmService.buildIssueUpdateMessage("tablet-token", 7L, "COMPLETED", "Fixed")).thenReturn(tablet);
+
+        assertThat(outboxService.enqueue(update, reporter)).isEqualTo(2);
+
+        assertThat(queue).isEmpty();
+        verify(notificationBatcher, times(2)).submit(any(Message.class));
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        // the phone was uninstalled, the tablet still counts
+        verify(userService).removeFcmToken("reporter@au.edu", "phone-token");
+        assertThat(update.getNotificationStatus()).isEqualTo(Update.NotificationStatus.SENT);
+    }
+
+    @Test
+    void recipientWithoutDevicesQueuesNothing() {
+        when(userService.getFcmTokens(3L)).thenReturn(List.of());
+
+        assertThat(outboxService.enqueue(update, reporter)).isZero();
+
+        verify(outboxRepository, never()).save(any(NotificationOutbox.class));
+    }
+
+    @Test
+    void lastAttemptGivesUp() {
+        outcome(Outcome.failed(MessagingErrorCode.INTERNAL, "Internal error"));
+        outboxService.enqueue(update, reporter);
+        NotificationOutbox row = savedRetry();
+        row.setAttempts(7);
+        queue.add(row);
+
+        outboxService.processBatch();
+
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        assertThat(update.getNotificationStatus()).isEqualTo(Update.NotificationStatus.FAILED);
+        assertThat(update.getNotificationError()).isEqualTo("Internal error");
+    }
+
+    @Test
+    void updatesInOneWindowAreMergedIntoOneMessage() {
+        outboxService.setCoalesceWindows("IN PROGRESS=60,COMPLETED=15");
+        outcome(Outcome.sent("msg-1"));
+        when(fcmService.buildIssueUpdateMessage("reporter-token", 7L, "COMPLETED", "Plumber booked; Fixed"))
+                .thenReturn(Message.builder().setToken("reporter-token").build());
+        Update first = update(4L, "IN PROGRESS", "Plumber booked");
+        Instant before = Instant.now();
+
+        outboxService.enqueue(first, reporter);
+        when(outboxRepository.findEarliestWaiting(7L, "reporter-token")).thenReturn(before);
+        outboxService.enqueue(update, reporter);
+
+        // the second update pulls the first one's send time in to its own, shorter window
+        ArgumentCaptor<Instant> sendAt = ArgumentCaptor.forClass(Instant.class);
+        verify(outboxRepository).reschedule(eq(7L), eq("reporter-token"), sendAt.capture());
+        assertThat(sendAt.getValue()).isBetween(before.plusSeconds(15), before.plusSeconds(16));
+        assertThat(queue.get(1).getNextAttemptAt()).isEqualTo(sendAt.getValue());
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+        verify(notificationBatcher, never()).submit(any(Message.class));
+
+        outboxService.processBatch();
+
+        verify(fcmService).buildIssueUpdateMessage("reporter-token", 7L, "COMPLETED", "Plumber booked; Fixed");
+        verify(notificationBatcher, times(1)).submit(any(Message.class));
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+    }
+
+    @Test
+    void busyIssueIsNotHeldBackPastTheMaximumDelay() {
+        outboxService.setCoalesceWindows("IN PROGRESS=60");
+        Instant waitingSince = Instant.now().minusSeconds(280);
+        when(outboxRepository.findEarliestWaiting(7L, "reporter-token")).thenReturn(waitingSince);
+
+        outboxService.enqueue(update(4L, "IN PROGRESS", null), reporter);
+
+        verify(outboxRepository).reschedule(7L, "reporter-token", waitingSince.plusSeconds(300));
+    }
+
+    @Test
+    void windowsAreReadPerStatus() {
+        assertThat(NotificationOutboxServiceImpl.parseWindows("PENDING=60, in progress = 30,COMPLETED=0"))
+                .containsEntry("PENDING", Duration.ofSeconds(60))
+                .containsEntry("IN PROGRESS", Duration.ofSeconds(30))
+                .containsEntry("COMPLETED", Duration.ZERO);
+    }
+
+    // Boot's default scheduler has a single thread, which the batcher's flush needs
+    // while a relay waits on it
+    @Test
+    void pollOnASingleThreadSchedulerDoesNotHoldUpTheBatcher() throws Exception {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        ExecutorService relayThread = Executors.newSingleThreadExecutor();
+        try {
+            SendResponse sent = mock(SendResponse.class);
+            when(sent.isSuccessful()).thenReturn(true);
+            BatchResponse response = mock(BatchResponse.class);
+            when(response.getResponses()).thenReturn(List.of(sent));
+            when(fcmService.sendEach(anyList())).thenReturn(response);
+            NotificationBatcherImpl batcher = new NotificationBatcherImpl(fcmService, Runnable::run, scheduler, 500, 50, 1000);
+            outboxService = new NotificationOutboxServiceImpl(outboxRepository, updateRepository, fcmService, batcher,
+                    userService, new TransactionTemplate(mock(PlatformTransactionManager.class)), relayThread::execute,
+                    scheduler);
+            NotificationOutbox row = new NotificationOutbox();
+            row.setId(1L);
+            row.setUpdateId(5L);
+            row.setIssueId(7L);
+            row.setRecipientEmail("reporter@au.edu");
+            row.setFcmToken("reporter-token");
+            row.setStatus("COMPLETED");
+            row.setComment("Fixed");
+            queue.add(row);
+
+            scheduler.schedule(outboxService::pollDue, Instant.now()).get(5, TimeUnit.SECONDS);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (update.getNotificationStatus() != Update.NotificationStatus.SENT && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(update.getNotificationStatus()).isEqualTo(Update.NotificationStatus.SENT);
+        } finally {
+            scheduler.shutdown();
+            relayThread.shutdownNow();
+        }
+    }
+
+    private Update update(Long id, String status, String comment) {
+        Update other = new Update();
+        other.setId(id);
+        other.setIssue(update.getIssue());
+        other.setStatus(status);
+        other.setComment(comment);
+        return other;
+    }
+
+    private void outcome(Outcome outcome) {
+        when(notificationBatcher.submit(any(Message.class))).thenReturn(CompletableFuture.completedFuture(outcome));
+    }
+
+    @SuppressWarnings("unchecked")
+    private NotificationOutbox savedRetry() {
+        ArgumentCaptor<List<NotificationOutbox>> saved = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository, atLeastOnce()).saveAll(saved.capture());
+        return saved.getAllValues().stream().flatMap(List::stream).findFirst().orElseThrow();
+    }
+}
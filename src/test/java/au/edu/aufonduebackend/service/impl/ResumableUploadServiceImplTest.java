@@ -0,0 +1,231 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.dto.request.UploadSessionRequest;
+import au.edu.aufonduebackend.model.dto.response.UploadSessionResponse;
+import au.edu.aufonduebackend.model.entity.UploadSession;
+import au.edu.aufonduebackend.repository.UploadChunkRepository;
+import au.edu.aufonduebackend.repository.UploadSessionRepository;
+import au.edu.aufonduebackend.service.ImageRenditionService;
+import au.edu.aufonduebackend.service.MediaUploadService;
+import au.edu.aufonduebackend.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResumableUploadServiceImplTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private UploadSessionRepository sessionRepository;
+    private UploadChunkRepository chunkRepository;
+    private StorageService storageService;
+    private MediaUploadService mediaUploadService;
+    private ResumableUploadServiceImpl uploadService;
+
+    @BeforeEach
+    void setUp() {
+        sessionRepository = mock(UploadSessionRepository.class);
+        chunkRepository = mock(UploadChunkRepository.class);
+        storageService = mock(StorageService.class);
+        mediaUploadService = mock(MediaUploadService.class);
+        // no transaction manager behind it: callbacks run inline
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        uploadService = new ResumableUploadServiceImpl(sessionRepository, chunkRepository, storageService,
+                mock(ImageRenditionService.class), mediaUploadService, transactionTemplate);
+        ReflectionTestUtils.setField(uploadService, "chunkSize", CHUNK_SIZE);
+        when(sessionRepository.save(any(UploadSession.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void sessionIsSplitIntoFixedSizeChunks() {
+        UploadSessionResponse session = uploadService.createSession(request(2500));
+
+        assertThat(session.getChunkSize()).isEqualTo(CHUNK_SIZE);
+        assertThat(session.getChunkCount()).isEqualTo(3);
+        assertThat(session.getStatus()).isEqualTo("OPEN");
+        assertThat(session.getReceivedChunks()).isEmpty();
+    }
+
+    @Test
+    void chunkIsStagedAndRecorded() {
+        UploadSession session = stored(2500);
+        when(chunkRepository.findChunkIndexes(session.getId())).thenReturn(List.of(0, 2));
+        InputStream data = new ByteArrayInputStream(new byte[500]);
+
+        UploadSessionResponse response = uploadService.receiveChunk(session.getId(), 2, data, 500);
+
+        verify(storageService).stageChunk(session.getBlobName(), 2, data, 500);
+        verify(chunkRepository).recordChunk(session.getId(), 2, 500);
+        assertThat(response.getReceivedChunks()).containsExactly(0, 2);
+    }
+
+    @Test
+    void chunkOfTheWrongSizeIsRejectedBeforeStaging() {
+        UploadSession session = stored(2500);
+
+        assertThatThrownBy(() -> uploadService.receiveChunk(session.getId(), 0, new ByteArrayInputStream(new byte[10]), 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("must be 1000 bytes");
+        verify(storageService, never()).stageChunk(anyString(), anyInt(), any(), anyLong());
+    }
+
+    @Test
+    void commitWaitsForEveryChunk() {
+        UploadSession session = stored(2500);
+        when(chunkRepository.findChunkIndexes(session.getId())).thenReturn(List.of(0, 2));
+
+        assertThatThrownBy(() -> uploadService.commit(session.getId()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("missing 1 of 3 chunks");
+        verify(storageService, never()).commitChunks(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    void completeUploadIsCommittedOnce() {
+        UploadSession session = stored(2500);
+        when(chunkRepository.findChunkIndexes(session.getId())).thenReturn(List.of(0, 1, 2));
+        when(storageService.commitChunks(session.getBlobName(), 3, "video/mp4")).thenReturn("https://blob/upload.mp4");
+
+        UploadSessionResponse committed = uploadService.commit(session.getId());
+        UploadSessionResponse again = uploadService.commit(session.getId());
+
+        assertThat(committed.getStatus()).isEqualTo("COMMITTED");
+        assertThat(again.getUrl()).isEqualTo("https://blob/upload.mp4");
+        verify(storageService).commitChunks(session.getBlobName(), 3, "video/mp4");
+    }
+
+    @Test
+    void issueCanOnlyUseItsOwnersCommittedUploads() {
+        UploadSession open = stored(2500);
+        UploadSession committed = stored(100);
+        committed.setStatus(UploadSession.Status.COMMITTED);
+        committed.setUrl("https://blob/upload.mp4");
+
+        assertThat(uploadService.getCommittedUploads(List.of(committed.getId()), "reporter@au.edu"))
+                .containsExactly(committed);
+        assertThatThrownBy(() -> uploadService.getCommittedUploads(List.of(committed.getId()), "someone@au.edu"))
+                .hasMessageContaining("Unknown upload");
+        assertThatThrownBy(() -> uploadService.getCommittedUploads(List.of(open.getId()), "reporter@au.edu"))
+                .hasMessageContaining("has not been committed");
+    }
+
+    @Test
+    void expiredCommittedUploadCannotBeUsed() {
+        UploadSession committed = stored(100);
+        committed.setStatus(UploadSession.Status.COMMITTED);
+        committed.setUrl("https://blob/upload.mp4");
+        committed.setExpiresAt(Instant.now().minusSeconds(1));
+
+        assertThatThrownBy(() -> uploadService.getCommittedUploads(List.of(committed.getId()), "reporter@au.edu"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("has expired");
+    }
+
+    @Test
+    void directUploadGetsAUrlForItsOwnBlob() {
+        when(storageService.createUploadUrl(anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> "https://blob/" + invocation.getArgument(0) + "?sig=x");
+
+        UploadSessionResponse session = uploadService.createDirectSession(request(2500));
+
+        assertThat(session.getUploadUrl()).isEqualTo("https://blob/upload-" + session.getUploadId() + ".mp4?sig=x");
+        assertThat(session.getUploadHeaders()).containsEntry("x-ms-blob-type", "BlockBlob")
+                .containsEntry("Content-Type", "video/mp4");
+        assertThat(session.getUploadUrlExpiresAt()).isBefore(session.getExpiresAt());
+        assertThat(session.getChunkCount()).isEqualTo(1);
+        verify(storageService).createUploadUrl(eq("upload-" + session.getUploadId() + ".mp4"), eq(Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void directUploadIsFinalizedWhenTheIssueUsesIt() {
+        UploadSession session = storedDirect(2500);
+        when(storageService.claimUpload(eq(session.getBlobName()), anyString()))
+                .thenAnswer(invocation -> Optional.of(
+                        new StorageService.StoredFile("https://blob/" + invocation.getArgument(1), 2500, "video/mp4")));
+
+        List<UploadSession> uploads = uploadService.getCommittedUploads(List.of(session.getId()), "reporter@au.edu");
+
+        assertThat(uploads).containsExactly(session);
+        assertThat(session.getStatus()).isEqualTo(UploadSession.Status.COMMITTED);
+        // moved away from the name the upload URL can still write to
+        assertThat(session.getUrl()).matches("https://blob/media-[0-9a-f-]{36}\\.mp4");
+    }
+
+    @Test
+    void directUploadNotMatchingTheDeclarationIsDeleted() {
+        UploadSession session = storedDirect(2500);
+        when(storageService.claimUpload(eq(session.getBlobName()), anyString()))
+                .thenReturn(Optional.of(new StorageService.StoredFile("https://blob/upload.mp4", 900_000_000, "video/mp4")));
+
+        assertThatThrownBy(() -> uploadService.commit(session.getId()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("expected 2500");
+        verify(mediaUploadService).deleteQuietly(List.of("https://blob/upload.mp4"));
+        assertThat(session.getStatus()).isEqualTo(UploadSession.Status.OPEN);
+    }
+
+    @Test
+    void directUploadThatNeverArrivedCannotBeUsed() {
+        UploadSession session = storedDirect(2500);
+        when(storageService.claimUpload(eq(session.getBlobName()), anyString())).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> uploadService.getCommittedUploads(List.of(session.getId()), "reporter@au.edu"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("has not been received");
+        assertThatThrownBy(() -> uploadService.receiveChunk(session.getId(), 0, new ByteArrayInputStream(new byte[10]), 10))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private UploadSession storedDirect(long totalSize) {
+        UploadSession session = stored(totalSize);
+        session.setMode(UploadSession.Mode.DIRECT);
+        session.setChunkSize((int) totalSize);
+        session.setChunkCount(1);
+        return session;
+    }
+
+    private UploadSession stored(long totalSize) {
+        UploadSessionResponse created = uploadService.createSession(request(totalSize));
+        UploadSession session = new UploadSession();
+        session.setId(created.getUploadId());
+        session.setOwnerEmail("reporter@au.edu");
+        session.setContentType("video/mp4");
+        session.setTotalSize(totalSize);
+        session.setChunkSize(created.getChunkSize());
+        session.setChunkCount(created.getChunkCount());
+        session.setBlobName("upload-" + created.getUploadId() + ".mp4");
+        session.setExpiresAt(created.getExpiresAt());
+        when(sessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+        return session;
+    }
+
+    private static UploadSessionRequest request(long totalSize) {
+        UploadSessionRequest request = new UploadSessionRequest();
+        request.setFilename("walkthrough.MP4");
+        request.setContentType("video/mp4");
+        request.setTotalSize(totalSize);
+        request.setUserEmail("reporter@au.edu");
+        return request;
+    }
+}
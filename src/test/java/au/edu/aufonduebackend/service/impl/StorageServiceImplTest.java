@@ -0,0 +1,317 @@
+package au.edu.aufonduebackend.service.impl;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.common.StorageSharedKeyCredential;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Runs real BlobClient uploads against an in-memory HTTP client that drains the
+// request bodies, so the SDK's block staging is exercised without a storage account.
+class StorageServiceImplTest {
+
+    private static final long MB = 1024 * 1024;
+    private static final long BLOCK_SIZE = 4 * MB;
+    private static final int CONCURRENCY = 4;
+
+    @Test
+    void largeUploadIsStreamedInStagedBlocks() throws Exception {
+        DrainingHttpClient httpClient = new DrainingHttpClient();
+        StorageServiceImpl storage = storageService(httpClient);
+        MultipartFile video = generatedFile(100 * MB);
+
+        String url = storage.uploadFile(video);
+
+        assertThat(url).endsWith(".mp4");
+        verify(video, never()).getBytes();
+        assertThat(httpClient.bytesReceived.get()).isEqualTo(100 * MB);
+        assertThat(httpClient.stagedBlocks.get()).isEqualTo(25);
+        assertThat(httpClient.committedBlockLists.get()).isEqualTo(1);
+        assertThat(httpClient.largestBody.get()).isLessThanOrEqualTo(BLOCK_SIZE);
+    }
+
+    @Test
+    void identicalContentIsStoredOnceUnderItsHash() throws Exception {
+        DrainingHttpClient httpClient = new DrainingHttpClient();
+        StorageServiceImpl storage = storageService(httpClient);
+
+        String first = storage.uploadFile(generatedFile(10 * MB));
+        String retry = storage.uploadFile(generatedFile(10 * MB));
+
+        assertThat(retry).isEqualTo(first);
+        assertThat(first).matches(".*/[0-9a-f]{64}\\.mp4");
+        // the second upload found the blob and sent nothing
+        assertThat(httpClient.bytesReceived.get()).isEqualTo(10 * MB);
+        assertThat(httpClient.committedBlockLists.get()).isEqualTo(1);
+    }
+
+    @Test
+    void chunksAreStagedAsBlocksAndCommittedTogether() {
+        DrainingHttpClient httpClient = new DrainingHttpClient();
+        StorageServiceImpl storage = storageService(httpClient);
+
+        storage.stageChunk("upload-1.mp4", 1, new ByteArrayInputStream(new byte[300]), 300);
+        storage.stageChunk("upload-1.mp4", 0, new ByteArrayInputStream(new byte[1000]), 1000);
+        String url = storage.commitChunks("upload-1.mp4", 2, "video/mp4");
+
+        assertThat(url).endsWith("/issues/upload-1.mp4");
+        assertThat(httpClient.stagedBlocks.get()).isEqualTo(2);
+        assertThat(httpClient.bytesReceived.get()).isEqualTo(1300);
+        assertThat(httpClient.committedBlockLists.get()).isEqualTo(1);
+    }
+
+    @Test
+    void batchDeleteReportsOnlyTheBlobsThatFailed() {
+        DrainingHttpClient httpClient = new DrainingHttpClient();
+        httpClient.failingDeletes.add("/issues/locked.jpg");
+        StorageServiceImpl storage = storageService(httpClient);
+
+        Map<String, String> failures = storage.deleteFiles(List.of(
+                "https://devstore.blob.core.windows.net/issues/a.jpg",
+                "https://devstore.blob.core.windows.net/issues/locked.jpg",
+                "https://devstore.blob.core.windows.net/issues/gone.jpg"));
+
+        assertThat(failures).containsOnlyKeys("https://devstore.blob.core.windows.net/issues/locked.jpg");
+        assertThat(httpClient.deletes.get()).isEqualTo(3);
+    }
+
+    @Test
+    void uploadUrlOnlyAllowsWritingThatBlob() {
+        StorageServiceImpl storage = storageService(new DrainingHttpClient());
+
+        String url = storage.createUploadUrl("upload-1.mp4", Duration.ofMinutes(15));
+
+        assertThat(url).startsWith("https://devstore.blob.core.windows.net/issues/upload-1.mp4?")
+                .contains("sp=cw", "spr=https", "sr=b", "sig=");
+    }
+
+    // Opt-in, prints figures rather than gating the build:
+    // run with -Dbenchmark=true and a fixed heap, e.g. -Xmx512m
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void peakHeapPerConcurrentUploadStaysBounded() throws Exception {
+        int uploads = 8;
+        long fileSize = 100 * MB;
+        StorageServiceImpl storage = storageService(new DrainingHttpClient());
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        AtomicLong peak = new AtomicLong(baseline);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(uploads);
+        List<Future<String>> results = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int i = 0; i < uploads; i++) {
+            MultipartFile file = generatedFile(fileSize);
+            results.add(pool.submit(() -> storage.uploadFile(file)));
+        }
+        for (Future<String> result : results) {
+            result.get();
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        running.set(false);
+        sampler.join();
+        pool.shutdown();
+
+        long perUpload = (peak.get() - baseline) / uploads;
+        System.out.printf("%d concurrent uploads of %d MB: %d ms, peak heap %d MB above baseline (%d MB per upload)%n",
+                uploads, fileSize / MB, elapsedMs, (peak.get() - baseline) / MB, perUpload / MB);
+        // staged blocks in flight per upload, with room for garbage the sampler
+        // sees before it is collected; buffering whole files would be ~100 MB each
+        assertThat(perUpload).isLessThan(2 * BLOCK_SIZE * CONCURRENCY);
+    }
+
+    private static StorageServiceImpl storageService(HttpClient httpClient) {
+        String key = Base64.getEncoder().encodeToString("not-a-real-key".getBytes(StandardCharsets.UTF_8));
+        BlobContainerClient container = new BlobServiceClientBuilder()
+                .endpoint("https://devstore.blob.core.windows.net")
+                .credential(new StorageSharedKeyCredential("devstore", key))
+                .httpClient(httpClient)
+                .buildClient()
+                .getBlobContainerClient("issues");
+
+        StorageServiceImpl storage = new StorageServiceImpl(container);
+        ReflectionTestUtils.setField(storage, "blockSize", BLOCK_SIZE);
+        ReflectionTestUtils.setField(storage, "maxConcurrency", CONCURRENCY);
+        return storage;
+    }
+
+    // A file whose content is generated on the fly, so the test itself holds no copy
+    private static MultipartFile generatedFile(long size) throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getOriginalFilename()).thenReturn("walkthrough.mp4");
+        when(file.getContentType()).thenReturn("video/mp4");
+        when(file.getSize()).thenReturn(size);
+        when(file.getInputStream()).thenAnswer(invocation -> new InputStream() {
+            private long remaining = size;
+
+            @Override
+            public int read() {
+                if (remaining == 0) {
+                    return -1;
+                }
+                remaining--;
+                return 'x';
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                if (remaining == 0) {
+                    return -1;
+                }
+                int count = (int) Math.min(length, remaining);
+                Arrays.fill(buffer, offset, offset + count, (byte) 'x');
+                remaining -= count;
+                return count;
+            }
+        });
+        return file;
+    }
+
+    private static class DrainingHttpClient implements HttpClient {
+        final AtomicLong bytesReceived = new AtomicLong();
+        final AtomicLong largestBody = new AtomicLong();
+        final AtomicInteger stagedBlocks = new AtomicInteger();
+        final AtomicInteger committedBlockLists = new AtomicInteger();
+        final Set<String> blobs = ConcurrentHashMap.newKeySet();
+        final Set<String> failingDeletes = ConcurrentHashMap.newKeySet();
+        final AtomicInteger deletes = new AtomicInteger();
+
+        @Override
+        public Mono<HttpResponse> send(HttpRequest request) {
+            String path = request.getUrl().getPath();
+            if (request.getHttpMethod() == HttpMethod.HEAD) {
+                return Mono.just(new FakeResponse(request, blobs.contains(path) ? 200 : 404));
+            }
+            if (request.getHttpMethod() == HttpMethod.DELETE) {
+                deletes.incrementAndGet();
+                return Mono.just(new FakeResponse(request, failingDeletes.contains(path) ? 409 : 202));
+            }
+            String query = request.getUrl().getQuery();
+            boolean blockList = query != null && query.contains("comp=blocklist");
+            if (query != null && query.contains("comp=block&")) {
+                stagedBlocks.incrementAndGet();
+            }
+            if (blockList) {
+                committedBlockLists.incrementAndGet();
+            }
+            if (query == null || blockList) {
+                blobs.add(path);
+            }
+
+            Flux<ByteBuffer> body = request.getBody() == null ? Flux.empty() : request.getBody();
+            return body.reduce(0L, (total, buffer) -> total + buffer.remaining())
+                    .defaultIfEmpty(0L)
+                    .map(length -> {
+                        if (!blockList) {
+                            bytesReceived.addAndGet(length);
+                            largestBody.accumulateAndGet(length, Math::max);
+                        }
+                        return (HttpResponse) new FakeResponse(request, 201);
+                    });
+        }
+    }
+
+    private static class FakeResponse extends HttpResponse {
+        private final int statusCode;
+        private final HttpHeaders headers = new HttpHeaders()
+                .set(HttpHeaderName.ETAG, "\"0x1\"")
+                .set(HttpHeaderName.LAST_MODIFIED, "Mon, 02 Dec 2024 00:00:00 GMT")
+                .set(HttpHeaderName.fromString("x-ms-request-server-encrypted"), "true");
+
+        FakeResponse(HttpRequest request, int statusCode) {
+            super(request);
+            this.statusCode = statusCode;
+            if (statusCode == 404) {
+                headers.set(HttpHeaderName.fromString("x-ms-error-code"), "BlobNotFound");
+            }
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public String getHeaderValue(String name) {
+            return headers.getValue(HttpHeaderName.fromString(name));
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public Flux<ByteBuffer> getBody() {
+            return Flux.empty();
+        }
+
+        @Override
+        public Mono<byte[]> getBodyAsByteArray() {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<String> getBodyAsString() {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<String> getBodyAsString(Charset charset) {
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.service.UploadAdmissionService;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadAdmissionServiceImplTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void globalBudgetIsSharedByAllClients() {
+        UploadAdmissionServiceImpl admission = new UploadAdmissionServiceImpl(200 * MB, 150 * MB, 0);
+
+        UploadAdmissionService.Permit first = admission.tryAdmit("user:1", 100 * MB);
+        UploadAdmissionService.Permit second = admission.tryAdmit("user:2", 100 * MB);
+        UploadAdmissionService.Permit third = admission.tryAdmit("user:3", 100 * MB);
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(third).isNull();
+        assertThat(admission.getStats())
+                .containsEntry("inFlightBytes", 200 * MB)
+                .containsEntry("rejectedRequests", 1L)
+                .containsEntry("rejectedBytes", 100 * MB);
+
+        first.close();
+        assertThat(admission.tryAdmit("user:3", 100 * MB)).isNotNull();
+    }
+
+    @Test
+    void oneClientCannotTakeTheWholeBudget() {
+        UploadAdmissionServiceImpl admission = new UploadAdmissionServiceImpl(1000 * MB, 150 * MB, 0);
+
+        assertThat(admission.tryAdmit("ip:10.0.0.1", 100 * MB)).isNotNull();
+        assertThat(admission.tryAdmit("ip:10.0.0.1", 100 * MB)).isNull();
+        assertThat(admission.tryAdmit("ip:10.0.0.2", 100 * MB)).isNotNull();
+    }
+
+    @Test
+    void requestLargerThanTheBudgetGetsInWhenNothingElseIsRunning() {
+        UploadAdmissionServiceImpl admission = new UploadAdmissionServiceImpl(50 * MB, 50 * MB, 0);
+
+        UploadAdmissionService.Permit permit = admission.tryAdmit("user:1", 100 * MB);
+
+        assertThat(permit).isNotNull();
+        assertThat(admission.tryAdmit("user:2", MB)).isNull();
+    }
+
+    @Test
+    void waitingRequestIsAdmittedWhenRoomFreesUp() throws Exception {
+        UploadAdmissionServiceImpl admission = new UploadAdmissionServiceImpl(100 * MB, 100 * MB, 5000);
+        UploadAdmissionService.Permit running = admission.tryAdmit("user:1", 100 * MB);
+
+        CompletableFuture<UploadAdmissionService.Permit> waiting =
+                CompletableFuture.supplyAsync(() -> admission.tryAdmit("user:2", 10 * MB));
+        while (admission.getStats().get("queuedRequests") == 0) {
+            Thread.sleep(5);
+        }
+        assertThat(admission.getStats()).containsEntry("queuedBytes", 10 * MB);
+
+        running.close();
+        // closing twice must not free the bytes twice
+        running.close();
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(admission.getStats())
+                .containsEntry("queuedRequests", 0L)
+                .containsEntry("inFlightBytes", 10 * MB)
+                .containsEntry("clientsInFlight", 1L);
+    }
+}
@@ -0,0 +1,149 @@
+package au.edu.aufonduebackend.service.impl;
+
+import au.edu.aufonduebackend.model.entity.User;
+import au.edu.aufonduebackend.model.entity.UserDevice;
+import au.edu.aufonduebackend.repository.UserDeviceRepository;
+import au.edu.aufonduebackend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceImplTest {
+
+    private UserRepository userRepository;
+    private UserDeviceRepository deviceRepository;
+    private UserServiceImpl userService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        deviceRepository = mock(UserDeviceRepository.class);
+        userService = new UserServiceImpl(userRepository, deviceRepository);
+        user = new User("reporter", "reporter@au.edu");
+        user.setId(3L);
+        when(userRepository.findByEmail("reporter@au.edu")).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void unchangedTokenIsNotWrittenAgain() {
+        UserDevice phone = device(10L, user, "phone-token", "phone-1", Instant.now().minus(Duration.ofHours(1)));
+        when(deviceRepository.findByFcmToken("phone-token")).thenReturn(Optional.of(phone));
+
+        userService.updateFcmToken("reporter@au.edu", "phone-token", "phone-1");
+
+        verify(deviceRepository, never()).save(any());
+        verify(deviceRepository, never()).touch(anyLong(), any());
+    }
+
+    @Test
+    void deviceNotSeenForADayOnlyHasItsTimestampBumped() {
+        UserDevice phone = device(10L, user, "phone-token", null, Instant.now().minus(Duration.ofDays(2)));
+        when(deviceRepository.findByFcmToken("phone-token")).thenReturn(Optional.of(phone));
+
+        userService.updateFcmToken("reporter@au.edu", "phone-token", null);
+
+        verify(deviceRepository).touch(eq(10L), any(Instant.class));
+        verify(deviceRepository, never()).save(any());
+    }
+
+    @Test
+    void newDeviceIsAddedAlongsideTheOthers() {
+        when(deviceRepository.findByFcmToken("tablet-token")).thenReturn(Optional.empty());
+        when(deviceRepository.findByUserIdAndDeviceId(3L, "tablet-1")).thenReturn(Optional.empty());
+
+        userService.updateFcmToken("reporter@au.edu", "tablet-token", "tablet-1");
+
+        verify(deviceRepository).upsert(eq(3L), eq("tablet-token"), eq("tablet-1"), any(Instant.class));
+        verify(deviceRepository, never()).delete(any());
+        verify(deviceRepository, never()).deleteByUserId(anyLong());
+        // instances on the previous version still read the single-token column
+        assertThat(user.getFcmToken()).isEqualTo("tablet-token");
+    }
+
+    @Test
+    void rotatedTokenReplacesTheDevicesOldOne() {
+        UserDevice phone = device(10L, user, "old-token", "phone-1", Instant.now());
+        when(deviceRepository.findByFcmToken("new-token")).thenReturn(Optional.empty());
+        when(deviceRepository.findByUserIdAndDeviceId(3L, "phone-1")).thenReturn(Optional.of(phone));
+
+        userService.updateFcmToken("reporter@au.edu", "new-token", "phone-1");
+
+        InOrder inOrder = inOrder(deviceRepository);
+        inOrder.verify(deviceRepository).delete(phone);
+        inOrder.verify(deviceRepository).upsert(eq(3L), eq("new-token"), eq("phone-1"), any(Instant.class));
+    }
+
+    @Test
+    void tokenOfASharedDeviceMovesToTheUserSignedIn() {
+        User previousOwner = new User("other", "other@au.edu");
+        previousOwner.setId(4L);
+        UserDevice shared = device(11L, previousOwner, "shared-token", null, Instant.now());
+        when(deviceRepository.findByFcmToken("shared-token")).thenReturn(Optional.of(shared));
+
+        userService.updateFcmToken("reporter@au.edu", "shared-token", null);
+
+        // the upsert moves the row over, so there is no insert to collide on the token
+        verify(deviceRepository).upsert(eq(3L), eq("shared-token"), isNull(), any(Instant.class));
+        verify(deviceRepository, never()).save(any());
+    }
+
+    @Test
+    void tokenMovedFromAnotherUserIsNotCopiedBackToThemAfterSignOut() {
+        User previousOwner = new User("other", "other@au.edu");
+        previousOwner.setId(4L);
+        previousOwner.setFcmToken("shared-token");
+        UserDevice shared = device(11L, previousOwner, "shared-token", null, Instant.now());
+        when(deviceRepository.findByFcmToken("shared-token")).thenReturn(Optional.of(shared));
+        when(userRepository.clearFcmTokenOfOthers("shared-token", 3L)).thenAnswer(invocation -> {
+            previousOwner.setFcmToken(null);
+            return 1;
+        });
+
+        userService.updateFcmToken("reporter@au.edu", "shared-token", null);
+        userService.removeFcmToken("reporter@au.edu", "shared-token");
+
+        // neither column holds the token any more, so the startup copy has nothing to restore
+        verify(userRepository).clearFcmTokenOfOthers("shared-token", 3L);
+        assertThat(previousOwner.getFcmToken()).isNull();
+        assertThat(user.getFcmToken()).isNull();
+        verify(deviceRepository).deleteByUserIdAndFcmToken(3L, "shared-token");
+    }
+
+    @Test
+    void signingOutTheLatestTokenClearsTheSingleTokenColumn() {
+        user.setFcmToken("phone-token");
+
+        userService.removeFcmToken("reporter@au.edu", "tablet-token");
+        assertThat(user.getFcmToken()).isEqualTo("phone-token");
+
+        userService.removeFcmToken("reporter@au.edu", "phone-token");
+        verify(deviceRepository).deleteByUserIdAndFcmToken(3L, "phone-token");
+        assertThat(user.getFcmToken()).isNull();
+    }
+
+    private static UserDevice device(Long id, User owner, String fcmToken, String deviceId, Instant lastSeenAt) {
+        UserDevice device = new UserDevice();
+        device.setId(id);
+        device.setUser(owner);
+        device.setFcmToken(fcmToken);
+        device.setDeviceId(deviceId);
+        device.setLastSeenAt(lastSeenAt);
+        return device;
+    }
+}